@@ -0,0 +1,49 @@
+package com.eris.gitlabanalyzer.dataprocessing;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffScoreBenchmark {
+    @Param({"small", "10k-lines", "minified-js", "lockfile"})
+    public String diff;
+
+    private final DiffScoreCalculator diffScoreCalculator = new DiffScoreCalculator();
+    private String text;
+    private String fileType;
+
+    @Setup
+    public void generateDiff() {
+        switch (diff) {
+            case "small":
+                text = SyntheticDiffs.small();
+                fileType = "java";
+                break;
+            case "10k-lines":
+                text = SyntheticDiffs.javaLines(10_000);
+                fileType = "java";
+                break;
+            case "minified-js":
+                text = SyntheticDiffs.minifiedJs(1 << 20);
+                fileType = "js";
+                break;
+            case "lockfile":
+                text = SyntheticDiffs.lockfile(2_000);
+                fileType = "json";
+                break;
+            default:
+                throw new IllegalArgumentException(diff);
+        }
+    }
+
+    @Benchmark
+    public int calculateScore() {
+        return diffScoreCalculator.calculateScore(text, fileType);
+    }
+}
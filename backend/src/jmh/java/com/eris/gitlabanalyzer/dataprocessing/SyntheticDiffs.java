@@ -0,0 +1,83 @@
+package com.eris.gitlabanalyzer.dataprocessing;
+
+import java.util.Random;
+
+// Diffs shaped like the ones GitLab returns, generated so the benchmarks do not depend on a live GitLab
+final class SyntheticDiffs {
+    private SyntheticDiffs() {
+    }
+
+    // A typical review sized change to a Java file
+    static String small() {
+        return "@@ -10,7 +10,12 @@ public class ScoreService {\n" +
+                "     private final GitLabService gitLabService;\n" +
+                "-    private int score;\n" +
+                "+    // scores are cached per merge request\n" +
+                "+    private final Map<Long, Integer> scores = new HashMap<>();\n" +
+                "+\n" +
+                "+    /*\n" +
+                "+     * Merge requests are scored once\n" +
+                "+     */\n" +
+                "+    public int getScore(Long iid) {\n" +
+                "+        return scores.computeIfAbsent(iid, this::calculate);\n" +
+                "+    }\n" +
+                "     }\n" +
+                "\\ No newline at end of file\n";
+    }
+
+    // Java hunks adding up to the given number of lines, mostly code with comments, block comments and removals mixed in
+    static String javaLines(int lines) {
+        var random = new Random(22);
+        var diff = new StringBuilder(lines * 48);
+        int line = 0;
+        while (line < lines) {
+            diff.append("@@ -").append(line + 1).append(",20 +").append(line + 1).append(",24 @@ public class Generated {\n");
+            for (int i = 0; i < 24 && line < lines; i++, line++) {
+                int kind = random.nextInt(20);
+                if (kind < 12) {
+                    diff.append("+        int value").append(line).append(" = compute(").append(line).append(", offset);\n");
+                } else if (kind < 14) {
+                    diff.append("+        // adjust the offset for line ").append(line).append('\n');
+                } else if (kind == 14) {
+                    diff.append("+        /*\n+         * block comment\n+         */\n");
+                    line += 2;
+                } else if (kind < 17) {
+                    diff.append("-        int old").append(line).append(" = legacy(").append(line).append(");\n");
+                } else if (kind < 19) {
+                    diff.append("         return offset;\n");
+                } else {
+                    diff.append("+    }\n");
+                }
+            }
+        }
+        return diff.toString();
+    }
+
+    // A bundle committed as a single huge line
+    static String minifiedJs(int length) {
+        String chunk = "!function(e){var t={};function n(r){if(t[r])return t[r].exports;var o=t[r]={i:r,l:!1,exports:{}};" +
+                "return e[r].call(o.exports,o,o.exports,n),o.l=!0,o.exports}n.m=e,n.c=t,n.d=function(e,t,r){n.o(e,t)||" +
+                "Object.defineProperty(e,t,{enumerable:!0,get:r})}}([]);";
+        var diff = new StringBuilder(length + 64);
+        diff.append("@@ -1 +1 @@\n-").append(chunk, 0, 40).append("\n+");
+        while (diff.length() < length) {
+            diff.append(chunk);
+        }
+        return diff.append("\n\\ No newline at end of file\n").toString();
+    }
+
+    // A regenerated package-lock.json, thousands of short added lines
+    static String lockfile(int packages) {
+        var diff = new StringBuilder(packages * 260);
+        diff.append("@@ -1,3 +1,").append(packages * 7).append(" @@\n {\n");
+        for (int i = 0; i < packages; i++) {
+            diff.append("+    \"node_modules/package-").append(i).append("\": {\n")
+                    .append("+      \"version\": \"1.").append(i % 10).append('.').append(i % 7).append("\",\n")
+                    .append("+      \"resolved\": \"https://registry.npmjs.org/package-").append(i).append("/-/package-").append(i).append("-1.0.0.tgz\",\n")
+                    .append("+      \"integrity\": \"sha512-").append(Integer.toHexString(i * 2654435761L > 0 ? i * 31 : i)).append("Zm9vYmFyYmF6cXV4\",\n")
+                    .append("+      \"dev\": true\n")
+                    .append("+    },\n");
+        }
+        return diff.append(" }\n").toString();
+    }
+}
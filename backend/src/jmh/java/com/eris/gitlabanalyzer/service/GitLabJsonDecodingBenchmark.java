@@ -0,0 +1,57 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabFileChange;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Decodes GitLab API responses the way the WebClient does, with an ObjectMapper configured like Spring Boot's
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitLabJsonDecodingBenchmark {
+    private ObjectReader commitsReader;
+    private ObjectReader fileChangesReader;
+    // a page of 100 commits from /repository/commits
+    private byte[] commits;
+    // 40 changed files from /repository/commits/:sha/diff
+    private byte[] commitDiff;
+
+    @Setup
+    public void loadPayloads() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        commitsReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, GitLabCommit.class));
+        fileChangesReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, GitLabFileChange.class));
+        commits = read("gitlab/commits.json");
+        commitDiff = read("gitlab/commit_diff.json");
+    }
+
+    private static byte[] read(String resource) throws IOException {
+        try (InputStream in = GitLabJsonDecodingBenchmark.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Missing benchmark payload " + resource);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public List<GitLabCommit> decodeCommits() throws IOException {
+        return commitsReader.readValue(commits);
+    }
+
+    @Benchmark
+    public List<GitLabFileChange> decodeCommitDiff() throws IOException {
+        return fileChangesReader.readValue(commitDiff);
+    }
+}
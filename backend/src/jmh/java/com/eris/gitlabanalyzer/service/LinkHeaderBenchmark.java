@@ -0,0 +1,41 @@
+package com.eris.gitlabanalyzer.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkHeaderBenchmark {
+    private static final String baseUrl = "https://csil-git1.cs.surrey.sfu.ca/api/v4/projects/1234/repository/commits?id=1234"
+            + "&order=default&per_page=100&since=2021-01-01T00%3A00%3A00Z&until=2021-04-01T00%3A00%3A00Z&with_stats=false";
+
+    // first and last page only have some of the links, pages in between have all four
+    @Param({"first-page", "middle-page"})
+    public String page;
+
+    private String headerLink;
+
+    @Setup
+    public void buildHeader() {
+        if ("first-page".equals(page)) {
+            headerLink = link(2, "next") + ", " + link(1, "first") + ", " + link(12, "last");
+        } else {
+            headerLink = link(4, "prev") + ", " + link(6, "next") + ", " + link(1, "first") + ", " + link(12, "last");
+        }
+    }
+
+    private static String link(int page, String rel) {
+        return "<" + baseUrl + "&page=" + page + ">; rel=\"" + rel + "\"";
+    }
+
+    @Benchmark
+    public Map<String, String> getUrlsFromHeaderLink() {
+        return GitLabService.getUrlsFromHeaderLink(headerLink);
+    }
+}
@@ -0,0 +1,166 @@
+package com.eris.gitlabanalyzer.cache;
+
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabFileChange;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// A commit's diff never changes once the commit exists, so diffs are kept on disk and shared across restarts.
+// Files are named after a hash of (server, project, sha) and the least recently used ones are removed once the
+// cache grows past its size limit.
+@Component
+public class CommitDiffCache {
+    private static final Logger log = LoggerFactory.getLogger(CommitDiffCache.class);
+    // Only full commit ids are immutable, a branch or tag name passed in place of a sha must not be cached
+    private static final Pattern fullSha = Pattern.compile("[0-9a-f]{40}|[0-9a-f]{64}");
+    private static final TypeReference<List<GitLabFileChange>> fileChangeList = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final Path cacheDirectory;
+    private final long maxBytes;
+
+    // Access ordered, so iteration starts at the least recently used file
+    private final LinkedHashMap<Path, Long> fileSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    public CommitDiffCache(ObjectMapper objectMapper,
+                           @Value("${gitlab.DIFF_CACHE_DIR:${java.io.tmpdir}/gitlab-analyzer/diff-cache}") String cacheDirectory,
+                           @Value("${gitlab.DIFF_CACHE_MAX_BYTES:1073741824}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.cacheDirectory = Paths.get(cacheDirectory);
+        this.maxBytes = maxBytes;
+        loadIndex();
+    }
+
+    // Only full shas, a branch or tag name passed in place of a sha can point at another commit later
+    public static boolean isCacheable(String sha) {
+        return sha != null && fullSha.matcher(sha).matches();
+    }
+
+    public Optional<List<GitLabFileChange>> get(String serverUrl, Long projectId, String sha) {
+        if (!isCacheable(sha)) {
+            return Optional.empty();
+        }
+        var file = getFile(serverUrl, projectId, sha);
+        synchronized (this) {
+            if (fileSizes.get(file) == null) {
+                return Optional.empty();
+            }
+        }
+        try {
+            var changes = objectMapper.readValue(file.toFile(), fileChangeList);
+            // the modified time keeps the recency order when the index is rebuilt after a restart
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(changes);
+        } catch (IOException e) {
+            // evicted by another thread or unreadable, either way fetch it again
+            forget(file);
+            return Optional.empty();
+        }
+    }
+
+    public void put(String serverUrl, Long projectId, String sha, List<GitLabFileChange> changes) {
+        if (!isCacheable(sha)) {
+            return;
+        }
+        var file = getFile(serverUrl, projectId, sha);
+        try {
+            Files.createDirectories(file.getParent());
+            var temporaryFile = Files.createTempFile(file.getParent(), "diff", ".tmp");
+            objectMapper.writeValue(temporaryFile.toFile(), changes);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            remember(file, Files.size(file));
+        } catch (IOException e) {
+            log.warn("Could not cache diff of commit {} in project {}", sha, projectId, e);
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private synchronized void remember(Path file, long size) {
+        var previousSize = fileSizes.put(file, size);
+        totalBytes += size - (previousSize != null ? previousSize : 0);
+        evict();
+    }
+
+    private synchronized void forget(Path file) {
+        var size = fileSizes.remove(file);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    private synchronized void evict() {
+        var iterator = fileSizes.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            var eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(eldest.getKey());
+            } catch (IOException e) {
+                log.warn("Could not evict cached diff {}", eldest.getKey(), e);
+            }
+        }
+    }
+
+    private Path getFile(String serverUrl, Long projectId, String sha) {
+        var key = hash(serverUrl + "\n" + projectId + "\n" + sha);
+        return cacheDirectory.resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+
+    private void loadIndex() {
+        if (!Files.isDirectory(cacheDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(cacheDirectory, 2)) {
+            var cachedFiles = files
+                    .filter(file -> file.toString().endsWith(".json"))
+                    .sorted(Comparator.comparing(CommitDiffCache::lastModified))
+                    .collect(Collectors.toList());
+            for (Path file : cachedFiles) {
+                remember(file, Files.size(file));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not read diff cache in {}", cacheDirectory, e);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hash(String value) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            var hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.eris.gitlabanalyzer.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Projects, members, merge request lists and notes can change, so they are revalidated instead of being kept forever.
+// Responses are stored with their ETag, the next request for the same url sends If-None-Match and a 304 is
+// answered from the stored copy. Least recently used responses are dropped once the stored bodies pass maxBytes.
+@Component
+public class ConditionalRequestCache {
+
+    public static class Entry {
+        private final String eTag;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        Entry(String eTag, HttpHeaders headers, byte[] body) {
+            this.eTag = eTag;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+    }
+
+    private final long maxBytes;
+    // Access ordered, so iteration starts at the least recently used response
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    public ConditionalRequestCache(MeterRegistry meterRegistry,
+                                   @Value("${gitlab.CONDITIONAL_CACHE_MAX_BYTES:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+
+        FunctionCounter.builder("gitlab.http.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("GitLab requests answered with 304 Not Modified and served from the local copy")
+                .register(meterRegistry);
+        FunctionCounter.builder("gitlab.http.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("GitLab requests that returned a full body")
+                .register(meterRegistry);
+        FunctionCounter.builder("gitlab.http.cache.bytes.saved", bytesSaved, AtomicLong::get)
+                .baseUnit("bytes")
+                .description("Response bytes GitLab did not have to send because of a 304")
+                .register(meterRegistry);
+        Gauge.builder("gitlab.http.cache.hit.ratio", this, ConditionalRequestCache::getHitRatio)
+                .register(meterRegistry);
+        Gauge.builder("gitlab.http.cache.size", this, ConditionalRequestCache::getTotalBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public synchronized Entry get(String url) {
+        return entries.get(url);
+    }
+
+    // Called with every full response, keeps it when GitLab sent an ETag
+    public void put(String url, ResponseEntity<byte[]> response) {
+        misses.incrementAndGet();
+        var eTag = response.getHeaders().getETag();
+        if (eTag == null) {
+            return;
+        }
+        var body = response.getBody() != null ? response.getBody() : new byte[0];
+        store(url, new Entry(eTag, response.getHeaders(), body));
+    }
+
+    // Called when GitLab answered If-None-Match with 304
+    public ResponseEntity<byte[]> revalidated(Entry entry) {
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(entry.body.length);
+        return new ResponseEntity<>(entry.body, entry.headers, HttpStatus.OK);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private synchronized void store(String url, Entry entry) {
+        var previous = entries.put(url, entry);
+        totalBytes += entry.body.length - (previous != null ? previous.body.length : 0);
+
+        var iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().body.length;
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.eris.gitlabanalyzer.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Several people opening the same project at once would otherwise each fetch the same diffs from GitLab.
+// While a request for a url is running, anyone else asking for the same url subscribes to it instead of
+// starting another one, and gets the same decoded result. The entry is dropped as soon as the request finishes.
+@Component
+public class InFlightRequests {
+    private final ConcurrentHashMap<String, Mono<?>> requests = new ConcurrentHashMap<>();
+    private final Counter upstreamCounter;
+    private final Counter joinedCounter;
+
+    public InFlightRequests(MeterRegistry meterRegistry) {
+        this.upstreamCounter = Counter.builder("gitlab.http.coalesced")
+                .tag("result", "upstream")
+                .description("GitLab requests that were sent because none for the same url was running")
+                .register(meterRegistry);
+        this.joinedCounter = Counter.builder("gitlab.http.coalesced")
+                .tag("result", "joined")
+                .description("GitLab requests avoided by joining one already running for the same url")
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> coalesce(String url, Supplier<Mono<T>> request) {
+        return Mono.defer(() -> {
+            var started = new boolean[1];
+            var shared = requests.computeIfAbsent(url, key -> {
+                started[0] = true;
+                // the request is cancelled once every subscriber has cancelled, e.g. when an analysis job is stopped
+                return request.get()
+                        .doOnTerminate(() -> requests.remove(key))
+                        .doOnCancel(() -> requests.remove(key))
+                        .flux()
+                        .replay(1)
+                        .refCount()
+                        .next();
+            });
+            (started[0] ? upstreamCounter : joinedCounter).increment();
+            return (Mono<T>) shared;
+        });
+    }
+
+    public double getUpstream() {
+        return upstreamCounter.count();
+    }
+
+    public double getJoined() {
+        return joinedCounter.count();
+    }
+
+    public int size() {
+        return requests.size();
+    }
+}
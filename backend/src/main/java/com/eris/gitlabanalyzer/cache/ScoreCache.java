@@ -0,0 +1,103 @@
+package com.eris.gitlabanalyzer.cache;
+
+import com.eris.gitlabanalyzer.dataprocessing.CompiledScoreProfile;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+// Scores of single diffs under a compiled score profile. A diff is identified by its commit sha, or by merge request iid
+// and head sha, so a score can only go stale through the profile. Keys hold the saved version of the profile, and the
+// scores of a profile are dropped as soon as it is edited. Caffeine evicts scores once there are more than maxEntries.
+@Component
+public class ScoreCache {
+
+    private static final class Key {
+        private final String serverUrl;
+        private final Long projectId;
+        private final String sha;
+        // null for a commit
+        private final Long mergeRequestIid;
+        // null for the default profile
+        private final Long profileId;
+        private final long profileVersion;
+
+        Key(String serverUrl, Long projectId, String sha, Long mergeRequestIid, CompiledScoreProfile scoreProfile) {
+            this.serverUrl = serverUrl;
+            this.projectId = projectId;
+            this.sha = sha;
+            this.mergeRequestIid = mergeRequestIid;
+            this.profileId = scoreProfile.getId();
+            this.profileVersion = scoreProfile.getVersion();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return profileVersion == key.profileVersion
+                    && serverUrl.equals(key.serverUrl)
+                    && projectId.equals(key.projectId)
+                    && sha.equals(key.sha)
+                    && Objects.equals(mergeRequestIid, key.mergeRequestIid)
+                    && Objects.equals(profileId, key.profileId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serverUrl, projectId, sha, mergeRequestIid, profileId, profileVersion);
+        }
+    }
+
+    private final Cache<Key, Double> scores;
+
+    public ScoreCache(MeterRegistry meterRegistry,
+                      @Value("${gitlab.SCORE_CACHE_MAX_ENTRIES:100000}") long maxEntries) {
+        this.scores = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        // cache.gets, cache.puts, cache.evictions and cache.size tagged with cache=scores
+        CaffeineCacheMetrics.monitor(meterRegistry, scores, "scores");
+    }
+
+    public Double getCommitScoreIfPresent(String serverUrl, Long projectId, String sha, CompiledScoreProfile scoreProfile) {
+        return sha == null ? null : scores.getIfPresent(new Key(serverUrl, projectId, sha, null, scoreProfile));
+    }
+
+    public void putCommitScore(String serverUrl, Long projectId, String sha, CompiledScoreProfile scoreProfile, double score) {
+        if (CommitDiffCache.isCacheable(sha)) {
+            scores.put(new Key(serverUrl, projectId, sha, null, scoreProfile), score);
+        }
+    }
+
+    // headSha is the sha of the newest commit of the merge request
+    public Double getMergeRequestScoreIfPresent(String serverUrl, Long projectId, Long mergeRequestIid, String headSha, CompiledScoreProfile scoreProfile) {
+        return headSha == null ? null : scores.getIfPresent(new Key(serverUrl, projectId, headSha, mergeRequestIid, scoreProfile));
+    }
+
+    public void putMergeRequestScore(String serverUrl, Long projectId, Long mergeRequestIid, String headSha, CompiledScoreProfile scoreProfile, double score) {
+        if (headSha != null) {
+            scores.put(new Key(serverUrl, projectId, headSha, mergeRequestIid, scoreProfile), score);
+        }
+    }
+
+    // Called when a profile is edited or deleted, its old scores could not be looked up again anyway
+    public void evictProfile(Long profileId) {
+        scores.asMap().keySet().removeIf(key -> Objects.equals(key.profileId, profileId));
+    }
+
+    public long size() {
+        scores.cleanUp();
+        return scores.estimatedSize();
+    }
+}
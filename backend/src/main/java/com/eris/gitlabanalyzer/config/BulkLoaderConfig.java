@@ -0,0 +1,55 @@
+package com.eris.gitlabanalyzer.config;
+
+import com.eris.gitlabanalyzer.repository.CommitRepository;
+import com.eris.gitlabanalyzer.repository.MergeRequestCommentRepository;
+import com.eris.gitlabanalyzer.service.BatchInsertService;
+import com.eris.gitlabanalyzer.service.BulkLoader;
+import com.eris.gitlabanalyzer.service.JpaBulkLoader;
+import com.eris.gitlabanalyzer.service.PostgresCopyBulkLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+// gitlab.BULK_LOADER picks how ingested commits and notes are saved: copy for PostgreSQL COPY, jpa for batched
+// JPA inserts, auto for COPY whenever the database is PostgreSQL
+@Configuration
+public class BulkLoaderConfig {
+    private static final Logger log = LoggerFactory.getLogger(BulkLoaderConfig.class);
+
+    @Value("${gitlab.BULK_LOADER:auto}")
+    String bulkLoader;
+
+    @Bean
+    BulkLoader bulkLoader(DataSource dataSource, PlatformTransactionManager transactionManager, BatchInsertService batchInsertService,
+                          CommitRepository commitRepository, MergeRequestCommentRepository mergeRequestCommentRepository) {
+        if ("copy".equals(bulkLoader) || ("auto".equals(bulkLoader) && isPostgres(dataSource))) {
+            // its own transaction, the staging tables are dropped when it commits
+            var transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            log.info("Loading commits and notes with PostgreSQL COPY");
+            return new PostgresCopyBulkLoader(new JdbcTemplate(dataSource), transactionTemplate);
+        }
+        return new JpaBulkLoader(batchInsertService, commitRepository, mergeRequestCommentRepository);
+    }
+
+    private static boolean isPostgres(DataSource dataSource) {
+        try {
+            String productName = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equals(productName);
+        } catch (MetaDataAccessException e) {
+            log.warn("Could not tell which database is used, loading commits and notes with JPA", e);
+            return false;
+        }
+    }
+}
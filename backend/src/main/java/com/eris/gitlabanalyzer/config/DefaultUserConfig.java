@@ -22,6 +22,10 @@ public class DefaultUserConfig {
     @Bean
     CommandLineRunner commandLineRunner(ServerRepository serverRepository, UserRepository userRepository){
         return args -> {
+            // the database outlives restarts now, so the default user is only created once
+            if (serverRepository.findByServerUrlAndAccessToken(serverUrl, accessToken) != null) {
+                return;
+            }
             Server server = new Server(serverUrl);
             serverRepository.save(server);
             User user = new User("test");
@@ -0,0 +1,60 @@
+package com.eris.gitlabanalyzer.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Local, bounded Caffeine caches behind Hibernate's second-level and query cache. Hibernate evicts cached entities
+// and query results itself when they are saved through JPA, the expiry only bounds how long a change made by another
+// backend node goes unnoticed.
+@Configuration
+public class SecondLevelCacheConfig {
+    // regions named in the @Cache annotations of the cached entities
+    static final List<String> entityRegions = List.of("server", "user-server", "project", "git-management-user");
+
+    @Value("${gitlab.SECOND_LEVEL_CACHE_MAX_ENTRIES:10000}")
+    long maxEntries;
+
+    @Value("${gitlab.SECOND_LEVEL_CACHE_TTL_SECONDS:60}")
+    long ttlSeconds;
+
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheCustomizer() {
+        // Hibernate closes the cache manager along with the session factory
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, createCacheManager());
+    }
+
+    CacheManager createCacheManager() {
+        var provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // one cache manager per session factory, otherwise application contexts in the same JVM would share entities
+        var cacheManager = provider.getCacheManager(URI.create("gitlab-analyzer-" + UUID.randomUUID()), provider.getDefaultClassLoader());
+
+        for (String region : entityRegions) {
+            cacheManager.createCache(region, boundedConfiguration());
+        }
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, boundedConfiguration());
+        // holds one last-modified timestamp per table, evicting them would make every cached query stale
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    private CaffeineConfiguration<Object, Object> boundedConfiguration() {
+        var configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        return configuration;
+    }
+}
@@ -0,0 +1,68 @@
+package com.eris.gitlabanalyzer.controller;
+
+import com.eris.gitlabanalyzer.model.AnalysisJob;
+import com.eris.gitlabanalyzer.service.AnalysisJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.time.OffsetDateTime;
+
+// Project analyses that take too long for a single request. Submitting returns the job right away,
+// its progress is polled or followed as server-sent events and the rawdata or score is fetched once it has succeeded.
+@RestController
+@RequestMapping(path = "/api/v1/jobs")
+public class AnalysisJobController {
+    private final AnalysisJobService analysisJobService;
+
+    @Autowired
+    public AnalysisJobController(AnalysisJobService analysisJobService) {
+        this.analysisJobService = analysisJobService;
+    }
+
+    @PostMapping
+    public ResponseEntity<AnalysisJob> submitJob(
+            @RequestParam("projectId") Long projectId,
+            @RequestParam("startDateTime")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime startDateTime,
+            @RequestParam("endDateTime")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime endDateTime,
+            @RequestParam(value = "type", defaultValue = "TIMELINE") AnalysisJob.Type type,
+            @RequestParam(value = "scoreProfileId", required = false) Long scoreProfileId) {
+        var job = type == AnalysisJob.Type.TIMELINE
+                ? analysisJobService.submit(projectId, startDateTime, endDateTime)
+                : analysisJobService.submitScore(type, projectId, startDateTime, endDateTime, scoreProfileId);
+        return ResponseEntity.accepted().body(job);
+    }
+
+    @GetMapping(path = "/{jobId}")
+    public ResponseEntity<AnalysisJob> getJob(@PathVariable("jobId") String jobId) {
+        return ResponseEntity.of(analysisJobService.getJob(jobId));
+    }
+
+    @GetMapping(path = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<AnalysisJob>> watchJob(@PathVariable("jobId") String jobId) {
+        return ResponseEntity.of(analysisJobService.getJob(jobId).map(analysisJobService::watch));
+    }
+
+    @GetMapping(path = "/{jobId}/result")
+    public ResponseEntity<?> getJobResult(@PathVariable("jobId") String jobId) {
+        var job = analysisJobService.getJob(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.get().getStatus() != AnalysisJob.Status.SUCCEEDED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok(job.get().getType() == AnalysisJob.Type.TIMELINE ? job.get().getResult() : job.get().getScore());
+    }
+
+    @DeleteMapping(path = "/{jobId}")
+    public ResponseEntity<AnalysisJob> cancelJob(@PathVariable("jobId") String jobId) {
+        return ResponseEntity.of(analysisJobService.cancel(jobId));
+    }
+}
@@ -0,0 +1,45 @@
+package com.eris.gitlabanalyzer.controller;
+
+import com.eris.gitlabanalyzer.model.gitlabwebhook.GitLabWebhookEvent;
+import com.eris.gitlabanalyzer.service.GitLabWebhookService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// GitLab posts push, merge request, note and issue events here once the webhook is added to a project
+// with this url and the configured secret token
+@RestController
+@RequestMapping(path = "/api/v1/webhooks")
+public class GitLabWebhookController {
+    private final GitLabWebhookService gitLabWebhookService;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public GitLabWebhookController(GitLabWebhookService gitLabWebhookService, ObjectMapper objectMapper) {
+        this.gitLabWebhookService = gitLabWebhookService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(path = "/gitlab")
+    public ResponseEntity<Void> receiveGitLabEvent(
+            @RequestHeader(value = "X-Gitlab-Token", required = false) String token,
+            @RequestHeader(value = "X-Gitlab-Event-UUID", required = false) String deliveryId,
+            @RequestBody String payload) {
+        if (!gitLabWebhookService.isValidToken(token)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            objectMapper.readValue(payload, GitLabWebhookEvent.class);
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // answered once the delivery is saved, GitLab gives up on slow webhooks and disables ones that keep failing
+        gitLabWebhookService.receive(deliveryId, payload);
+        return ResponseEntity.accepted().build();
+    }
+}
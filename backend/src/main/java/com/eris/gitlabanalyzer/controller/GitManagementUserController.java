@@ -1,12 +1,13 @@
 package com.eris.gitlabanalyzer.controller;
 
-import com.eris.gitlabanalyzer.model.GitManagementUser;
+import com.eris.gitlabanalyzer.model.projection.MemberSummary;
 import com.eris.gitlabanalyzer.service.GitManagementUserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 public class GitManagementUserController {
     private final GitManagementUserService gitManagementUserService;
@@ -15,8 +16,11 @@ public class GitManagementUserController {
         this.gitManagementUserService = gitManagementUserService;
     }
 
+    // Paged with ?page=&size=&sort=, e.g. sort=username
     @GetMapping("/api/v1/{projectId}/managementuser/members")
-    public List<GitManagementUser> getMembersByProjectId(@PathVariable("projectId") Long projectId){
-        return gitManagementUserService.getMembersByProjectId(projectId);
+    public Page<MemberSummary> getMembersByProjectId(
+            @PathVariable("projectId") Long projectId,
+            @PageableDefault(size = 20, sort = "username") Pageable pageable){
+        return gitManagementUserService.getMembersByProjectId(projectId, pageable);
     }
 }
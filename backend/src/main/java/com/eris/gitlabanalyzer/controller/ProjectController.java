@@ -1,12 +1,23 @@
 package com.eris.gitlabanalyzer.controller;
 
-import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.model.IngestionTask;
+import com.eris.gitlabanalyzer.model.RawTimeLineEvent;
 import com.eris.gitlabanalyzer.model.RawTimeLineProjectData;
-import com.eris.gitlabanalyzer.service.AnalyticsService;
+import com.eris.gitlabanalyzer.model.projection.MergeRequestSummary;
+import com.eris.gitlabanalyzer.model.projection.ProjectSummary;
+import com.eris.gitlabanalyzer.service.IngestionTaskService;
+import com.eris.gitlabanalyzer.service.MergeRequestService;
 import com.eris.gitlabanalyzer.service.ProjectService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -15,11 +26,13 @@ import java.util.List;
 @RequestMapping(path = "/api/v1/projects")
 public class ProjectController {
     private final ProjectService projectService;
-    private final AnalyticsService analyticsService;
+    private final IngestionTaskService ingestionTaskService;
+    private final MergeRequestService mergeRequestService;
     @Autowired
-    public ProjectController(ProjectService projectService, AnalyticsService analyticsService){
+    public ProjectController(ProjectService projectService, IngestionTaskService ingestionTaskService, MergeRequestService mergeRequestService){
         this.projectService = projectService;
-        this.analyticsService = analyticsService;
+        this.ingestionTaskService = ingestionTaskService;
+        this.mergeRequestService = mergeRequestService;
     }
 
 
@@ -33,20 +46,40 @@ public class ProjectController {
         return projectService.getTimeLineProjectData(projectId, startDateTime, endDateTime);
     }
 
+    // Streams the rawdata merge requests and orphan commits one per line (application/x-ndjson) or event (text/event-stream)
+    @GetMapping(path = "/{projectId}/rawdata/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<RawTimeLineEvent> streamProject(
+            @PathVariable("projectId") Long projectId,
+            @RequestParam("startDateTime")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime startDateTime,
+            @RequestParam("endDateTime")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime endDateTime) {
+        return projectService.streamTimeLineProjectData(projectId, startDateTime, endDateTime);
+    }
+
+    // Paged with ?page=&size=&sort=, e.g. sort=name,desc
     @GetMapping
-    public List<Project> getProjects(){
-        return projectService.getProjects();
+    public Page<ProjectSummary> getProjects(@PageableDefault(size = 20, sort = "name") Pageable pageable){
+        return projectService.getProjects(pageable);
+    }
+
+    @GetMapping(path = "/{projectId}/mergerequests")
+    public Page<MergeRequestSummary> getMergeRequests(
+            @PathVariable("projectId") Long projectId,
+            @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable){
+        return mergeRequestService.getMergeRequests(projectId, pageable);
     }
 
     //TODO This endpoint is to check if the data is saved correctly. To be removed later on
+    // Queued for the ingestion workers of every backend node rather than synced by this request
     @PostMapping(path = "/analytics")
-    public void saveAllFromGitlab(
+    public ResponseEntity<List<IngestionTask>> saveAllFromGitlab(
             @RequestBody List<Long> projectIdList,
             @RequestParam("startDateTime")
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime startDateTime,
             @RequestParam("endDateTime")
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime endDateTime){
-        analyticsService.saveAllFromGitlab(projectIdList, startDateTime, endDateTime);
+        return ResponseEntity.accepted().body(ingestionTaskService.enqueue(projectIdList, startDateTime, endDateTime));
     }
 
 }
@@ -20,30 +20,34 @@ public class ScoreController {
     }
 
     @GetMapping(path ="/projects/{projectId}/merge_request/{merge_request_iid}/diff/score")
-    public int getMergeDiffScore (@PathVariable("projectId") Long projectId,
-                             @PathVariable("merge_request_iid") Long merge_request_iid){
-        return scoreService.getMergeDiffScore(projectId, merge_request_iid);
+    public double getMergeDiffScore (@PathVariable("projectId") Long projectId,
+                             @PathVariable("merge_request_iid") Long merge_request_iid,
+                             @RequestParam(value = "scoreProfileId", required = false) Long scoreProfileId){
+        return scoreService.getMergeDiffScore(projectId, merge_request_iid, scoreProfileId);
     }
     @GetMapping(path ="/projects/{projectId}/merge_requests/score")
-    public int getTotalMergeDiffScore (@PathVariable("projectId") Long projectId,
+    public double getTotalMergeDiffScore (@PathVariable("projectId") Long projectId,
                                        @RequestParam("startDateTime")
                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime startDateTime,
                                        @RequestParam("endDateTime")
-                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime endDateTime){
-        return scoreService.getTotalMergeDiffScore(projectId, startDateTime, endDateTime);
+                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime endDateTime,
+                                       @RequestParam(value = "scoreProfileId", required = false) Long scoreProfileId){
+        return scoreService.getTotalMergeDiffScore(projectId, startDateTime, endDateTime, scoreProfileId);
     }
 
     @GetMapping(path ="/projects/{projectId}/commit/{sha}/diff/score")
-    public int getCommitDiffScore (@PathVariable("projectId") Long projectId,
-                             @PathVariable("sha") String sha){
-        return scoreService.getCommitDiffScore(projectId, sha);
+    public double getCommitDiffScore (@PathVariable("projectId") Long projectId,
+                             @PathVariable("sha") String sha,
+                             @RequestParam(value = "scoreProfileId", required = false) Long scoreProfileId){
+        return scoreService.getCommitDiffScore(projectId, sha, scoreProfileId);
     }
     @GetMapping(path ="/projects/{projectId}/commits/score")
-    public int getTotalCommitDiffScore (@PathVariable("projectId") Long projectId,
+    public double getTotalCommitDiffScore (@PathVariable("projectId") Long projectId,
                                        @RequestParam("startDateTime")
                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime startDateTime,
                                        @RequestParam("endDateTime")
-                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime endDateTime){
-        return scoreService.getTotalCommitDiffScore(projectId, startDateTime, endDateTime);
+                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime endDateTime,
+                                       @RequestParam(value = "scoreProfileId", required = false) Long scoreProfileId){
+        return scoreService.getTotalCommitDiffScore(projectId, startDateTime, endDateTime, scoreProfileId);
     }
 }
\ No newline at end of file
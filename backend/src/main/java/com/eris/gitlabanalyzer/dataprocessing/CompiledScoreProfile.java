@@ -0,0 +1,79 @@
+package com.eris.gitlabanalyzer.dataprocessing;
+
+import com.eris.gitlabanalyzer.model.FileLineCounts;
+import com.eris.gitlabanalyzer.model.ScoreProfile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// The weights of a score profile in the form scoring needs them. Instances never change, so scoring threads can share
+// them without locking and an edited profile is swapped in as a whole.
+public final class CompiledScoreProfile {
+    // indexes into lineWeights
+    private static final int CODE = 0;
+    private static final int COMMENT = 1;
+    private static final int BLOCK_COMMENT = 2;
+    private static final int SYNTAX = 3;
+    private static final int DELETED = 4;
+
+    // 2 points for a line of code, 1 for a comment line, used when no score profile is asked for
+    public static final CompiledScoreProfile DEFAULT = new CompiledScoreProfile(null, 0, new double[]{2, 1, 1, 0, 0}, Map.of());
+
+    private final Long id;
+    // the saved version of the profile it was compiled from
+    private final long version;
+    private final double[] lineWeights;
+    // extensions without a weight count fully
+    private final Map<String, Double> extensionWeights;
+
+    private CompiledScoreProfile(Long id, long version, double[] lineWeights, Map<String, Double> extensionWeights) {
+        this.id = id;
+        this.version = version;
+        this.lineWeights = lineWeights;
+        this.extensionWeights = extensionWeights;
+    }
+
+    public static CompiledScoreProfile compile(ScoreProfile scoreProfile) {
+        var lineWeights = new double[5];
+        lineWeights[CODE] = scoreProfile.getLineWeight();
+        lineWeights[COMMENT] = scoreProfile.getCommentsWeight();
+        lineWeights[BLOCK_COMMENT] = scoreProfile.getCommentsWeight();
+        lineWeights[SYNTAX] = scoreProfile.getSyntaxWeight();
+        lineWeights[DELETED] = scoreProfile.getDeleteWeight();
+
+        Map<String, Double> extensionWeights = new HashMap<>();
+        scoreProfile.getExtensionWeights().forEach((extension, weight) -> {
+            if (extension != null && weight != null) {
+                extensionWeights.put(extension, weight);
+            }
+        });
+        return new CompiledScoreProfile(scoreProfile.getId(), scoreProfile.getVersion(), lineWeights, Map.copyOf(extensionWeights));
+    }
+
+    // null for the default profile
+    public Long getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public double weigh(FileLineCounts file) {
+        double score = file.getCodeLines() * lineWeights[CODE]
+                + file.getCommentLines() * lineWeights[COMMENT]
+                + file.getBlockCommentLines() * lineWeights[BLOCK_COMMENT]
+                + file.getSyntaxLines() * lineWeights[SYNTAX]
+                + file.getDeletedLines() * lineWeights[DELETED];
+        Double extensionWeight = extensionWeights.get(file.getExtension());
+        return extensionWeight != null ? score * extensionWeight : score;
+    }
+
+    public double weigh(Iterable<FileLineCounts> files) {
+        double totalScore = 0;
+        for (FileLineCounts file : files) {
+            totalScore += weigh(file);
+        }
+        return totalScore;
+    }
+}
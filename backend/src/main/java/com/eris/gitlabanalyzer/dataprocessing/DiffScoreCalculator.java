@@ -1,19 +1,23 @@
 package com.eris.gitlabanalyzer.dataprocessing;
 
+import com.eris.gitlabanalyzer.model.FileLineCounts;
 import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabFileChange;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-//TODO create public method to read-in/update point values
+// Point values come from score profiles, see CompiledScoreProfile
 @Service
 public class DiffScoreCalculator {
 
-    private Map<String, Integer> filePointValues = new HashMap<>();
     private final Map<String, String[]> commentCharacters = new HashMap<>();
-    private int commentPointValue = 1;
-    private final int DEFAULT_FILE_POINTS = 2;
+    private static final String[] NO_COMMENT_OPERATORS = new String[]{" ", " "};
+    // "\ No newline at end of file" without whitespace
+    private static final String NO_NEWLINE_MARKER = "\\Nonewlineatendoffile";
+    private int longestCommentOperator = 1;
     private enum lineTypes {
         code,
         comment,
@@ -36,6 +40,11 @@ public class DiffScoreCalculator {
         commentCharacters.put("cpp", new String[]{"//", "/*", "*/"});
         commentCharacters.put("py", new String[]{"#", "\"\"\""});
 
+        for(String[] operators : commentCharacters.values()){
+            for(String operator : operators){
+                longestCommentOperator = Math.max(longestCommentOperator, operator.length());
+            }
+        }
     }
 
 
@@ -43,21 +52,51 @@ public class DiffScoreCalculator {
         int totalScore = 0;
 
         for(GitLabFileChange file : files){
-           totalScore += calculateFileScore(file.getDiff(), findFileType(file));
+           totalScore += weigh(countLines(file));
         }
 
         return totalScore;
     }
 
     public int calculateScore(GitLabFileChange file){
-        return calculateFileScore(file.getDiff(), findFileType(file));
+        return weigh(countLines(file));
     }
 
     // Used to test scoreing directly without GitlabFileChange obj
-    public int calculateScore(String diff, String fileType){
-        return calculateFileScore(diff, fileType);
+    public int calculateScore(CharSequence diff, String fileType){
+        return weigh(countLines(diff, fileType));
+    }
+
+    // Scoring is split in two: the diff is parsed once into line counts, which are then weighed.
+    // Line counts can be kept and weighed again under another score profile without fetching the diff.
+    public List<FileLineCounts> countLines(Iterable<GitLabFileChange> files){
+        List<FileLineCounts> lineCounts = new ArrayList<>();
+        for(GitLabFileChange file : files){
+            lineCounts.add(countLines(file));
+        }
+        return lineCounts;
     }
 
+    public FileLineCounts countLines(GitLabFileChange file){
+        return countLines(file.getDiff(), findFileType(file));
+    }
+
+    public FileLineCounts countLines(CharSequence diff, String fileType){
+        return countFileLines(diff, fileType);
+    }
+
+    // Weighs line counts with the default point values
+    public int weigh(FileLineCounts file){
+        return (int) CompiledScoreProfile.DEFAULT.weigh(file);
+    }
+
+    public int weigh(Iterable<FileLineCounts> files){
+        int totalScore = 0;
+        for(FileLineCounts file : files){
+            totalScore += weigh(file);
+        }
+        return totalScore;
+    }
 
     private String findFileType(GitLabFileChange file){
         String[] fileNameParsed;
@@ -69,58 +108,85 @@ public class DiffScoreCalculator {
         return fileNameParsed[fileNameParsed.length -1];
     }
 
-    //TODO look into handling of default values may not need function
-    private int getFilePointValue(String fileType){
-        return  filePointValues.getOrDefault(fileType, DEFAULT_FILE_POINTS);
-    }
-
-    private int calculateFileScore(String diff, String fileType){
-        int totalScore = 0;
-        int pointValue = getFilePointValue(fileType);
+    // One forward pass over the diff. Lines are classified as if split on '\n' with all whitespace removed,
+    // but without creating a String per line, so large merge requests can be counted without garbage.
+    private FileLineCounts countFileLines(CharSequence diff, String fileType){
+        int codeLines = 0;
+        int commentLines = 0;
+        int blockCommentLines = 0;
+        int syntaxLines = 0;
+        int deletedLines = 0;
         boolean inCommentBlock = false;
-        String[] lines = diff.split("\n");
-        String[] commentOperator = commentCharacters.getOrDefault(fileType, new String[]{" ", " "});
+        String[] commentOperator = commentCharacters.getOrDefault(fileType, NO_COMMENT_OPERATORS);
         String commentTerminator = commentOperator[commentOperator.length - 1];
+        // first characters of the line without whitespace, the '+' followed by the longest comment operator
+        char[] lineStartChars = new char[1 + longestCommentOperator];
+
+        // like String.split, newlines at the very end do not start more lines
+        int end = diff.length();
+        while(end > 0 && diff.charAt(end - 1) == '\n'){
+            end--;
+        }
+
+        int lineStart = 0;
+        while(lineStart <= end){
+            int lineEnd = lineStart;
+            while(lineEnd < end && diff.charAt(lineEnd) != '\n'){
+                lineEnd++;
+            }
 
-        for(String line : lines){
-            // remove whitespace
-            line = line.replaceAll("\\s+","");
             if(inCommentBlock){
-                totalScore += commentPointValue;
-                if(line.contains(commentTerminator)){
+                blockCommentLines++;
+                if(containsIgnoringWhitespace(diff, lineStart, lineEnd, commentTerminator)){
                     inCommentBlock = false;
                 }
-            }else if(line.length() > 1 && !line.equals("\\Nonewlineatendoffile")){
-                if(line.charAt(0) == '+'){
-                    switch (typeOfLine(line, commentOperator)){
-                        case code:
-                            totalScore += pointValue;
-                            break;
-                        case comment:
-                            totalScore += commentPointValue;
-                            break;
-                        case blockComment:
-                            totalScore += commentPointValue;
-                            inCommentBlock = true;
-                            break;
+            } else {
+                int length = 0;
+                for(int i = lineStart; i < lineEnd; i++){
+                    char c = diff.charAt(i);
+                    if(!isWhitespace(c)){
+                        if(length < lineStartChars.length){
+                            lineStartChars[length] = c;
+                        }
+                        length++;
+                    }
+                }
+
+                if(length > 1 && !(length == NO_NEWLINE_MARKER.length() && equalsIgnoringWhitespace(diff, lineStart, lineEnd, NO_NEWLINE_MARKER))){
+                    if(lineStartChars[0] == '+'){
+                        switch (typeOfLine(lineStartChars, length, commentOperator)){
+                            case code:
+                                codeLines++;
+                                break;
+                            case comment:
+                                commentLines++;
+                                break;
+                            case blockComment:
+                                blockCommentLines++;
+                                inCommentBlock = true;
+                                break;
+                            case syntax:
+                                syntaxLines++;
+                                break;
+                        }
+                    } else if(lineStartChars[0] == '-'){
+                        deletedLines++;
                     }
-                } else{
-                    //TODO give proper weight to removing line
-                    totalScore += commentPointValue/2;
                 }
             }
+            lineStart = lineEnd + 1;
         }
-        return totalScore;
+        return new FileLineCounts(fileType, codeLines, commentLines, blockCommentLines, syntaxLines, deletedLines);
     }
 
-    private lineTypes typeOfLine(String line, String[] commentOperator){
+    // lineStartChars holds the first characters of a line without whitespace, length is the length of the whole line without whitespace
+    private lineTypes typeOfLine(char[] lineStartChars, int length, String[] commentOperator){
         for(int i = 0; i < commentOperator.length; i++){
             //Todo find better way to handle single character syntax
-            if(1+ commentOperator[i].length() > line.length()){
+            if(1+ commentOperator[i].length() > length){
                 return lineTypes.syntax;
             }
-            String lineStartChar = line.substring(1, (1 + commentOperator[i].length()));
-            if(lineStartChar.equals(commentOperator[i])){
+            if(startsWith(lineStartChars, 1, commentOperator[i])){
                 if(i > 0){
                     return lineTypes.blockComment;
                 }
@@ -130,4 +196,58 @@ public class DiffScoreCalculator {
         return lineTypes.code;
     }
 
+    private static boolean startsWith(char[] chars, int offset, String prefix){
+        for(int i = 0; i < prefix.length(); i++){
+            if(chars[offset + i] != prefix.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same as removing whitespace from text[start, end) and calling contains
+    private static boolean containsIgnoringWhitespace(CharSequence text, int start, int end, String target){
+        for(int i = start; i < end; i++){
+            if(isWhitespace(text.charAt(i))){
+                continue;
+            }
+            int matched = 0;
+            for(int j = i; j < end && matched < target.length(); j++){
+                char c = text.charAt(j);
+                if(isWhitespace(c)){
+                    continue;
+                }
+                if(c != target.charAt(matched)){
+                    break;
+                }
+                matched++;
+            }
+            if(matched == target.length()){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Same as removing whitespace from text[start, end) and calling equals
+    private static boolean equalsIgnoringWhitespace(CharSequence text, int start, int end, String target){
+        int matched = 0;
+        for(int i = start; i < end; i++){
+            char c = text.charAt(i);
+            if(isWhitespace(c)){
+                continue;
+            }
+            if(matched == target.length() || c != target.charAt(matched)){
+                return false;
+            }
+            matched++;
+        }
+        return matched == target.length();
+    }
+
+    // the characters matched by the regex \s
+    private static boolean isWhitespace(char c){
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
 }
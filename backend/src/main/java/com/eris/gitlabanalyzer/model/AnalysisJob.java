@@ -0,0 +1,197 @@
+package com.eris.gitlabanalyzer.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A project analysis running in the background. Only kept in memory, the serialized job is its progress
+// and the result is fetched on its own once the job has succeeded. A score total is small and also part of the job.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AnalysisJob {
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    public enum Type {
+        TIMELINE, MERGE_REQUEST_SCORE, COMMIT_SCORE
+    }
+
+    private final String id;
+    private final Type type;
+    private final Long gitLabProjectId;
+    private final OffsetDateTime startDateTime;
+    private final OffsetDateTime endDateTime;
+    // null for the default weights and for timelines
+    private final Long scoreProfileId;
+    private final OffsetDateTime submittedAt = OffsetDateTime.now();
+    private volatile OffsetDateTime finishedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile String error;
+
+    private final AtomicInteger mergeRequestsDone = new AtomicInteger();
+    private final AtomicInteger mergeRequestsTotal = new AtomicInteger();
+    private final AtomicInteger commitsDone = new AtomicInteger();
+    private final AtomicInteger commitsTotal = new AtomicInteger();
+    private final AtomicLong bytesFetched = new AtomicLong();
+
+    private volatile RawTimeLineProjectData result;
+    private volatile Double score;
+    // exists before the analysis is subscribed, so a job cancelled in between disposes the subscription once it is set
+    private final Disposable.Swap subscription = Disposables.swap();
+
+    public AnalysisJob(String id, Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        this(id, Type.TIMELINE, gitLabProjectId, startDateTime, endDateTime, null);
+    }
+
+    public AnalysisJob(String id, Type type, Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime, Long scoreProfileId) {
+        this.id = id;
+        this.type = type;
+        this.gitLabProjectId = gitLabProjectId;
+        this.startDateTime = startDateTime;
+        this.endDateTime = endDateTime;
+        this.scoreProfileId = scoreProfileId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getGitLabProjectId() {
+        return gitLabProjectId;
+    }
+
+    public OffsetDateTime getStartDateTime() {
+        return startDateTime;
+    }
+
+    public OffsetDateTime getEndDateTime() {
+        return endDateTime;
+    }
+
+    public Long getScoreProfileId() {
+        return scoreProfileId;
+    }
+
+    public OffsetDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public OffsetDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public int getMergeRequestsDone() {
+        return mergeRequestsDone.get();
+    }
+
+    public int getMergeRequestsTotal() {
+        return mergeRequestsTotal.get();
+    }
+
+    public int getCommitsDone() {
+        return commitsDone.get();
+    }
+
+    public int getCommitsTotal() {
+        return commitsTotal.get();
+    }
+
+    public long getBytesFetched() {
+        return bytesFetched.get();
+    }
+
+    @JsonIgnore
+    public AtomicInteger getMergeRequestsDoneCounter() {
+        return mergeRequestsDone;
+    }
+
+    @JsonIgnore
+    public AtomicInteger getMergeRequestsTotalCounter() {
+        return mergeRequestsTotal;
+    }
+
+    @JsonIgnore
+    public AtomicInteger getCommitsDoneCounter() {
+        return commitsDone;
+    }
+
+    @JsonIgnore
+    public AtomicInteger getCommitsTotalCounter() {
+        return commitsTotal;
+    }
+
+    @JsonIgnore
+    public AtomicLong getBytesFetchedCounter() {
+        return bytesFetched;
+    }
+
+    @JsonIgnore
+    public RawTimeLineProjectData getResult() {
+        return result;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    @JsonIgnore
+    public Disposable.Swap getSubscription() {
+        return subscription;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    public synchronized void started() {
+        if (status == Status.QUEUED) {
+            status = Status.RUNNING;
+        }
+    }
+
+    public void succeeded(RawTimeLineProjectData result) {
+        this.result = result;
+        finish(Status.SUCCEEDED);
+    }
+
+    public void scored(Double score) {
+        this.score = score;
+        finish(Status.SUCCEEDED);
+    }
+
+    public void failed(String error) {
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    public void cancelled() {
+        finish(Status.CANCELLED);
+    }
+
+    private synchronized void finish(Status status) {
+        // the first outcome wins, a cancelled job can still see its subscription error out
+        if (isFinished()) {
+            return;
+        }
+        this.status = status;
+        this.finishedAt = OffsetDateTime.now();
+    }
+}
@@ -0,0 +1,19 @@
+package com.eris.gitlabanalyzer.model;
+
+import org.hibernate.Hibernate;
+
+import java.util.Set;
+
+final class Associations {
+    private Associations() {
+    }
+
+    // Adds to the inverse side of an association, the owning side is what gets saved. A lazy collection that has
+    // not been loaded yet is left alone rather than loaded just to add one entity, it is read from the database
+    // with the entity in it once it is needed.
+    static <T> void addToInverse(Set<T> collection, T element) {
+        if (Hibernate.isInitialized(collection)) {
+            collection.add(element);
+        }
+    }
+}
@@ -2,19 +2,23 @@ package com.eris.gitlabanalyzer.model;
 
 import javax.persistence.*;
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import static javax.persistence.GenerationType.SEQUENCE;
 
 @Entity(name = "Commit")
-@Table(name = "commit")
+@Table(
+        name = "commit",
+        uniqueConstraints={@UniqueConstraint(name = "commit_project_id_sha_key", columnNames={"project_id", "sha"})},
+        indexes = {@Index(name = "commit_project_id_created_at_idx", columnList = "project_id, created_at")}
+)
 public class Commit {
     @Id
     @SequenceGenerator(
             name = "commit_sequence",
             sequenceName = "commit_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = SEQUENCE,
@@ -97,7 +101,7 @@ public class Commit {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<CommitComment> commitComments = new ArrayList<>();
+    private Set<CommitComment> commitComments = new HashSet<>();
 
     @ManyToOne
     @JoinColumn(
@@ -194,10 +198,8 @@ public class Commit {
     }
 
     public void addCommitComment(CommitComment commitComment) {
-        if (!this.commitComments.contains(commitComment)) {
-            this.commitComments.add(commitComment);
-            commitComment.setCommit(this);
-        }
+        commitComment.setCommit(this);
+        Associations.addToInverse(this.commitComments, commitComment);
     }
 
     @Override
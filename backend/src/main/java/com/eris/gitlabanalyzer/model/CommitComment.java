@@ -14,7 +14,7 @@ public class CommitComment {
     @SequenceGenerator(
             name = "commit_comment_sequence",
             sequenceName = "commit_comment_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = SEQUENCE,
@@ -12,7 +12,7 @@ public class CommitMapping {
     @SequenceGenerator(
             name = "commit_mapping_sequence",
             sequenceName = "commit_mapping_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = SEQUENCE,
@@ -0,0 +1,104 @@
+package com.eris.gitlabanalyzer.model;
+
+import javax.persistence.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+
+// The line counts of every file in a commit diff or a merge request diff. A commit is identified by its sha, a merge
+// request by its iid and the sha of its head commit, so new pushes to an open merge request are counted again.
+@Entity(name = "DiffLineCounts")
+@Table(
+        name = "diff_line_counts",
+        uniqueConstraints = {@UniqueConstraint(name = "diff_line_counts_server_url_project_sha_iid_key",
+                columnNames = {"server_url", "gitlab_project_id", "sha", "merge_request_iid"})}
+)
+public class DiffLineCounts {
+    // Merge request iids start at 1. Unlike null, this is covered by the unique key, so a commit is saved only once.
+    public static final long COMMIT = 0;
+
+    @Id
+    @SequenceGenerator(
+            name = "diff_line_counts_sequence",
+            sequenceName = "diff_line_counts_sequence",
+            allocationSize = 50
+    )
+    @GeneratedValue(
+            strategy = SEQUENCE,
+            generator = "diff_line_counts_sequence"
+    )
+    @Column(
+            name = "diff_line_counts_id"
+    )
+    private Long id;
+
+    @Column(
+            name = "server_url",
+            nullable = false
+    )
+    private String serverUrl;
+
+    @Column(
+            name = "gitlab_project_id",
+            nullable = false
+    )
+    private Long gitLabProjectId;
+
+    @Column(
+            name = "sha",
+            nullable = false
+    )
+    private String sha;
+
+    // COMMIT for the diff of a single commit
+    @Column(
+            name = "merge_request_iid",
+            nullable = false
+    )
+    private Long mergeRequestIid;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(
+            name = "diff_line_counts_file",
+            joinColumns = @JoinColumn(name = "diff_line_counts_id"),
+            foreignKey = @ForeignKey(name = "diff_line_counts_file_diff_line_counts_id_fk"),
+            indexes = {@Index(name = "diff_line_counts_file_diff_line_counts_id_idx", columnList = "diff_line_counts_id")}
+    )
+    private List<FileLineCounts> files = new ArrayList<>();
+
+    public DiffLineCounts() {
+    }
+
+    public DiffLineCounts(String serverUrl, Long gitLabProjectId, String sha, Long mergeRequestIid, List<FileLineCounts> files) {
+        this.serverUrl = serverUrl;
+        this.gitLabProjectId = gitLabProjectId;
+        this.sha = sha;
+        this.mergeRequestIid = mergeRequestIid;
+        this.files = files;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    public Long getGitLabProjectId() {
+        return gitLabProjectId;
+    }
+
+    public String getSha() {
+        return sha;
+    }
+
+    public Long getMergeRequestIid() {
+        return mergeRequestIid;
+    }
+
+    public List<FileLineCounts> getFiles() {
+        return files;
+    }
+}
@@ -0,0 +1,81 @@
+package com.eris.gitlabanalyzer.model;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+// How many lines of each kind one file of a diff adds or removes, enough to score it under any score profile
+@Embeddable
+public class FileLineCounts {
+    @Column(
+            name = "extension",
+            nullable = false
+    )
+    private String extension;
+
+    @Column(
+            name = "code_lines",
+            nullable = false
+    )
+    private int codeLines;
+
+    @Column(
+            name = "comment_lines",
+            nullable = false
+    )
+    private int commentLines;
+
+    // lines that open a block comment and the lines inside it
+    @Column(
+            name = "block_comment_lines",
+            nullable = false
+    )
+    private int blockCommentLines;
+
+    @Column(
+            name = "syntax_lines",
+            nullable = false
+    )
+    private int syntaxLines;
+
+    @Column(
+            name = "deleted_lines",
+            nullable = false
+    )
+    private int deletedLines;
+
+    public FileLineCounts() {
+    }
+
+    public FileLineCounts(String extension, int codeLines, int commentLines, int blockCommentLines, int syntaxLines, int deletedLines) {
+        this.extension = extension;
+        this.codeLines = codeLines;
+        this.commentLines = commentLines;
+        this.blockCommentLines = blockCommentLines;
+        this.syntaxLines = syntaxLines;
+        this.deletedLines = deletedLines;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public int getCodeLines() {
+        return codeLines;
+    }
+
+    public int getCommentLines() {
+        return commentLines;
+    }
+
+    public int getBlockCommentLines() {
+        return blockCommentLines;
+    }
+
+    public int getSyntaxLines() {
+        return syntaxLines;
+    }
+
+    public int getDeletedLines() {
+        return deletedLines;
+    }
+}
@@ -1,19 +1,30 @@
 package com.eris.gitlabanalyzer.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import static javax.persistence.GenerationType.SEQUENCE;
 
 @Entity(name = "GitManagementUser")
-@Table(name = "git_management_user")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "git-management-user")
+@Table(
+        name = "git_management_user",
+        uniqueConstraints={
+                @UniqueConstraint(name = "git_management_user_server_id_username_key", columnNames={"server_id", "username"}),
+                @UniqueConstraint(name = "git_management_user_server_id_gitlab_user_id_key", columnNames={"server_id", "gitlab_user_id"})
+        }
+)
 public class GitManagementUser {
     @Id
     @SequenceGenerator(
             name = "git_management_user_sequence",
             sequenceName = "git_management_user_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = SEQUENCE,
@@ -38,6 +49,12 @@ public class GitManagementUser {
     )
     private String name;
 
+    // The id GitLab gives the user, webhook payloads only name authors by it. Null until the user's project is synced.
+    @Column(
+            name = "gitlab_user_id"
+    )
+    private Long gitLabUserId;
+
     @Column(
             name = "score",
             nullable = false
@@ -51,7 +68,7 @@ public class GitManagementUser {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<CommitMapping> commitMappings = new ArrayList<>();
+    private Set<CommitMapping> commitMappings = new HashSet<>();
 
     @OneToMany(
             mappedBy ="gitManagementUser",
@@ -59,7 +76,7 @@ public class GitManagementUser {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<Commit> commits = new ArrayList<>();
+    private Set<Commit> commits = new HashSet<>();
 
     @OneToMany(
             mappedBy = "gitManagementUser",
@@ -67,7 +84,7 @@ public class GitManagementUser {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<MergeRequest> mergeRequests = new ArrayList<>();
+    private Set<MergeRequest> mergeRequests = new HashSet<>();
 
     @OneToMany(
             mappedBy = "gitManagementUser",
@@ -75,7 +92,7 @@ public class GitManagementUser {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<CommitComment> commitComments = new ArrayList<>();
+    private Set<CommitComment> commitComments = new HashSet<>();
 
     @OneToMany(
             mappedBy = "gitManagementUser",
@@ -83,7 +100,7 @@ public class GitManagementUser {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<IssueComment> issueComments = new ArrayList<>();
+    private Set<IssueComment> issueComments = new HashSet<>();
 
     @OneToMany(
             mappedBy = "gitManagementUser",
@@ -91,14 +108,14 @@ public class GitManagementUser {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<MergeRequestComment> mergeRequestComments = new ArrayList<>();
+    private Set<MergeRequestComment> mergeRequestComments = new HashSet<>();
 
     @ManyToMany
     @JoinTable(
             name = "member",
             joinColumns = @JoinColumn(name = "git_management_user_id"),
             inverseJoinColumns = @JoinColumn(name = "project_id"))
-    private List<Project> projects = new ArrayList<>();
+    private Set<Project> projects = new HashSet<>();
 
     @ManyToOne
     @JoinColumn(
@@ -127,31 +144,39 @@ public class GitManagementUser {
         return name;
     }
 
-    public List<CommitMapping> getCommitMappings() {
+    public Long getGitLabUserId() {
+        return gitLabUserId;
+    }
+
+    public void setGitLabUserId(Long gitLabUserId) {
+        this.gitLabUserId = gitLabUserId;
+    }
+
+    public Set<CommitMapping> getCommitMappings() {
         return commitMappings;
     }
 
-    public List<Commit> getCommits() {
+    public Set<Commit> getCommits() {
         return commits;
     }
 
-    public List<MergeRequest> getMergeRequests() {
+    public Set<MergeRequest> getMergeRequests() {
         return mergeRequests;
     }
 
-    public List<CommitComment> getCommitComments() {
+    public Set<CommitComment> getCommitComments() {
         return commitComments;
     }
 
-    public List<IssueComment> getIssueComments() {
+    public Set<IssueComment> getIssueComments() {
         return issueComments;
     }
 
-    public List<MergeRequestComment> getMergeRequestComments() {
+    public Set<MergeRequestComment> getMergeRequestComments() {
         return mergeRequestComments;
     }
 
-    public List<Project> getProjects() {
+    public Set<Project> getProjects() {
         return projects;
     }
 
@@ -172,53 +197,40 @@ public class GitManagementUser {
     }
 
     public void addProject(Project project) {
-        if (!this.projects.contains(project)) {
-            this.projects.add(project);
-            project.getGitManagementUsers().add(this);
+        if (this.projects.add(project)) {
+            Associations.addToInverse(project.getGitManagementUsers(), this);
         }
     }
 
 
     public void addCommitMapping(CommitMapping commitMapping) {
-        if (!this.commitMappings.contains(commitMapping)) {
-            this.commitMappings.add(commitMapping);
-            commitMapping.setGitManagementUser(this);
-        }
+        commitMapping.setGitManagementUser(this);
+        Associations.addToInverse(this.commitMappings, commitMapping);
     }
 
     public void addCommit(Commit commit) {
-        if (!this.commits.contains(commit)) {
-            this.commits.add(commit);
-            commit.setGitManagementUser(this);
-        }
+        commit.setGitManagementUser(this);
+        Associations.addToInverse(this.commits, commit);
     }
 
     public void addMergeRequest(MergeRequest mergeRequest) {
-        if (!this.mergeRequests.contains(mergeRequest)) {
-            this.mergeRequests.add(mergeRequest);
-            mergeRequest.setGitManagementUser(this);
-        }
+        mergeRequest.setGitManagementUser(this);
+        Associations.addToInverse(this.mergeRequests, mergeRequest);
     }
 
     public void addCommitComment(CommitComment commitComment) {
-        if (!this.commitComments.contains(commitComment)) {
-            this.commitComments.add(commitComment);
-            commitComment.setMember(this);
-        }
+        commitComment.setMember(this);
+        Associations.addToInverse(this.commitComments, commitComment);
     }
 
     public void addMergeRequestComment(MergeRequestComment mergeRequestComment) {
-        if (!this.mergeRequestComments.contains(mergeRequestComment)) {
-            this.mergeRequestComments.add(mergeRequestComment);
-            mergeRequestComment.setMember(this);
-        }
+        mergeRequestComment.setMember(this);
+        Associations.addToInverse(this.mergeRequestComments, mergeRequestComment);
     }
 
     public void addIssueComment(IssueComment issueComment) {
-        if (!this.issueComments.contains(issueComment)) {
-            this.issueComments.add(issueComment);
-            issueComment.setMember(this);
-        }
+        issueComment.setMember(this);
+        Associations.addToInverse(this.issueComments, issueComment);
     }
 
     @Override
@@ -0,0 +1,234 @@
+package com.eris.gitlabanalyzer.model;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+
+// One step of syncing a project from GitLab. Tasks are leased by whichever backend node asks first,
+// a lease that is not renewed runs out and the task is picked up by another node.
+@Entity(name = "IngestionTask")
+@Table(
+        name = "ingestion_task",
+        uniqueConstraints = {@UniqueConstraint(name = "ingestion_task_active_project_key_key", columnNames = {"active_project_key"})},
+        indexes = {@Index(name = "ingestion_task_status_idx", columnList = "status, run_after")}
+)
+public class IngestionTask {
+    public enum Type {
+        // the project and its members, followed by MERGE_REQUESTS
+        PROJECT,
+        // merge requests and their notes, followed by COMMITS
+        MERGE_REQUESTS,
+        COMMITS
+    }
+
+    public enum Status {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    @Id
+    @SequenceGenerator(
+            name = "ingestion_task_sequence",
+            sequenceName = "ingestion_task_sequence",
+            allocationSize = 1
+    )
+    @GeneratedValue(
+            strategy = SEQUENCE,
+            generator = "ingestion_task_sequence"
+    )
+    @Column(
+            name = "ingestion_task_id"
+    )
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(
+            name = "type",
+            nullable = false
+    )
+    private Type type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(
+            name = "status",
+            nullable = false
+    )
+    private Status status = Status.PENDING;
+
+    @Column(
+            name = "server_url",
+            nullable = false
+    )
+    private String serverUrl;
+
+    @Column(
+            name = "gitlab_project_id",
+            nullable = false
+    )
+    private Long gitLabProjectId;
+
+    @Column(
+            name = "start_date_time",
+            nullable = false
+    )
+    private OffsetDateTime startDateTime;
+
+    @Column(
+            name = "end_date_time",
+            nullable = false
+    )
+    private OffsetDateTime endDateTime;
+
+    @Column(
+            name = "attempts",
+            nullable = false
+    )
+    private int attempts;
+
+    // Not leased before this, failed tasks wait a little longer after every attempt
+    @Column(
+            name = "run_after",
+            nullable = false
+    )
+    private OffsetDateTime runAfter;
+
+    @Column(
+            name = "lease_owner"
+    )
+    private String leaseOwner;
+
+    @Column(
+            name = "lease_expires_at"
+    )
+    private OffsetDateTime leaseExpiresAt;
+
+    @Column(
+            name = "last_error",
+            length = 1000
+    )
+    private String lastError;
+
+    // Server and project while the task is PENDING or RUNNING, null once it is DONE or FAILED. It is unique, so a
+    // project has at most one unfinished task and is never synced by two nodes at once.
+    @Column(
+            name = "active_project_key"
+    )
+    private String activeProjectKey;
+
+    public IngestionTask() {
+    }
+
+    public IngestionTask(Type type, String serverUrl, Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        this.type = type;
+        this.serverUrl = serverUrl;
+        this.gitLabProjectId = gitLabProjectId;
+        this.startDateTime = startDateTime;
+        this.endDateTime = endDateTime;
+        this.runAfter = OffsetDateTime.now();
+        this.activeProjectKey = projectKey(serverUrl, gitLabProjectId);
+    }
+
+    public static String projectKey(String serverUrl, Long gitLabProjectId) {
+        return serverUrl + "|" + gitLabProjectId;
+    }
+
+    // The task that carries on with the same project and date range
+    public IngestionTask next(Type type) {
+        return new IngestionTask(type, serverUrl, gitLabProjectId, startDateTime, endDateTime);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    public Long getGitLabProjectId() {
+        return gitLabProjectId;
+    }
+
+    public OffsetDateTime getStartDateTime() {
+        return startDateTime;
+    }
+
+    public OffsetDateTime getEndDateTime() {
+        return endDateTime;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public OffsetDateTime getRunAfter() {
+        return runAfter;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public OffsetDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public String getActiveProjectKey() {
+        return activeProjectKey;
+    }
+
+    public void lease(String owner, OffsetDateTime leaseExpiresAt) {
+        this.status = Status.RUNNING;
+        this.leaseOwner = owner;
+        this.leaseExpiresAt = leaseExpiresAt;
+        this.attempts++;
+    }
+
+    public boolean isLeasedBy(String owner) {
+        return status == Status.RUNNING && owner.equals(leaseOwner);
+    }
+
+    public void done() {
+        this.status = Status.DONE;
+        this.leaseOwner = null;
+        this.leaseExpiresAt = null;
+        this.activeProjectKey = null;
+    }
+
+    // Back to PENDING until runAfter, or FAILED for good when runAfter is null
+    public void failed(String error, OffsetDateTime runAfter) {
+        this.status = runAfter != null ? Status.PENDING : Status.FAILED;
+        this.lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        this.leaseOwner = null;
+        this.leaseExpiresAt = null;
+        if (runAfter != null) {
+            this.runAfter = runAfter;
+        } else {
+            this.activeProjectKey = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IngestionTask{" +
+                "id=" + id +
+                ", type=" + type +
+                ", status=" + status +
+                ", gitLabProjectId=" + gitLabProjectId +
+                ", attempts=" + attempts +
+                ", leaseOwner='" + leaseOwner + '\'' +
+                '}';
+    }
+}
@@ -2,19 +2,22 @@ package com.eris.gitlabanalyzer.model;
 
 import javax.persistence. *;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import static javax.persistence.GenerationType.SEQUENCE;
 
 @Entity(name = "Issue")
-@Table(name = "issue")
+@Table(
+        name = "issue",
+        uniqueConstraints={@UniqueConstraint(name = "issue_project_id_iid_key", columnNames={"project_id", "issue_iid"})}
+)
 public class Issue {
     @Id
     @SequenceGenerator(
             name = "issue_sequence",
             sequenceName = "issue_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = SEQUENCE,
@@ -65,7 +68,7 @@ public class Issue {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<IssueComment> issueComments = new ArrayList<>();
+    private Set<IssueComment> issueComments = new HashSet<>();
 
     @ManyToOne
     @JoinColumn(
@@ -131,10 +134,8 @@ public class Issue {
     }
 
     public void addIssueComment(IssueComment issueComment) {
-        if (!this.issueComments.contains(issueComment)) {
-            this.issueComments.add(issueComment);
-            issueComment.setIssue(this);
-        }
+        issueComment.setIssue(this);
+        Associations.addToInverse(this.issueComments, issueComment);
     }
 
     @Override
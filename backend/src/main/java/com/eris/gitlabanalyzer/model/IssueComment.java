@@ -5,13 +5,16 @@ import javax.persistence.*;
 import static javax.persistence.GenerationType.SEQUENCE;
 
 @Entity(name = "IssueComment")
-@Table(name = "issue_comment")
+@Table(
+        name = "issue_comment",
+        uniqueConstraints={@UniqueConstraint(name = "issue_comment_issue_id_iid_key", columnNames={"issue_id", "issue_comment_iid"})}
+)
 public class IssueComment {
     @Id
     @SequenceGenerator(
             name = "issue_comment_sequence",
             sequenceName = "issue_comment_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = SEQUENCE,
@@ -2,20 +2,24 @@ package com.eris.gitlabanalyzer.model;
 
 import javax.persistence.*;
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import static javax.persistence.GenerationType.SEQUENCE;
 
 @Entity(name = "MergeRequest")
-@Table(name = "merge_request")
+@Table(
+        name = "merge_request",
+        uniqueConstraints={@UniqueConstraint(name = "merge_request_project_id_iid_key", columnNames={"project_id", "merge_request_iid"})},
+        indexes = {@Index(name = "merge_request_project_id_created_at_idx", columnList = "project_id, created_at")}
+)
 public class MergeRequest {
 
     @Id
     @SequenceGenerator(
             name = "merge_request_sequence",
             sequenceName = "merge_request_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = SEQUENCE,
@@ -56,6 +60,12 @@ public class MergeRequest {
     )
     private String webUrl;
 
+    // sha of the newest commit when the merge request was saved, merged merge requests do not move any more
+    @Column(
+            name = "head_sha"
+    )
+    private String headSha;
+
     @ManyToOne
     @JoinColumn(
             name = "project_id",
@@ -76,7 +86,7 @@ public class MergeRequest {
             cascade = {CascadeType.PERSIST},
             fetch = FetchType.LAZY
     )
-    private List<Commit> commits = new ArrayList<>();
+    private Set<Commit> commits = new HashSet<>();
 
     @OneToMany(
             mappedBy = "mergeRequest",
@@ -84,7 +94,7 @@ public class MergeRequest {
             cascade = {CascadeType.PERSIST},
             fetch = FetchType.LAZY
     )
-    private List<MergeRequestComment> mergeRequestComments = new ArrayList<>();
+    private Set<MergeRequestComment> mergeRequestComments = new HashSet<>();
 
     public Long getId() {
         return id;
@@ -110,6 +120,14 @@ public class MergeRequest {
         return webUrl;
     }
 
+    public String getHeadSha() {
+        return headSha;
+    }
+
+    public void setHeadSha(String headSha) {
+        this.headSha = headSha;
+    }
+
     public Project getProject() {
         return project;
     }
@@ -140,17 +158,13 @@ public class MergeRequest {
     }
 
     public void addCommit(Commit commit) {
-        if (!this.commits.contains(commit)) {
-            this.commits.add(commit);
-            commit.setMergeRequest(this);
-        }
+        commit.setMergeRequest(this);
+        Associations.addToInverse(this.commits, commit);
     }
 
     public void addMergeRequestComment(MergeRequestComment mergeRequestComment) {
-        if (!this.mergeRequestComments.contains(mergeRequestComment)) {
-            this.mergeRequestComments.add(mergeRequestComment);
-            mergeRequestComment.setMergeRequest(this);
-        }
+        mergeRequestComment.setMergeRequest(this);
+        Associations.addToInverse(this.mergeRequestComments, mergeRequestComment);
     }
 
     @Override
@@ -5,13 +5,16 @@ import javax.persistence.*;
 import static javax.persistence.GenerationType.SEQUENCE;
 
 @Entity(name = "MergeRequestComment")
-@Table(name = "merge_request_comment")
+@Table(
+        name = "merge_request_comment",
+        uniqueConstraints={@UniqueConstraint(columnNames={"merge_request_comment_iid", "merge_request_id"})}
+)
 public class MergeRequestComment {
     @Id
     @SequenceGenerator(
             name = "merge_request_comment_sequence",
             sequenceName = "merge_request_comment_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = SEQUENCE,
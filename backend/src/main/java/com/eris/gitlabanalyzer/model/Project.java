@@ -1,23 +1,31 @@
 package com.eris.gitlabanalyzer.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import static javax.persistence.GenerationType.SEQUENCE;
 
 
 @Entity(name = "Project")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "project")
 @Table(
         name = "project",
-        uniqueConstraints={@UniqueConstraint(columnNames={"server_id", "project_id"})}
+        uniqueConstraints={
+                @UniqueConstraint(columnNames={"server_id", "project_id"}),
+                @UniqueConstraint(name = "project_server_id_gitlab_project_id_key", columnNames={"server_id", "gitlab_project_id"})
+        }
 )
 public class Project {
     @Id
     @SequenceGenerator(
             name = "project_sequence",
             sequenceName = "project_sequence",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(
             strategy = SEQUENCE,
@@ -60,7 +68,7 @@ public class Project {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<Commit> commits = new ArrayList<>();
+    private Set<Commit> commits = new HashSet<>();
 
 
     @OneToMany(
@@ -69,7 +77,7 @@ public class Project {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<MergeRequest> mergeRequests = new ArrayList<>();
+    private Set<MergeRequest> mergeRequests = new HashSet<>();
 
     @OneToMany(
             mappedBy = "project",
@@ -77,7 +85,7 @@ public class Project {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<Issue> issues = new ArrayList<>();
+    private Set<Issue> issues = new HashSet<>();
 
     @ManyToOne
     @JoinColumn(
@@ -90,7 +98,7 @@ public class Project {
     @ManyToMany(mappedBy = "projects",
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY)
-    private List<GitManagementUser> gitManagementUsers = new ArrayList<>();
+    private Set<GitManagementUser> gitManagementUsers = new HashSet<>();
 
     public Project() {
     }
@@ -123,15 +131,15 @@ public class Project {
         return webUrl;
     }
 
-    public List<Commit> getCommits() {
+    public Set<Commit> getCommits() {
         return commits;
     }
 
-    public List<MergeRequest> getMergeRequests() {
+    public Set<MergeRequest> getMergeRequests() {
         return mergeRequests;
     }
 
-    public List<Issue> getIssues() {
+    public Set<Issue> getIssues() {
         return issues;
     }
 
@@ -139,7 +147,7 @@ public class Project {
         return server;
     }
 
-    public List<GitManagementUser> getGitManagementUsers() {
+    public Set<GitManagementUser> getGitManagementUsers() {
         return gitManagementUsers;
     }
 
@@ -147,32 +155,26 @@ public class Project {
         this.server = server;
     }
 
+    // the member join table belongs to GitManagementUser.projects
     public void addGitManagementUser(GitManagementUser gitManagementUser) {
-        if (!this.gitManagementUsers.contains(gitManagementUser)) {
-            this.gitManagementUsers.add(gitManagementUser);
-            gitManagementUser.getProjects().add(this);
+        if (gitManagementUser.getProjects().add(this)) {
+            Associations.addToInverse(this.gitManagementUsers, gitManagementUser);
         }
     }
 
     public void addCommit(Commit commit) {
-        if (!this.commits.contains(commit)) {
-            this.commits.add(commit);
-            commit.setProject(this);
-        }
+        commit.setProject(this);
+        Associations.addToInverse(this.commits, commit);
     }
 
     public void addMergeRequest(MergeRequest mergeRequest) {
-        if (!this.mergeRequests.contains(mergeRequest)) {
-            this.mergeRequests.add(mergeRequest);
-            mergeRequest.setProject(this);
-        }
+        mergeRequest.setProject(this);
+        Associations.addToInverse(this.mergeRequests, mergeRequest);
     }
 
     public void addIssue(Issue issue) {
-        if (!this.issues.contains(issue)) {
-            this.issues.add(issue);
-            issue.setProject(this);
-        }
+        issue.setProject(this);
+        Associations.addToInverse(this.issues, issue);
     }
 
 
@@ -2,19 +2,17 @@ package com.eris.gitlabanalyzer.model;
 
 import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
 import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabFileChange;
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import reactor.core.publisher.Flux;
 
 import java.util.List;
 
 public class RawCommitData {
     private GitLabCommit gitLabCommit;
-    private Flux<GitLabFileChange> gitLabDiff;
+    private List<GitLabFileChange> gitLabDiff;
 
     public RawCommitData() {
     }
 
-    public RawCommitData(GitLabCommit gitLabCommit, Flux<GitLabFileChange> gitLabDiff) {
+    public RawCommitData(GitLabCommit gitLabCommit, List<GitLabFileChange> gitLabDiff) {
         this.gitLabCommit = gitLabCommit;
         this.gitLabDiff = gitLabDiff;
     }
@@ -23,13 +21,8 @@ public class RawCommitData {
         return gitLabCommit;
     }
 
-    @JsonIgnore
-    public GitLabCommit getFluxGitLabCommit() {
-        return gitLabCommit;
-    }
-
     public List<GitLabFileChange> getGitLabDiff() {
-        return gitLabDiff.collectList().block();
+        return gitLabDiff;
     }
 
 }
@@ -0,0 +1,44 @@
+package com.eris.gitlabanalyzer.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One line of the streamed timeline, either a merge request with its commits or a commit outside any merge request.
+// Merge requests arrive in the order they finish, the merge request iid and commit dates let the client sort them.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RawTimeLineEvent {
+    public static final String MERGE_REQUEST = "mergeRequest";
+    public static final String ORPHAN_COMMIT = "orphanCommit";
+
+    private String type;
+    private RawMergeRequestData mergeRequestData;
+    private RawCommitData orphanCommit;
+
+    public RawTimeLineEvent() {
+    }
+
+    private RawTimeLineEvent(String type, RawMergeRequestData mergeRequestData, RawCommitData orphanCommit) {
+        this.type = type;
+        this.mergeRequestData = mergeRequestData;
+        this.orphanCommit = orphanCommit;
+    }
+
+    public static RawTimeLineEvent mergeRequest(RawMergeRequestData mergeRequestData) {
+        return new RawTimeLineEvent(MERGE_REQUEST, mergeRequestData, null);
+    }
+
+    public static RawTimeLineEvent orphanCommit(RawCommitData orphanCommit) {
+        return new RawTimeLineEvent(ORPHAN_COMMIT, null, orphanCommit);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public RawMergeRequestData getMergeRequestData() {
+        return mergeRequestData;
+    }
+
+    public RawCommitData getOrphanCommit() {
+        return orphanCommit;
+    }
+}
@@ -1,7 +1,5 @@
 package com.eris.gitlabanalyzer.model;
 
-import reactor.core.publisher.Flux;
-
 import java.time.OffsetDateTime;
 import java.util.List;
 
@@ -10,8 +8,8 @@ public class RawTimeLineProjectData {
     private Long gitLabProjectId;
     private OffsetDateTime startDateTime;
     private OffsetDateTime endDateTime;
-    private Flux<RawMergeRequestData> mergeRequestData;
-    private Flux<RawCommitData> orphanCommits;
+    private List<RawMergeRequestData> mergeRequestData;
+    private List<RawCommitData> orphanCommits;
 
     public RawTimeLineProjectData() {
     }
@@ -19,8 +17,8 @@ public class RawTimeLineProjectData {
     public RawTimeLineProjectData(Long gitLabProjectId,
                                   OffsetDateTime startDateTime,
                                   OffsetDateTime endDateTime,
-                                  Flux<RawMergeRequestData> mergeRequestData,
-                                  Flux<RawCommitData> orphanCommits) {
+                                  List<RawMergeRequestData> mergeRequestData,
+                                  List<RawCommitData> orphanCommits) {
         this.gitLabProjectId = gitLabProjectId;
         this.startDateTime = startDateTime;
         this.endDateTime = endDateTime;
@@ -41,14 +39,11 @@ public class RawTimeLineProjectData {
     }
 
     public List<RawMergeRequestData> getMergeRequestData() {
-        return mergeRequestData.collectList().block();
+        return mergeRequestData;
     }
 
     public List<RawCommitData> getOrphanCommits() {
-        if (orphanCommits != null) {
-            return orphanCommits.collectList().block();
-        }
-        return null;
+        return orphanCommits;
     }
 }
 
@@ -36,6 +36,11 @@ public class ScoreProfile {
     @Column(name = "comments")
     private double commentsWeight;
 
+    // Raised on every save, nodes compare it to the version they compiled to pick up profiles edited elsewhere
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     @ElementCollection
     @MapKeyColumn(name="extension")
     @Column(name="weight")
@@ -1,13 +1,18 @@
 package com.eris.gitlabanalyzer.model;
 
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import static javax.persistence.GenerationType.SEQUENCE;
 
 @Entity(name = "Server")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "server")
 @Table(
         name = "server"
 )
@@ -38,7 +43,7 @@ public class Server {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<Project> projects = new ArrayList<>();
+    private Set<Project> projects = new HashSet<>();
 
     @OneToMany(
             mappedBy = "server",
@@ -46,7 +51,7 @@ public class Server {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<GitManagementUser> gitManagementUsers = new ArrayList<>();
+    private Set<GitManagementUser> gitManagementUsers = new HashSet<>();
 
     @OneToMany(
             mappedBy = "server",
@@ -54,7 +59,7 @@ public class Server {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<UserServer> userServers = new ArrayList<>();
+    private Set<UserServer> userServers = new HashSet<>();
 
     public Server() {
     }
@@ -71,29 +76,23 @@ public class Server {
         return serverUrl;
     }
 
-    public List<UserServer> getUserServers() {
+    public Set<UserServer> getUserServers() {
         return userServers;
     }
 
     public void addProject(Project project) {
-        if (!this.projects.contains(project)) {
-            this.projects.add(project);
-            project.setServer(this);
-        }
+        project.setServer(this);
+        Associations.addToInverse(this.projects, project);
     }
 
     public void addGitManagementUser(GitManagementUser gitManagementUser) {
-        if (!this.gitManagementUsers.contains(gitManagementUser)) {
-            this.gitManagementUsers.add(gitManagementUser);
-            gitManagementUser.setServer(this);
-        }
+        gitManagementUser.setServer(this);
+        Associations.addToInverse(this.gitManagementUsers, gitManagementUser);
     }
 
     public void addUserServer(UserServer userServer) {
-        if (!this.userServers.contains(userServer)) {
-            this.userServers.add(userServer);
-            userServer.setServer(this);
-        }
+        userServer.setServer(this);
+        Associations.addToInverse(this.userServers, userServer);
     }
 
 
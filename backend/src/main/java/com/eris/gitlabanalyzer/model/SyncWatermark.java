@@ -0,0 +1,197 @@
+package com.eris.gitlabanalyzer.model;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+
+// How far a project has been synced from GitLab, so the next sync only asks for what changed since
+@Entity(name = "SyncWatermark")
+@Table(
+        name = "sync_watermark",
+        uniqueConstraints={@UniqueConstraint(columnNames={"project_id"})}
+)
+public class SyncWatermark {
+    @Id
+    @SequenceGenerator(
+            name = "sync_watermark_sequence",
+            sequenceName = "sync_watermark_sequence",
+            allocationSize = 1
+    )
+    @GeneratedValue(
+            strategy = SEQUENCE,
+            generator = "sync_watermark_sequence"
+    )
+    @Column(
+            name = "sync_watermark_id"
+    )
+    private Long id;
+
+    @OneToOne
+    @JoinColumn(
+            name = "project_id",
+            nullable = false,
+            referencedColumnName = "project_id")
+    private Project project;
+
+    // Start of the date range the watermarks below are complete for, an earlier start needs a full sync
+    @Column(
+            name = "synced_from"
+    )
+    private OffsetDateTime syncedFrom;
+
+    // Newest push whose commits are all saved. Commit dates say nothing about when a commit was pushed,
+    // so commits are followed through the pushes after this one instead.
+    @Column(
+            name = "last_push_event_id"
+    )
+    private Long lastPushEventId;
+
+    // End of the date range the commits were last listed for, a later end lists them again
+    @Column(
+            name = "commits_listed_until"
+    )
+    private OffsetDateTime commitsListedUntil;
+
+    // Newest push when the commit listing commitCursor continues was started, it becomes lastPushEventId once
+    // that listing is complete
+    @Column(
+            name = "listing_push_event_id"
+    )
+    private Long listingPushEventId;
+
+    @Column(
+            name = "last_merge_request_updated_at"
+    )
+    private OffsetDateTime lastMergeRequestUpdatedAt;
+
+    @Column(
+            name = "last_note_id"
+    )
+    private Long lastNoteId;
+
+    // Next page cursor of a sync that did not finish and the date range it was for, so the same sync continues from the
+    // page it stopped on, also after a restart or on another node. It only moves on once a page has been saved.
+    @Column(
+            name = "commit_cursor",
+            length = 2048
+    )
+    private String commitCursor;
+
+    @Column(
+            name = "commit_cursor_range"
+    )
+    private String commitCursorRange;
+
+    @Column(
+            name = "merge_request_cursor",
+            length = 2048
+    )
+    private String mergeRequestCursor;
+
+    @Column(
+            name = "merge_request_cursor_range"
+    )
+    private String mergeRequestCursorRange;
+
+    public SyncWatermark() {
+    }
+
+    public SyncWatermark(Project project) {
+        this.project = project;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Project getProject() {
+        return project;
+    }
+
+    public OffsetDateTime getSyncedFrom() {
+        return syncedFrom;
+    }
+
+    public Long getLastPushEventId() {
+        return lastPushEventId;
+    }
+
+    public OffsetDateTime getCommitsListedUntil() {
+        return commitsListedUntil;
+    }
+
+    public Long getListingPushEventId() {
+        return listingPushEventId;
+    }
+
+    public OffsetDateTime getLastMergeRequestUpdatedAt() {
+        return lastMergeRequestUpdatedAt;
+    }
+
+    public Long getLastNoteId() {
+        return lastNoteId;
+    }
+
+    public void setSyncedFrom(OffsetDateTime syncedFrom) {
+        this.syncedFrom = syncedFrom;
+    }
+
+    public void setLastPushEventId(Long lastPushEventId) {
+        this.lastPushEventId = lastPushEventId;
+    }
+
+    public void setCommitsListedUntil(OffsetDateTime commitsListedUntil) {
+        this.commitsListedUntil = commitsListedUntil;
+    }
+
+    public void setListingPushEventId(Long listingPushEventId) {
+        this.listingPushEventId = listingPushEventId;
+    }
+
+    public void setLastMergeRequestUpdatedAt(OffsetDateTime lastMergeRequestUpdatedAt) {
+        this.lastMergeRequestUpdatedAt = lastMergeRequestUpdatedAt;
+    }
+
+    public void setLastNoteId(Long lastNoteId) {
+        this.lastNoteId = lastNoteId;
+    }
+
+    // The cursor to continue from when syncing range, or null to start over
+    public String getCommitCursor(String range) {
+        return range.equals(commitCursorRange) ? commitCursor : null;
+    }
+
+    public String getMergeRequestCursor(String range) {
+        return range.equals(mergeRequestCursorRange) ? mergeRequestCursor : null;
+    }
+
+    public void setCommitCursor(String range, String cursor) {
+        this.commitCursorRange = cursor != null ? range : null;
+        this.commitCursor = cursor;
+    }
+
+    public void setMergeRequestCursor(String range, String cursor) {
+        this.mergeRequestCursorRange = cursor != null ? range : null;
+        this.mergeRequestCursor = cursor;
+    }
+
+    // The watermarks only cover ranges starting at or after the one they were built from
+    public boolean covers(OffsetDateTime startDateTime) {
+        return syncedFrom != null && !startDateTime.isBefore(syncedFrom);
+    }
+
+    @Override
+    public String toString() {
+        return "SyncWatermark{" +
+                "id=" + id +
+                ", syncedFrom='" + syncedFrom + '\'' +
+                ", lastPushEventId=" + lastPushEventId +
+                ", commitsListedUntil='" + commitsListedUntil + '\'' +
+                ", lastMergeRequestUpdatedAt='" + lastMergeRequestUpdatedAt + '\'' +
+                ", lastNoteId=" + lastNoteId +
+                ", commitCursor='" + commitCursor + '\'' +
+                ", mergeRequestCursor='" + mergeRequestCursor + '\'' +
+                '}';
+    }
+}
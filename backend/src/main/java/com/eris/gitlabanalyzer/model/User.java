@@ -2,8 +2,8 @@ package com.eris.gitlabanalyzer.model;
 
 import javax.persistence.*;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import static javax.persistence.GenerationType.SEQUENCE;
 
@@ -33,7 +33,7 @@ public class User {
             cascade = {CascadeType.PERSIST, CascadeType.REMOVE},
             fetch = FetchType.LAZY
     )
-    private List<UserServer> userServers = new ArrayList<>();
+    private Set<UserServer> userServers = new HashSet<>();
 
 
     public User(){}
@@ -48,7 +48,7 @@ public class User {
 
     public String getUsername() {return username;}
 
-    public List<UserServer> getUserServers() {
+    public Set<UserServer> getUserServers() {
         return userServers;
     }
 
@@ -61,10 +61,8 @@ public class User {
     }
 
     public void addUserServer(UserServer userServer) {
-        if (!this.userServers.contains(userServer)) {
-            this.userServers.add(userServer);
-            userServer.setUser(this);
-        }
+        userServer.setUser(this);
+        Associations.addToInverse(this.userServers, userServer);
     }
 
     @Override
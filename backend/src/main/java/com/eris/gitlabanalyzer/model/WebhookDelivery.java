@@ -0,0 +1,100 @@
+package com.eris.gitlabanalyzer.model;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+
+// A webhook payload as GitLab posted it. It is saved before GitLab is answered, so a delivery that was accepted is
+// applied even if the node restarts first, and kept for a while after it is applied so retried deliveries are known.
+@Entity(name = "WebhookDelivery")
+@Table(
+        name = "webhook_delivery",
+        uniqueConstraints = {@UniqueConstraint(name = "webhook_delivery_delivery_uuid_key", columnNames = {"delivery_uuid"})},
+        indexes = {@Index(name = "webhook_delivery_applied_at_idx", columnList = "applied_at")}
+)
+public class WebhookDelivery {
+    @Id
+    @SequenceGenerator(
+            name = "webhook_delivery_sequence",
+            sequenceName = "webhook_delivery_sequence",
+            allocationSize = 1
+    )
+    @GeneratedValue(
+            strategy = SEQUENCE,
+            generator = "webhook_delivery_sequence"
+    )
+    @Column(
+            name = "webhook_delivery_id"
+    )
+    private Long id;
+
+    // X-Gitlab-Event-UUID, null when GitLab did not send one
+    @Column(
+            name = "delivery_uuid"
+    )
+    private String deliveryUuid;
+
+    // GitLab sends push events with at most 20 commits, far below this
+    @Column(
+            name = "payload",
+            nullable = false,
+            length = 1048576
+    )
+    private String payload;
+
+    @Column(
+            name = "received_at",
+            nullable = false
+    )
+    private OffsetDateTime receivedAt;
+
+    // null until the event is applied
+    @Column(
+            name = "applied_at"
+    )
+    private OffsetDateTime appliedAt;
+
+    public WebhookDelivery() {
+    }
+
+    public WebhookDelivery(String deliveryUuid, String payload, OffsetDateTime receivedAt) {
+        this.deliveryUuid = deliveryUuid;
+        this.payload = payload;
+        this.receivedAt = receivedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDeliveryUuid() {
+        return deliveryUuid;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public OffsetDateTime getReceivedAt() {
+        return receivedAt;
+    }
+
+    public OffsetDateTime getAppliedAt() {
+        return appliedAt;
+    }
+
+    public void setAppliedAt(OffsetDateTime appliedAt) {
+        this.appliedAt = appliedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "WebhookDelivery{" +
+                "id=" + id +
+                ", deliveryUuid='" + deliveryUuid + '\'' +
+                ", receivedAt='" + receivedAt + '\'' +
+                ", appliedAt='" + appliedAt + '\'' +
+                '}';
+    }
+}
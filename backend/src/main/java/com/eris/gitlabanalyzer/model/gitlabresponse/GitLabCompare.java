@@ -0,0 +1,16 @@
+package com.eris.gitlabanalyzer.model.gitlabresponse;
+
+import java.util.List;
+
+public class GitLabCompare {
+
+    private List<GitLabCommit> commits;
+
+    public GitLabCompare() {
+    }
+
+    public List<GitLabCommit> getCommits() {
+        return commits;
+    }
+
+}
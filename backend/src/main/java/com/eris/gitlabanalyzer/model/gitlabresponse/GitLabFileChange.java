@@ -15,4 +15,16 @@ public class GitLabFileChange {
     private Boolean renamedFile;
     @JsonProperty("deleted_file")
     private Boolean deletedFile;
+
+    public GitLabFileChange() {
+    }
+
+    public GitLabFileChange(String diff, String newPath, String oldPath, Boolean newFile, Boolean renamedFile, Boolean deletedFile) {
+        this.diff = diff;
+        this.newPath = newPath;
+        this.oldPath = oldPath;
+        this.newFile = newFile;
+        this.renamedFile = renamedFile;
+        this.deletedFile = deletedFile;
+    }
 }
@@ -16,11 +16,15 @@ public class GitLabMergeRequest {
     private String description;
     @JsonProperty("created_at")
     private OffsetDateTime createdAt;
+    @JsonProperty("updated_at")
+    private OffsetDateTime updatedAt;
     private Author author;
     private List<Author> assignees;
     private Author assignee;
     private List<Author> reviewers;
     private List<String> labels;
+    @JsonProperty("target_branch")
+    private String targetBranch;
     private String sha;
     @JsonProperty("merge_commit_sha")
     private String mergeCommitSha;
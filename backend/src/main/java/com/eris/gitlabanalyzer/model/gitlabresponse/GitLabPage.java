@@ -0,0 +1,24 @@
+package com.eris.gitlabanalyzer.model.gitlabresponse;
+
+import java.util.List;
+
+// One page of a paginated GitLab response. nextCursor is the url of the following page, or null on the last page
+public class GitLabPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public GitLabPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+}
@@ -9,4 +9,8 @@ public class GitLabProject {
     private String nameWithNamespace;
     @JsonProperty("web_url")
     private String webUrl;
+    @JsonProperty("http_url_to_repo")
+    private String httpUrlToRepo;
+    @JsonProperty("default_branch")
+    private String defaultBranch;
 }
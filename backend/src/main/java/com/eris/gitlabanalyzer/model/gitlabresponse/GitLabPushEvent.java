@@ -0,0 +1,12 @@
+package com.eris.gitlabanalyzer.model.gitlabresponse;
+
+import com.eris.gitlabanalyzer.model.types.PushData;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Event ids grow in the order GitLab records the events, so unlike commit dates they follow the order of the pushes
+@lombok.Getter
+public class GitLabPushEvent {
+    private Long id;
+    @JsonProperty("push_data")
+    private PushData pushData;
+}
@@ -0,0 +1,9 @@
+package com.eris.gitlabanalyzer.model.gitlabwebhook;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@lombok.Getter
+public class GitLabIssueEvent extends GitLabWebhookEvent {
+    @JsonProperty("object_attributes")
+    private GitLabWebhookAttributes objectAttributes;
+}
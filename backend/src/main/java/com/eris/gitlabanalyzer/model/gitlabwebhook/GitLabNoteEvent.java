@@ -0,0 +1,12 @@
+package com.eris.gitlabanalyzer.model.gitlabwebhook;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@lombok.Getter
+public class GitLabNoteEvent extends GitLabWebhookEvent {
+    @JsonProperty("object_attributes")
+    private GitLabWebhookAttributes objectAttributes;
+    @JsonProperty("merge_request")
+    private GitLabWebhookAttributes mergeRequest;
+    private GitLabWebhookAttributes issue;
+}
@@ -0,0 +1,20 @@
+package com.eris.gitlabanalyzer.model.gitlabwebhook;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@lombok.Getter
+public class GitLabPushCommit {
+    @JsonProperty("id")
+    private String sha;
+    private String title;
+    private String message;
+    private String timestamp;
+    private String url;
+    private Author author;
+
+    @lombok.Getter
+    public static class Author {
+        private String name;
+        private String email;
+    }
+}
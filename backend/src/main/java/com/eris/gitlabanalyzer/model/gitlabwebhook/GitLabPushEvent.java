@@ -0,0 +1,9 @@
+package com.eris.gitlabanalyzer.model.gitlabwebhook;
+
+import java.util.List;
+
+@lombok.Getter
+public class GitLabPushEvent extends GitLabWebhookEvent {
+    private String ref;
+    private List<GitLabPushCommit> commits;
+}
@@ -0,0 +1,27 @@
+package com.eris.gitlabanalyzer.model.gitlabwebhook;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// object_attributes of merge request, issue and note events, and the merge_request / issue a note belongs to.
+// Timestamps are kept as sent, older GitLab versions use "2021-02-01 10:00:00 UTC" instead of ISO 8601.
+@lombok.Getter
+public class GitLabWebhookAttributes {
+    private Long id;
+    private Long iid;
+    @JsonProperty("author_id")
+    private Long authorId;
+    private String title;
+    private String note;
+    @JsonProperty("noteable_type")
+    private String noteableType;
+    @JsonProperty("created_at")
+    private String createdAt;
+    @JsonProperty("updated_at")
+    private String updatedAt;
+    private String url;
+    private String state;
+    private String action;
+    // merge requests only
+    @JsonProperty("last_commit")
+    private GitLabPushCommit lastCommit;
+}
@@ -0,0 +1,28 @@
+package com.eris.gitlabanalyzer.model.gitlabwebhook;
+
+import com.eris.gitlabanalyzer.model.types.Author;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+// Common part of the payloads GitLab posts to webhooks, object_kind picks the event class.
+// Kinds without a class of their own (pipeline, job, ...) are read as this class and ignored.
+@lombok.Getter
+@JsonTypeInfo(
+        use = JsonTypeInfo.Id.NAME,
+        property = "object_kind",
+        visible = true,
+        defaultImpl = GitLabWebhookEvent.class
+)
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = GitLabPushEvent.class, name = "push"),
+        @JsonSubTypes.Type(value = GitLabMergeRequestEvent.class, name = "merge_request"),
+        @JsonSubTypes.Type(value = GitLabNoteEvent.class, name = "note"),
+        @JsonSubTypes.Type(value = GitLabIssueEvent.class, name = "issue")
+})
+public class GitLabWebhookEvent {
+    @JsonProperty("object_kind")
+    private String objectKind;
+    private Author user;
+    private GitLabWebhookProject project;
+}
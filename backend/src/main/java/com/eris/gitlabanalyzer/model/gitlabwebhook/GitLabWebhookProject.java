@@ -0,0 +1,13 @@
+package com.eris.gitlabanalyzer.model.gitlabwebhook;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@lombok.Getter
+public class GitLabWebhookProject {
+    private Long id;
+    private String name;
+    @JsonProperty("web_url")
+    private String webUrl;
+    @JsonProperty("default_branch")
+    private String defaultBranch;
+}
@@ -0,0 +1,10 @@
+package com.eris.gitlabanalyzer.model.projection;
+
+// Read-only view of a project member for listings
+public interface MemberSummary {
+    Long getId();
+
+    String getUsername();
+
+    String getName();
+}
@@ -0,0 +1,18 @@
+package com.eris.gitlabanalyzer.model.projection;
+
+import java.time.OffsetDateTime;
+
+// Read-only view of a saved merge request for listings, without its commits and notes
+public interface MergeRequestSummary {
+    Long getId();
+
+    Long getIid();
+
+    String getTitle();
+
+    String getAuthorUsername();
+
+    OffsetDateTime getCreatedAt();
+
+    String getWebUrl();
+}
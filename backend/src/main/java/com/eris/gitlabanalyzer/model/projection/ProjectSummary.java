@@ -0,0 +1,15 @@
+package com.eris.gitlabanalyzer.model.projection;
+
+// Read-only view of a saved project for listings, selected column by column so the
+// commits, merge requests, issues and members of the project are never loaded
+public interface ProjectSummary {
+    Long getId();
+
+    Long getGitLabProjectId();
+
+    String getName();
+
+    String getNameWithNamespace();
+
+    String getWebUrl();
+}
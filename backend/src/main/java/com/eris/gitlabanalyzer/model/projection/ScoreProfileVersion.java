@@ -0,0 +1,8 @@
+package com.eris.gitlabanalyzer.model.projection;
+
+// Saved version of a score profile, polled to notice profiles edited by another backend node
+public interface ScoreProfileVersion {
+    Long getId();
+
+    long getVersion();
+}
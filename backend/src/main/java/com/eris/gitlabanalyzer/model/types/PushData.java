@@ -0,0 +1,18 @@
+package com.eris.gitlabanalyzer.model.types;
+
+import com.fasterxml.jackson.annotation.*;
+
+@lombok.Getter
+public class PushData {
+    // null when the push created the branch
+    @JsonProperty("commit_from")
+    private String commitFrom;
+    // null when the push deleted the branch
+    @JsonProperty("commit_to")
+    private String commitTo;
+    @JsonProperty("commit_count")
+    private int commitCount;
+    private String ref;
+    @JsonProperty("ref_type")
+    private String refType;
+}
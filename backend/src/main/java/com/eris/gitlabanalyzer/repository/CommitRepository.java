@@ -0,0 +1,18 @@
+package com.eris.gitlabanalyzer.repository;
+
+import com.eris.gitlabanalyzer.model.Commit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Set;
+
+@Repository
+public interface CommitRepository extends JpaRepository<Commit, Long> {
+    @Query("select c from Commit c where c.sha = ?1 and c.project.id = ?2")
+    Commit findByShaAndProjectId(String sha, Long projectId);
+
+    @Query("select c.sha from Commit c where c.project.id = ?1 and c.sha in ?2")
+    Set<String> findShasByProjectIdAndShaIn(Long projectId, Collection<String> shas);
+}
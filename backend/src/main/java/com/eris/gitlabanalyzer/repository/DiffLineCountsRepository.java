@@ -0,0 +1,20 @@
+package com.eris.gitlabanalyzer.repository;
+
+import com.eris.gitlabanalyzer.model.DiffLineCounts;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DiffLineCountsRepository extends JpaRepository<DiffLineCounts, Long> {
+    @Query("select distinct d from DiffLineCounts d left join fetch d.files where d.serverUrl = ?1 and d.gitLabProjectId = ?2 " +
+            "and d.sha in ?3 and d.mergeRequestIid = " + DiffLineCounts.COMMIT)
+    List<DiffLineCounts> findCommitLineCounts(String serverUrl, Long gitLabProjectId, Collection<String> shas);
+
+    @Query("select distinct d from DiffLineCounts d left join fetch d.files where d.serverUrl = ?1 and d.gitLabProjectId = ?2 " +
+            "and d.sha in ?3 and d.mergeRequestIid <> " + DiffLineCounts.COMMIT)
+    List<DiffLineCounts> findMergeRequestLineCounts(String serverUrl, Long gitLabProjectId, Collection<String> headShas);
+}
@@ -1,9 +1,14 @@
 package com.eris.gitlabanalyzer.repository;
 import com.eris.gitlabanalyzer.model.GitManagementUser;
+import com.eris.gitlabanalyzer.model.projection.MemberSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 @Repository
@@ -11,9 +16,24 @@ public interface GitManagementUserRepository extends JpaRepository<GitManagement
     @Query("select g from GitManagementUser g inner join g.projects project where project.id = ?1")
     List<GitManagementUser> findByProjectId(Long projectId);
 
+    @Query(value = "select g.id as id, g.username as username, g.name as name from GitManagementUser g inner join g.projects project where project.id = ?1",
+            countQuery = "select count(g) from GitManagementUser g inner join g.projects project where project.id = ?1")
+    Page<MemberSummary> findSummariesByProjectId(Long projectId, Pageable pageable);
+
     @Query("select g from GitManagementUser g inner join g.projects project where g.username = ?1 and project.id = ?2")
     GitManagementUser findByUsernameAndProjectId(String username, Long projectId);
 
-    @Query("select g from GitManagementUser g where g.username = ?1")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("select g from GitManagementUser g where g.username = ?1 and g.server.serverUrl = ?2")
     GitManagementUser findByUserNameAndServerUrl(String username, String serverUrl);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("select g from GitManagementUser g where g.gitLabUserId = ?1 and g.server.serverUrl = ?2")
+    GitManagementUser findByGitLabUserIdAndServerUrl(Long gitLabUserId, String serverUrl);
+
+    @Query("select g from GitManagementUser g where g.server.id = ?1")
+    List<GitManagementUser> findByServerId(Long serverId);
+
+    @Query("select g.username from GitManagementUser g inner join g.projects project where project.id = ?1")
+    List<String> findUsernamesByProjectId(Long projectId);
 }
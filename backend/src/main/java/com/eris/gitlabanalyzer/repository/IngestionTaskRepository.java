@@ -0,0 +1,45 @@
+package com.eris.gitlabanalyzer.repository;
+
+import com.eris.gitlabanalyzer.model.IngestionTask;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IngestionTaskRepository extends JpaRepository<IngestionTask, Long> {
+    // Pending tasks that are due and running tasks whose lease ran out. A lock timeout of -2 is Hibernate's
+    // SKIP LOCKED, so nodes polling at the same time each get a different task instead of waiting on each other.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select t from IngestionTask t " +
+            "where (t.status = :pending and t.runAfter <= :now) or (t.status = :running and t.leaseExpiresAt < :now) " +
+            "order by t.runAfter")
+    List<IngestionTask> findLeasable(@Param("now") OffsetDateTime now, @Param("pending") IngestionTask.Status pending,
+                                     @Param("running") IngestionTask.Status running, Pageable pageable);
+
+    default List<IngestionTask> findLeasable(OffsetDateTime now, int limit) {
+        return findLeasable(now, IngestionTask.Status.PENDING, IngestionTask.Status.RUNNING, PageRequest.of(0, limit));
+    }
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from IngestionTask t where t.id = ?1")
+    IngestionTask findByIdForUpdate(Long id);
+
+    @Modifying
+    @Query("update IngestionTask t set t.leaseExpiresAt = ?3 " +
+            "where t.id in ?1 and t.leaseOwner = ?2 and t.status = ?4")
+    int extendLeases(Collection<Long> ids, String owner, OffsetDateTime leaseExpiresAt, IngestionTask.Status running);
+
+    List<IngestionTask> findByStatus(IngestionTask.Status status);
+
+    // The unfinished task of a project
+    IngestionTask findByActiveProjectKey(String activeProjectKey);
+}
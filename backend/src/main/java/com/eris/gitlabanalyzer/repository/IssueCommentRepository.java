@@ -0,0 +1,12 @@
+package com.eris.gitlabanalyzer.repository;
+
+import com.eris.gitlabanalyzer.model.IssueComment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IssueCommentRepository extends JpaRepository<IssueComment, Long> {
+    @Query("select c from IssueComment c where c.iid = ?1 and c.issue.id = ?2")
+    IssueComment findByIidAndIssueId(Long iid, Long issueId);
+}
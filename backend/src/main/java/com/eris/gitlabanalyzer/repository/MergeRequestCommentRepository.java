@@ -0,0 +1,17 @@
+package com.eris.gitlabanalyzer.repository;
+
+import com.eris.gitlabanalyzer.model.MergeRequestComment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MergeRequestCommentRepository extends JpaRepository<MergeRequestComment, Long> {
+    @Query("select c from MergeRequestComment c where c.iid = ?1 and c.mergeRequest.id = ?2")
+    MergeRequestComment findByIidAndMergeRequestId(Long iid, Long mergeRequestId);
+
+    @Query("select c.iid from MergeRequestComment c where c.mergeRequest.id = ?1")
+    List<Long> findIidsByMergeRequestId(Long mergeRequestId);
+}
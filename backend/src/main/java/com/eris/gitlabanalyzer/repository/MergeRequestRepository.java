@@ -1,12 +1,26 @@
 package com.eris.gitlabanalyzer.repository;
 
 import com.eris.gitlabanalyzer.model.MergeRequest;
+import com.eris.gitlabanalyzer.model.projection.MergeRequestSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface MergeRequestRepository extends JpaRepository<MergeRequest, Long> {
     @Query("select m from MergeRequest m where m.iid = ?1 and m.project.id = ?2")
     MergeRequest findByIidAndProjectId(Long iid, Long projectId);
+
+    @Query("select m from MergeRequest m where m.project.id = ?1 and m.iid in ?2")
+    List<MergeRequest> findByProjectIdAndIidIn(Long projectId, Collection<Long> iids);
+
+    @Query(value = "select m.id as id, m.iid as iid, m.title as title, m.authorUsername as authorUsername, " +
+            "m.createdAt as createdAt, m.webUrl as webUrl from MergeRequest m where m.project.id = ?1",
+            countQuery = "select count(m) from MergeRequest m where m.project.id = ?1")
+    Page<MergeRequestSummary> findSummariesByProjectId(Long projectId, Pageable pageable);
 }
@@ -1,14 +1,23 @@
 package com.eris.gitlabanalyzer.repository;
 import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.model.projection.ProjectSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
 
 
 @Repository
 public interface ProjectRepository extends JpaRepository<Project, Long> {
     // Multiple servers may have the same project ID so both values are required to perform unique queries
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Query("select p from Project p where p.gitLabProjectId = ?1 and p.server.serverUrl = ?2")
     Project findByGitlabProjectIdAndServerUrl(Long gitLabProjectId, String serverUrl);
+
+    Page<ProjectSummary> findAllProjectedBy(Pageable pageable);
 }
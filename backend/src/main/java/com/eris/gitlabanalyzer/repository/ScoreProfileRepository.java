@@ -1,10 +1,24 @@
 package com.eris.gitlabanalyzer.repository;
 
 import com.eris.gitlabanalyzer.model.ScoreProfile;
+import com.eris.gitlabanalyzer.model.projection.ScoreProfileVersion;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ScoreProfileRepository extends JpaRepository<ScoreProfile, Long> {
+    // Profiles with their extension weights in one query, ready to be compiled outside of a transaction
+    @EntityGraph(attributePaths = "extensionWeights")
+    List<ScoreProfile> findAllWithExtensionWeightsBy();
+
+    @EntityGraph(attributePaths = "extensionWeights")
+    Optional<ScoreProfile> findWithExtensionWeightsById(Long id);
 
+    @Query("select p.id as id, p.version as version from ScoreProfile p")
+    List<ScoreProfileVersion> findAllVersions();
 }
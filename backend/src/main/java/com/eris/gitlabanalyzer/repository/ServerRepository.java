@@ -3,8 +3,13 @@ package com.eris.gitlabanalyzer.repository;
 import com.eris.gitlabanalyzer.model.Server;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
 
 public interface ServerRepository extends JpaRepository<Server, Long> {
+    // cached, it runs on nearly every service call
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Query("select s from Server s join s.userServers us where s.serverUrl=?1 and us.accessToken=?2")
     Server findByServerUrlAndAccessToken(String serverUrl, String accessToken);
 }
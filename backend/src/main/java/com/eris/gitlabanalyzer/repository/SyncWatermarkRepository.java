@@ -0,0 +1,12 @@
+package com.eris.gitlabanalyzer.repository;
+
+import com.eris.gitlabanalyzer.model.SyncWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SyncWatermarkRepository extends JpaRepository<SyncWatermark, Long> {
+    @Query("select s from SyncWatermark s where s.project.id = ?1")
+    SyncWatermark findByProjectId(Long projectId);
+}
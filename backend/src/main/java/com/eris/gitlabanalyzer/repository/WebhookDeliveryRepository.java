@@ -0,0 +1,36 @@
+package com.eris.gitlabanalyzer.repository;
+
+import com.eris.gitlabanalyzer.model.WebhookDelivery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Repository
+public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, Long> {
+    boolean existsByDeliveryUuid(String deliveryUuid);
+
+    // Oldest first, so events are applied in the order they arrived. The rows stay locked until the transaction ends and
+    // a lock timeout of -2 is Hibernate's SKIP LOCKED, so another node applying deliveries at the same time skips them.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select d from WebhookDelivery d where d.appliedAt is null order by d.id")
+    List<WebhookDelivery> findUnapplied(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update WebhookDelivery d set d.appliedAt = ?2 where d.id = ?1")
+    int markApplied(Long id, OffsetDateTime appliedAt);
+
+    long countByAppliedAtIsNull();
+
+    @Transactional
+    @Modifying
+    @Query("delete from WebhookDelivery d where d.appliedAt < ?1")
+    int deleteAppliedBefore(OffsetDateTime appliedBefore);
+}
@@ -0,0 +1,205 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.AnalysisJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Runs project analyses in the background so a client can submit one, follow its progress and fetch the result later.
+// A finished analysis is kept for a while and handed out again to identical requests, as is one still running.
+// Timelines and score totals run as jobs, scores of a single commit or merge request are quick enough to stay synchronous.
+@Service
+public class AnalysisJobService {
+    private static final Logger log = LoggerFactory.getLogger(AnalysisJobService.class);
+    private static final Duration progressInterval = Duration.ofMillis(500);
+
+    private final ProjectService projectService;
+    private final ScoreService scoreService;
+    private final ScoreProfileRegistry scoreProfileRegistry;
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+    // server, project and date range of a job to its id
+    private final Map<String, String> jobIds = new ConcurrentHashMap<>();
+
+    @Value("${gitlab.SERVER_URL}")
+    String serverUrl;
+
+    @Value("${gitlab.JOB_RESULT_TTL_MINUTES:60}")
+    long resultTtlMinutes;
+
+    @Value("${gitlab.MAX_JOBS:100}")
+    int maxJobs;
+
+    // Bytes fetched from GitLab by the finished jobs kept, a rough bound on the heap their results take
+    @Value("${gitlab.JOB_RESULTS_MAX_BYTES:268435456}")
+    long maxResultBytes;
+
+    private Disposable expiry;
+
+    public AnalysisJobService(ProjectService projectService, ScoreService scoreService, ScoreProfileRegistry scoreProfileRegistry) {
+        this.projectService = projectService;
+        this.scoreService = scoreService;
+        this.scoreProfileRegistry = scoreProfileRegistry;
+    }
+
+    // Results also expire while no new jobs are submitted
+    @PostConstruct
+    public void scheduleExpiry() {
+        expiry = Schedulers.parallel().schedulePeriodically(this::removeExpiredJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    public synchronized AnalysisJob submit(Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        var key = key(AnalysisJob.Type.TIMELINE, gitLabProjectId, startDateTime, endDateTime);
+        var reusable = findReusable(key);
+        if (reusable.isPresent()) {
+            return reusable.get();
+        }
+
+        var job = register(key, new AnalysisJob(UUID.randomUUID().toString(), gitLabProjectId, startDateTime, endDateTime));
+        run(job, projectService.fetchTimeLineProjectData(gitLabProjectId, startDateTime, endDateTime, progress(job)), job::succeeded);
+        return job;
+    }
+
+    // The total score of the merge requests or commits GitLab lists for the range. A job scored with a profile is only
+    // handed out again until the profile is edited.
+    public synchronized AnalysisJob submitScore(AnalysisJob.Type type, Long gitLabProjectId, OffsetDateTime startDateTime,
+                                                OffsetDateTime endDateTime, Long scoreProfileId) {
+        if (type == AnalysisJob.Type.TIMELINE) {
+            throw new IllegalArgumentException("Not a score job: " + type);
+        }
+        // an unknown profile is refused before the job is created
+        var scoreProfile = scoreProfileRegistry.get(scoreProfileId);
+        var key = key(type, gitLabProjectId, startDateTime, endDateTime) + "|" + scoreProfile.getId() + "|" + scoreProfile.getVersion();
+        var reusable = findReusable(key);
+        if (reusable.isPresent()) {
+            return reusable.get();
+        }
+
+        var job = register(key, new AnalysisJob(UUID.randomUUID().toString(), type, gitLabProjectId, startDateTime, endDateTime, scoreProfileId));
+        var progress = progress(job);
+        // ScoreService blocks on GitLab, so it runs on a thread that may block. Disposing the job interrupts it.
+        var score = Mono.fromCallable(() -> type == AnalysisJob.Type.MERGE_REQUEST_SCORE
+                ? scoreService.getTotalMergeDiffScore(gitLabProjectId, startDateTime, endDateTime, scoreProfileId, progress)
+                : scoreService.getTotalCommitDiffScore(gitLabProjectId, startDateTime, endDateTime, scoreProfileId, progress))
+                .subscribeOn(Schedulers.boundedElastic());
+        run(job, score, job::scored);
+        return job;
+    }
+
+    private String key(AnalysisJob.Type type, Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        return String.join("|", type.name(), serverUrl, gitLabProjectId.toString(),
+                startDateTime.toInstant().toString(), endDateTime.toInstant().toString());
+    }
+
+    private Optional<AnalysisJob> findReusable(String key) {
+        removeExpiredJobs();
+        return Optional.ofNullable(jobIds.get(key))
+                .map(jobs::get)
+                .filter(job -> job.getStatus() != AnalysisJob.Status.FAILED && job.getStatus() != AnalysisJob.Status.CANCELLED);
+    }
+
+    private AnalysisJob register(String key, AnalysisJob job) {
+        jobs.put(job.getId(), job);
+        jobIds.put(key, job.getId());
+        return job;
+    }
+
+    private static TimeLineProgressListener progress(AnalysisJob job) {
+        return new TimeLineProgressListener() {
+            @Override
+            public void mergeRequestsFound(int count) {
+                job.getMergeRequestsTotalCounter().addAndGet(count);
+            }
+
+            @Override
+            public void mergeRequestDone() {
+                job.getMergeRequestsDoneCounter().incrementAndGet();
+            }
+
+            @Override
+            public void commitsFound(int count) {
+                job.getCommitsTotalCounter().addAndGet(count);
+            }
+
+            @Override
+            public void commitDone() {
+                job.getCommitsDoneCounter().incrementAndGet();
+            }
+        };
+    }
+
+    private <T> void run(AnalysisJob job, Mono<T> analysis, Consumer<T> onResult) {
+        job.getSubscription().update(analysis
+                .doOnSubscribe(subscription -> job.started())
+                .contextWrite(Context.of(GitLabService.FETCHED_BYTES, job.getBytesFetchedCounter()))
+                .subscribe(onResult, error -> {
+                    log.warn("Analysis job {} of project {} failed", job.getId(), job.getGitLabProjectId(), error);
+                    job.failed(error.getMessage());
+                }));
+    }
+
+    public Optional<AnalysisJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    // Disposing the subscription cancels the GitLab requests still running for the job
+    public synchronized Optional<AnalysisJob> cancel(String id) {
+        var job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (!job.isFinished()) {
+            job.cancelled();
+            job.getSubscription().dispose();
+        }
+        return Optional.of(job);
+    }
+
+    // The job now and then every progressInterval until it has finished
+    public Flux<AnalysisJob> watch(AnalysisJob job) {
+        return Flux.interval(Duration.ZERO, progressInterval)
+                .map(tick -> job)
+                .takeUntil(AnalysisJob::isFinished);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiry.dispose();
+        jobs.values().forEach(job -> cancel(job.getId()));
+    }
+
+    public synchronized void removeExpiredJobs() {
+        var expiry = OffsetDateTime.now().minusMinutes(resultTtlMinutes);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(expiry));
+
+        // oldest finished jobs go first when too many are kept, running ones are never dropped
+        var finished = jobs.values().stream()
+                .filter(AnalysisJob::isFinished)
+                .sorted(Comparator.comparing(AnalysisJob::getFinishedAt))
+                .iterator();
+        long resultBytes = jobs.values().stream().filter(AnalysisJob::isFinished).mapToLong(AnalysisJob::getBytesFetched).sum();
+        while ((jobs.size() >= maxJobs || resultBytes > maxResultBytes) && finished.hasNext()) {
+            var job = finished.next();
+            jobs.remove(job.getId());
+            resultBytes -= job.getBytesFetched();
+        }
+        jobIds.values().removeIf(id -> !jobs.containsKey(id));
+    }
+}
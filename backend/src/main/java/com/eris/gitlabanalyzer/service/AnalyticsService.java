@@ -11,6 +11,7 @@ public class AnalyticsService {
     private final ProjectService projectService;
     private final GitManagementUserService gitManagementUserService;
     private final MergeRequestService mergeRequestService;
+    private final CommitService commitService;
 
     @Value("${gitlab.SERVER_URL}")
     String serverUrl;
@@ -18,10 +19,11 @@ public class AnalyticsService {
     @Value("${gitlab.ACCESS_TOKEN}")
     String accessToken;
 
-    public AnalyticsService(ProjectService projectService, GitManagementUserService gitManagementUserService, MergeRequestService mergeRequestService) {
+    public AnalyticsService(ProjectService projectService, GitManagementUserService gitManagementUserService, MergeRequestService mergeRequestService, CommitService commitService) {
         this.projectService = projectService;
         this.gitManagementUserService = gitManagementUserService;
         this.mergeRequestService = mergeRequestService;
+        this.commitService = commitService;
     }
 
     public void saveAllFromGitlab(List<Long> gitLabProjectIdList, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
@@ -29,6 +31,7 @@ public class AnalyticsService {
             projectService.saveProjectInfo(gitLabProjectId);
             gitManagementUserService.saveGitManagementUserInfo(gitLabProjectId);
             mergeRequestService.saveMergeRequestInfo(gitLabProjectId, startDateTime, endDateTime);
+            commitService.saveCommitInfo(gitLabProjectId, startDateTime, endDateTime);
         }
     }
 }
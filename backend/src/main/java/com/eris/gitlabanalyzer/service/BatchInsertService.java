@@ -0,0 +1,36 @@
+package com.eris.gitlabanalyzer.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+
+// Saves many new entities in one transaction. The ids come from pooled sequences and the inserts are sent
+// in JDBC batches, the persistence context is flushed and cleared every batch so it does not keep growing.
+@Service
+public class BatchInsertService {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    int batchSize;
+
+    // The entities are detached afterwards, they still have their ids and can be referenced by later inserts
+    @Transactional
+    public <T> int insertAll(Collection<T> entities) {
+        int count = 0;
+        for (T entity : entities) {
+            entityManager.persist(entity);
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return count;
+    }
+}
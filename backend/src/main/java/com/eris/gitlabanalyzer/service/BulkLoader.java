@@ -0,0 +1,21 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.MergeRequest;
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabMergeRequestNote;
+
+import java.util.List;
+import java.util.Map;
+
+// Saves decoded GitLab commits and notes in bulk. Rows that are already saved are left alone and rows whose author
+// the identity index does not know are skipped, both return the number of rows actually added.
+public interface BulkLoader {
+    int loadCommits(Project project, IdentityIndex identities, List<GitLabCommit> commits);
+
+    int loadMergeRequestNotes(Project project, IdentityIndex identities, Map<MergeRequest, List<GitLabMergeRequestNote>> notes);
+
+    static String noteUrl(MergeRequest mergeRequest, GitLabMergeRequestNote note) {
+        return mergeRequest.getWebUrl() + "#note_" + note.getId();
+    }
+}
@@ -1,8 +1,11 @@
 package com.eris.gitlabanalyzer.service;
 
-import com.eris.gitlabanalyzer.model.Commit;
-import com.eris.gitlabanalyzer.model.GitManagementUser;
 import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.model.SyncWatermark;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabPushEvent;
+import com.eris.gitlabanalyzer.model.types.PushData;
+import com.eris.gitlabanalyzer.repository.CommitRepository;
 import com.eris.gitlabanalyzer.repository.GitManagementUserRepository;
 import com.eris.gitlabanalyzer.repository.MergeRequestRepository;
 import com.eris.gitlabanalyzer.repository.ProjectRepository;
@@ -10,6 +13,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 
 @Service
 public class CommitService {
@@ -18,6 +24,10 @@ public class CommitService {
     MergeRequestRepository mergeRequestRepository;
     ProjectRepository projectRepository;
     GitManagementUserRepository gitManagementUserRepository;
+    CommitRepository commitRepository;
+    SyncWatermarkService syncWatermarkService;
+    BulkLoader bulkLoader;
+    IdentityIndexService identityIndexService;
 
     @Value("${gitlab.SERVER_URL}")
     String serverUrl;
@@ -25,10 +35,16 @@ public class CommitService {
     @Value("${gitlab.ACCESS_TOKEN}")
     String accessToken;
 
-    public CommitService(GitLabService gitLabService, ProjectRepository projectRepository, GitManagementUserRepository gitManagementUserRepository) {
+    public CommitService(GitLabService gitLabService, ProjectRepository projectRepository, GitManagementUserRepository gitManagementUserRepository,
+                         CommitRepository commitRepository, SyncWatermarkService syncWatermarkService, BulkLoader bulkLoader,
+                         IdentityIndexService identityIndexService) {
         this.gitLabService = gitLabService;
         this.projectRepository = projectRepository;
         this.gitManagementUserRepository = gitManagementUserRepository;
+        this.commitRepository = commitRepository;
+        this.syncWatermarkService = syncWatermarkService;
+        this.bulkLoader = bulkLoader;
+        this.identityIndexService = identityIndexService;
     }
 
     public String splitEmail(String email) {
@@ -38,31 +54,97 @@ public class CommitService {
 
     public void saveCommitInfo(Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
         Project project = projectRepository.findByGitlabProjectIdAndServerUrl(gitLabProjectId, serverUrl);
+        var watermark = syncWatermarkService.getWatermark(project, startDateTime);
+        var identities = identityIndexService.load(project);
 
-        var gitLabCommits = gitLabService.getCommits(gitLabProjectId, startDateTime, endDateTime);
-        var gitLabCommitList = gitLabCommits.collectList().block();
-
-        if (gitLabCommitList != null && !gitLabCommitList.isEmpty()) {
-            gitLabCommitList.forEach(gitLabCommit -> {
-                        String authorName = gitLabCommit.getAuthorEmail();
-                        GitManagementUser gitManagementUser = gitManagementUserRepository.findByUserNameAndServerUrl(authorName, serverUrl);
-                        Commit commit = new Commit(
-                                gitLabCommit.getSha(),
-                                gitLabCommit.getTitle(),
-                                authorName,
-                                gitLabCommit.getAuthorEmail(),
-                                authorName,
-                                gitLabCommit.getAuthorEmail(),
-                                gitLabCommit.getCreatedAt(),
-                                gitLabCommit.getWebUrl(),
-                                project,
-                                gitManagementUser
-                        );
-                        project.addCommit(commit);
-                        gitManagementUser.addCommit(commit);
-                    }
-            );
+        // after the first sync only the commits of the pushes since then are fetched
+        if (watermark.getLastPushEventId() == null || endDateTime.isAfter(watermark.getCommitsListedUntil())) {
+            watermark = listCommits(project, watermark, identities, startDateTime, endDateTime);
+        } else {
+            watermark.setLastPushEventId(followPushes(project, identities, watermark.getLastPushEventId(), startDateTime, endDateTime));
         }
+        syncWatermarkService.save(watermark);
+    }
+
+    // Saves every commit in the range. The watermark only moves on over commits that were saved, a commit skipped for
+    // an author we do not know yet stops the cursor and keeps the push watermark unset, so it is listed again next time.
+    private SyncWatermark listCommits(Project project, SyncWatermark watermark, IdentityIndex identities,
+                                      OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        var range = SyncWatermarkService.range(startDateTime, endDateTime);
+        var cursor = watermark.getCommitCursor(range);
+        if (cursor == null) {
+            // read before listing, so pushes made while the listing runs are followed by the next sync
+            watermark.setListingPushEventId(gitLabService.getPushEvents(project.getGitLabProjectId())
+                    .next()
+                    .map(GitLabPushEvent::getId)
+                    .defaultIfEmpty(0L)
+                    .block());
+        }
+
+        boolean allSaved = true;
+        for (var page : gitLabService.getCommitPages(project.getGitLabProjectId(), startDateTime, endDateTime, cursor).toIterable()) {
+            bulkLoader.loadCommits(project, identities, page.getItems());
+            allSaved = allSaved && allAuthorsKnown(identities, page.getItems());
+            if (allSaved && page.getNextCursor() != null) {
+                watermark.setCommitCursor(range, page.getNextCursor());
+                watermark = syncWatermarkService.save(watermark);
+            }
+        }
+
+        watermark.setCommitCursor(range, null);
+        watermark.setLastPushEventId(allSaved ? watermark.getListingPushEventId() : null);
+        watermark.setCommitsListedUntil(endDateTime);
+        watermark.setListingPushEventId(null);
+        return watermark;
+    }
+
+    // Saves the commits of the pushes to the default branch after lastPushEventId and returns the newest push up to
+    // which all of them were saved
+    private Long followPushes(Project project, IdentityIndex identities, Long lastPushEventId,
+                              OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        var gitLabProjectId = project.getGitLabProjectId();
+        var pushEvents = gitLabService.getPushEvents(gitLabProjectId)
+                .takeWhile(pushEvent -> pushEvent.getId() > lastPushEventId)
+                .collectList()
+                .block();
+        if (pushEvents.isEmpty()) {
+            return lastPushEventId;
+        }
+        Collections.reverse(pushEvents);
+
+        var defaultBranch = gitLabService.getProject(gitLabProjectId).block().getDefaultBranch();
+        var handledPushEventId = lastPushEventId;
+        boolean allSaved = true;
+        for (var pushEvent : pushEvents) {
+            var commits = getPushedCommits(gitLabProjectId, defaultBranch, pushEvent.getPushData(), startDateTime, endDateTime);
+            bulkLoader.loadCommits(project, identities, commits);
+            allSaved = allSaved && allAuthorsKnown(identities, commits);
+            if (allSaved) {
+                handledPushEventId = pushEvent.getId();
+            }
+        }
+        return handledPushEventId;
+    }
+
+    // Only pushes to the default branch are followed, like the listing only lists the default branch.
+    // Other branches reach it through a merge, which is a push to it as well.
+    private List<GitLabCommit> getPushedCommits(Long gitLabProjectId, String defaultBranch, PushData pushData,
+                                                OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        if (pushData == null || !"branch".equals(pushData.getRefType()) || !Objects.equals(pushData.getRef(), defaultBranch)
+                || pushData.getCommitTo() == null) {
+            return List.of();
+        }
+        var commits = pushData.getCommitFrom() != null
+                ? gitLabService.getComparedCommits(gitLabProjectId, pushData.getCommitFrom(), pushData.getCommitTo())
+                : gitLabService.getCommits(gitLabProjectId, startDateTime, endDateTime);
+        return commits
+                .filter(commit -> !commit.getCreatedAt().isBefore(startDateTime) && !commit.getCreatedAt().isAfter(endDateTime))
+                .collectList()
+                .block();
+    }
+
+    private static boolean allAuthorsKnown(IdentityIndex identities, List<GitLabCommit> commits) {
+        return commits.stream().allMatch(commit -> identities.findCommitAuthor(commit) != null);
     }
 
 }
\ No newline at end of file
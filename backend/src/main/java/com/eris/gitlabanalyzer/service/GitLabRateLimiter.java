@@ -0,0 +1,254 @@
+package com.eris.gitlabanalyzer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Shared admission control for every request made with our GitLab token.
+// The number of requests in flight grows by one per round of successful requests and halves when GitLab reports
+// that the rate limit is (nearly) used up or answers 429, at most once per rate limit window. Requests over the limit
+// wait in a queue instead of failing, and a 429 is retried after Retry-After / RateLimit-Reset.
+// Waiters are picked under the lock but only signalled after it is released, as signalling runs their request.
+@Component
+public class GitLabRateLimiter {
+    private final int minConcurrency = 1;
+    private final int maxConcurrency;
+    private final int maxRetries;
+    private final Counter throttledCounter;
+
+    private double concurrencyLimit;
+    private int inFlight = 0;
+    private long pausedUntilMillis = 0;
+    // end of the rate limit window the limit was last halved for, the responses until then all report the same shortage
+    private long decreasedUntilMillis = 0;
+    private boolean drainScheduled = false;
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+
+    private class Permit {
+        private boolean granted = false;
+        private boolean released = false;
+
+        void release() {
+            List<Waiter> admitted;
+            synchronized (GitLabRateLimiter.this) {
+                if (!granted || released) {
+                    return;
+                }
+                released = true;
+                inFlight--;
+                admitted = drain();
+            }
+            signal(admitted);
+        }
+    }
+
+    private static class Waiter {
+        private final MonoSink<Permit> sink;
+        private final Permit permit;
+
+        Waiter(MonoSink<Permit> sink, Permit permit) {
+            this.sink = sink;
+            this.permit = permit;
+        }
+    }
+
+    public GitLabRateLimiter(MeterRegistry meterRegistry,
+                             @Value("${gitlab.INITIAL_CONCURRENCY:4}") int initialConcurrency,
+                             @Value("${gitlab.MAX_CONCURRENCY:16}") int maxConcurrency,
+                             @Value("${gitlab.RATE_LIMIT_MAX_RETRIES:5}") int maxRetries) {
+        this.maxConcurrency = Math.max(minConcurrency, maxConcurrency);
+        this.concurrencyLimit = Math.min(Math.max(minConcurrency, initialConcurrency), this.maxConcurrency);
+        this.maxRetries = maxRetries;
+
+        this.throttledCounter = Counter.builder("gitlab.ratelimit.throttled")
+                .description("GitLab requests answered with 429 Too Many Requests")
+                .register(meterRegistry);
+        Gauge.builder("gitlab.ratelimit.concurrency.limit", this, GitLabRateLimiter::getConcurrencyLimit)
+                .register(meterRegistry);
+        Gauge.builder("gitlab.ratelimit.in.flight", this, GitLabRateLimiter::getInFlight)
+                .register(meterRegistry);
+        Gauge.builder("gitlab.ratelimit.queued", this, GitLabRateLimiter::getQueued)
+                .register(meterRegistry);
+    }
+
+    // Runs the request once a slot is free, and again after the wait GitLab asks for if it answers 429
+    public <T> Mono<T> execute(Supplier<Mono<T>> request) {
+        return execute(request, 0);
+    }
+
+    private <T> Mono<T> execute(Supplier<Mono<T>> request, int attempt) {
+        return Mono.defer(() -> {
+            var permit = new Permit();
+            return acquire(permit)
+                    .then(Mono.defer(request))
+                    // free the slot before the result is passed on, not after downstream has dealt with it
+                    .doOnTerminate(permit::release)
+                    .doOnCancel(permit::release);
+        }).onErrorResume(WebClientResponseException.class, e -> {
+            if (e.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS || attempt >= maxRetries) {
+                return Mono.error(e);
+            }
+            var delay = onRateLimited(e.getHeaders());
+            return Mono.delay(delay).then(execute(request, attempt + 1));
+        });
+    }
+
+    // Called with the headers of every GitLab response
+    public void onResponse(HttpHeaders headers) {
+        List<Waiter> admitted;
+        synchronized (this) {
+            var remaining = getLongHeader(headers, "RateLimit-Remaining");
+            if (remaining != null && remaining <= inFlight) {
+                var resetMillis = getResetMillis(headers);
+                decrease(resetMillis != null ? resetMillis : System.currentTimeMillis() + 1000);
+                if (resetMillis != null) {
+                    pauseUntil(resetMillis);
+                }
+                return;
+            }
+            // additive increase, roughly one more slot for each full window of successful requests
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+            admitted = drain();
+        }
+        signal(admitted);
+    }
+
+    public synchronized double getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    private Mono<Permit> acquire(Permit permit) {
+        return Mono.create(sink -> {
+            var waiter = new Waiter(sink, permit);
+            sink.onCancel(() -> {
+                synchronized (this) {
+                    waiting.remove(waiter);
+                }
+            });
+            List<Waiter> admitted;
+            synchronized (this) {
+                if (waiting.isEmpty() && canAdmit()) {
+                    grant(waiter);
+                    admitted = List.of(waiter);
+                } else {
+                    waiting.add(waiter);
+                    admitted = drain();
+                }
+            }
+            signal(admitted);
+        });
+    }
+
+    private synchronized Duration onRateLimited(HttpHeaders headers) {
+        throttledCounter.increment();
+
+        long now = System.currentTimeMillis();
+        var retryAfter = getLongHeader(headers, HttpHeaders.RETRY_AFTER);
+        var resetMillis = getResetMillis(headers);
+        long resumeMillis;
+        if (retryAfter != null) {
+            resumeMillis = now + TimeUnit.SECONDS.toMillis(retryAfter);
+        } else if (resetMillis != null) {
+            resumeMillis = resetMillis;
+        } else {
+            resumeMillis = now + 1000;
+        }
+        decrease(resumeMillis);
+        pauseUntil(resumeMillis);
+        return Duration.ofMillis(Math.max(0, resumeMillis - now));
+    }
+
+    // Halves the limit unless it was already halved for the window that ends at windowEndMillis
+    private void decrease(long windowEndMillis) {
+        if (System.currentTimeMillis() >= decreasedUntilMillis) {
+            concurrencyLimit = Math.max(minConcurrency, concurrencyLimit / 2);
+        }
+        decreasedUntilMillis = Math.max(decreasedUntilMillis, windowEndMillis);
+    }
+
+    private void pauseUntil(long millis) {
+        pausedUntilMillis = Math.max(pausedUntilMillis, millis);
+    }
+
+    private boolean canAdmit() {
+        return inFlight < Math.floor(concurrencyLimit) && System.currentTimeMillis() >= pausedUntilMillis;
+    }
+
+    private void grant(Waiter waiter) {
+        inFlight++;
+        waiter.permit.granted = true;
+    }
+
+    // Called without holding the lock. A waiter cancelled in the meantime already released its permit.
+    private static void signal(List<Waiter> admitted) {
+        for (Waiter waiter : admitted) {
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    // Grants the waiters that fit under the limit, the caller signals them once it has released the lock
+    private List<Waiter> drain() {
+        List<Waiter> admitted = new ArrayList<>();
+        while (!waiting.isEmpty() && canAdmit()) {
+            var waiter = waiting.poll();
+            grant(waiter);
+            admitted.add(waiter);
+        }
+        // nothing will release a permit while paused with nothing in flight, so come back when the pause ends
+        long pauseMillis = pausedUntilMillis - System.currentTimeMillis();
+        if (!waiting.isEmpty() && pauseMillis > 0 && !drainScheduled) {
+            drainScheduled = true;
+            Schedulers.parallel().schedule(() -> {
+                List<Waiter> scheduled;
+                synchronized (this) {
+                    drainScheduled = false;
+                    scheduled = drain();
+                }
+                signal(scheduled);
+            }, pauseMillis, TimeUnit.MILLISECONDS);
+        }
+        return admitted;
+    }
+
+    // RateLimit-Reset is the epoch second at which the window starts over
+    private static Long getResetMillis(HttpHeaders headers) {
+        var reset = getLongHeader(headers, "RateLimit-Reset");
+        return reset != null ? TimeUnit.SECONDS.toMillis(reset) : null;
+    }
+
+    private static Long getLongHeader(HttpHeaders headers, String headerName) {
+        var value = headers != null ? headers.getFirst(headerName) : null;
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
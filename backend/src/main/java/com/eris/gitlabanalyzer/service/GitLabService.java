@@ -1,31 +1,72 @@
 package com.eris.gitlabanalyzer.service;
 
+import com.eris.gitlabanalyzer.cache.CommitDiffCache;
+import com.eris.gitlabanalyzer.cache.ConditionalRequestCache;
+import com.eris.gitlabanalyzer.cache.InFlightRequests;
 import com.eris.gitlabanalyzer.model.gitlabresponse.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
 
+import java.net.URI;
 import java.time.OffsetDateTime;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class GitLabService {
     private final WebClient webClient;
+    private final CommitDiffCache commitDiffCache;
+    private final ConditionalRequestCache conditionalRequestCache;
+    private final InFlightRequests inFlightRequests;
+    private final GitLabRateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
     private final String projectPath = "api/v4/projects/";
 
+    // Put an AtomicLong under this key in the subscriber context to have the response bytes read from GitLab added to it
+    public static final String FETCHED_BYTES = "gitlab.fetchedBytes";
+
     @Value("${gitlab.SERVER_URL}")
     String serverUrl;
 
     @Value("${gitlab.ACCESS_TOKEN}")
     String accessToken;
 
-    public GitLabService() {
-        this.webClient = WebClient.create();
+    // Number of pages requested at once after the first page reports X-Total-Pages, 1 disables the fan-out
+    @Value("${gitlab.PAGE_CONCURRENCY:4}")
+    int pageConcurrency;
+
+    // "offset" (default) or "keyset", keyset avoids the deep offset slowdown and cap GitLab has on big projects
+    @Value("${gitlab.PAGINATION:offset}")
+    String pagination;
+
+    public GitLabService(CommitDiffCache commitDiffCache,
+                         ConditionalRequestCache conditionalRequestCache,
+                         InFlightRequests inFlightRequests,
+                         GitLabRateLimiter rateLimiter,
+                         ObjectMapper objectMapper,
+                         @Value("${gitlab.MAX_RESPONSE_BYTES:33554432}") int maxResponseBytes) {
+        // responses are buffered whole so they can be revalidated later, large merge request changes need the room
+        var exchangeStrategies = ExchangeStrategies.builder()
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(maxResponseBytes))
+                .build();
+        this.webClient = WebClient.builder().exchangeStrategies(exchangeStrategies).build();
+        this.commitDiffCache = commitDiffCache;
+        this.conditionalRequestCache = conditionalRequestCache;
+        this.inFlightRequests = inFlightRequests;
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
     }
 
     public Flux<GitLabProject> getProjects(){
@@ -37,7 +78,7 @@ public class GitLabService {
                 .toUri()
                 .toString();
 
-        return fetchPages(gitlabUrl).flatMap(response -> response.bodyToFlux(GitLabProject.class));
+        return fetchPages(gitlabUrl, GitLabProject.class);
     }
 
     public Mono<GitLabProject> getProject(Long projectId) {
@@ -48,8 +89,7 @@ public class GitLabService {
                 .toUri()
                 .toString();
 
-        var headersSpec = authorizedGetRequestHeadersSpec(gitlabUrl);
-        return headersSpec.retrieve().bodyToMono(GitLabProject.class);
+        return fetch(gitlabUrl, GitLabProject.class);
     }
 
     public Flux<GitLabMember> getMembers(Long projectId) {
@@ -61,22 +101,48 @@ public class GitLabService {
                 .toUri()
                 .toString();
 
-        return fetchPages(gitlabUrl).flatMap(response -> response.bodyToFlux(GitLabMember.class));
+        return fetchPages(gitlabUrl, GitLabMember.class);
     }
 
     public Flux<GitLabMergeRequest> getMergeRequests(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
-        String gitlabUrl = UriComponentsBuilder.fromUriString(serverUrl)
+        String gitlabUrl = getMergeRequestsUrl(projectId, startDateTime, endDateTime, null);
+        return fetchPages(gitlabUrl, GitLabMergeRequest.class);
+    }
+
+    // Pass the next page cursor of the last page that was handled to continue an interrupted ingest, or null to start over.
+    // updatedAfter limits the result to merge requests changed since the last sync, null returns all of them.
+    public Flux<GitLabPage<GitLabMergeRequest>> getMergeRequestPages(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime, OffsetDateTime updatedAfter, String cursor) {
+        String gitlabUrl = cursor != null ? checkCursor(cursor) : getMergeRequestsUrl(projectId, startDateTime, endDateTime, updatedAfter);
+        return fetchPagesWithCursor(gitlabUrl, GitLabMergeRequest.class);
+    }
+
+    private String getMergeRequestsUrl(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime, OffsetDateTime updatedAfter) {
+        var uriBuilder = UriComponentsBuilder.fromUriString(serverUrl)
                 .path(projectPath + projectId + "/merge_requests")
                 .queryParam("state", "merged")
                 .queryParam("created_after", startDateTime.toInstant().toString())
                 .queryParam("updated_before", endDateTime.toInstant().toString())
-                .queryParam("per_page", 100)
+                .queryParam("per_page", 100);
+        if (updatedAfter != null) {
+            uriBuilder.queryParam("updated_after", updatedAfter.toInstant().toString());
+        }
+
+        return withPagination(uriBuilder)
                 .build()
                 .encode()
                 .toUri()
                 .toString();
+    }
 
-        return fetchPages(gitlabUrl).flatMap(response -> response.bodyToFlux(GitLabMergeRequest.class));
+    public Mono<GitLabMergeRequest> getMergeRequest(Long projectId, Long mergeRequestIid) {
+        String gitlabUrl = UriComponentsBuilder.fromUriString(serverUrl)
+                .path(projectPath + projectId + "/merge_requests/" + mergeRequestIid)
+                .build()
+                .encode()
+                .toUri()
+                .toString();
+
+        return fetch(gitlabUrl, GitLabMergeRequest.class);
     }
 
     public Flux<GitLabCommit> getMergeRequestCommits(Long projectId, Long mergeRequestIid) {
@@ -88,21 +154,62 @@ public class GitLabService {
                 .toUri()
                 .toString();
 
-        return fetchPages(gitlabUrl).flatMap(response -> response.bodyToFlux(GitLabCommit.class));
+        return inFlightRequests.coalesce(gitlabUrl, () -> fetchPages(gitlabUrl, GitLabCommit.class).collectList())
+                .flatMapIterable(commits -> commits);
     }
 
     public Flux<GitLabCommit> getCommits(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
-        String gitlabUrl = UriComponentsBuilder.fromUriString(serverUrl)
+        String gitlabUrl = getCommitsUrl(projectId, startDateTime, endDateTime);
+        return fetchPages(gitlabUrl, GitLabCommit.class);
+    }
+
+    // Pass the next page cursor of the last page that was handled to continue an interrupted ingest, or null to start over
+    public Flux<GitLabPage<GitLabCommit>> getCommitPages(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime, String cursor) {
+        String gitlabUrl = cursor != null ? checkCursor(cursor) : getCommitsUrl(projectId, startDateTime, endDateTime);
+        return fetchPagesWithCursor(gitlabUrl, GitLabCommit.class);
+    }
+
+    private String getCommitsUrl(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        var uriBuilder = UriComponentsBuilder.fromUriString(serverUrl)
                 .path(projectPath + projectId + "/repository/commits")
                 .queryParam("since", startDateTime.toInstant().toString())
                 .queryParam("until", endDateTime.toInstant().toString())
+                .queryParam("per_page", 100);
+
+        return withPagination(uriBuilder)
+                .build()
+                .encode()
+                .toUri()
+                .toString();
+    }
+
+    // Pushes to the project, newest first. Pages are only fetched as far as they are read.
+    public Flux<GitLabPushEvent> getPushEvents(Long projectId) {
+        String gitlabUrl = UriComponentsBuilder.fromUriString(serverUrl)
+                .path(projectPath + projectId + "/events")
+                .queryParam("action", "pushed")
+                .queryParam("sort", "desc")
                 .queryParam("per_page", 100)
                 .build()
                 .encode()
                 .toUri()
                 .toString();
 
-        return fetchPages(gitlabUrl).flatMap(response -> response.bodyToFlux(GitLabCommit.class));
+        return fetchPagesWithCursor(gitlabUrl, GitLabPushEvent.class).flatMapIterable(GitLabPage::getItems);
+    }
+
+    // The commits reachable from to but not from from
+    public Flux<GitLabCommit> getComparedCommits(Long projectId, String from, String to) {
+        String gitlabUrl = UriComponentsBuilder.fromUriString(serverUrl)
+                .path(projectPath + projectId + "/repository/compare")
+                .queryParam("from", from)
+                .queryParam("to", to)
+                .build()
+                .encode()
+                .toUri()
+                .toString();
+
+        return fetch(gitlabUrl, GitLabCompare.class).flatMapIterable(GitLabCompare::getCommits);
     }
 
     public Mono<GitLabCommit> getCommit(Long projectId, String sha) {
@@ -113,8 +220,7 @@ public class GitLabService {
                 .toUri()
                 .toString();
 
-        var headersSpec = authorizedGetRequestHeadersSpec(gitlabUrl);
-        return headersSpec.retrieve().bodyToMono(GitLabCommit.class);
+        return fetch(gitlabUrl, GitLabCommit.class);
     }
 
     public Flux<GitLabFileChange> getCommitDiff(Long projectId, String sha) {
@@ -126,7 +232,18 @@ public class GitLabService {
                 .toUri()
                 .toString();
 
-        return fetchPages(gitlabUrl).flatMap(response -> response.bodyToFlux(GitLabFileChange.class));
+        // diffs of a commit never change, so only go to GitLab the first time a commit is seen
+        var gitLabDiff = fetchPages(gitlabUrl, GitLabFileChange.class)
+                .collectList()
+                .flatMap(changes -> Mono.fromRunnable(() -> commitDiffCache.put(serverUrl, projectId, sha, changes))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .thenReturn(changes));
+
+        var diff = Mono.fromCallable(() -> commitDiffCache.get(serverUrl, projectId, sha).orElse(null))
+                .subscribeOn(Schedulers.boundedElastic())
+                .switchIfEmpty(gitLabDiff);
+
+        return inFlightRequests.coalesce(gitlabUrl, () -> diff).flatMapIterable(changes -> changes);
     }
 
     public Flux<GitLabFileChange> getMergeRequestDiff(Long projectId, Long mergeRequestIid) {
@@ -139,8 +256,8 @@ public class GitLabService {
                 .toUri()
                 .toString();
 
-        var headersSpec = authorizedGetRequestHeadersSpec(gitlabUrl);
-        return headersSpec.retrieve().bodyToMono(GitLabMergeRequestChange.class).flatMapIterable(GitLabMergeRequestChange::getChanges);
+        return inFlightRequests.coalesce(gitlabUrl, () -> fetch(gitlabUrl, GitLabMergeRequestChange.class))
+                .flatMapIterable(GitLabMergeRequestChange::getChanges);
     }
 
     public Flux<GitLabMergeRequestNote> getMergeRequestNotes(Long projectId, Long mergeRequestIid) {
@@ -152,23 +269,32 @@ public class GitLabService {
                 .toUri()
                 .toString();
 
-        return fetchPages(gitlabUrl)
-                .flatMap(response -> response.bodyToFlux(GitLabMergeRequestNote.class));
+        return fetchPages(gitlabUrl, GitLabMergeRequestNote.class);
     }
 
     public Flux<GitLabIssue> getIssues(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
-        String gitlabUrl = UriComponentsBuilder.fromUriString(serverUrl)
+        String gitlabUrl = getIssuesUrl(projectId, startDateTime, endDateTime);
+        return fetchPages(gitlabUrl, GitLabIssue.class);
+    }
+
+    // Pass the next page cursor of the last page that was handled to continue an interrupted ingest, or null to start over
+    public Flux<GitLabPage<GitLabIssue>> getIssuePages(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime, String cursor) {
+        String gitlabUrl = cursor != null ? checkCursor(cursor) : getIssuesUrl(projectId, startDateTime, endDateTime);
+        return fetchPagesWithCursor(gitlabUrl, GitLabIssue.class);
+    }
+
+    private String getIssuesUrl(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        var uriBuilder = UriComponentsBuilder.fromUriString(serverUrl)
                 .path(projectPath + projectId + "/issues")
                 .queryParam("created_after", startDateTime.toInstant().toString())
                 .queryParam("updated_before", endDateTime.toInstant().toString())
-                .queryParam("per_page", 100)
+                .queryParam("per_page", 100);
+
+        return withPagination(uriBuilder)
                 .build()
                 .encode()
                 .toUri()
                 .toString();
-
-        return fetchPages(gitlabUrl)
-                .flatMap(response -> response.bodyToFlux(GitLabIssue.class));
     }
 
     public Flux<GitLabIssueNote> getIssueNotes(Long projectId, Long issue_iid) {
@@ -180,34 +306,158 @@ public class GitLabService {
                 .toUri()
                 .toString();
 
-        return fetchPages(gitlabUrl)
-                .flatMap(response -> response.bodyToFlux(GitLabIssueNote.class));
+        return fetchPages(gitlabUrl, GitLabIssueNote.class);
     }
 
-    // recursively make a request for the next page and then return a collection of response
-    private Flux<ClientResponse> fetchPages(String url) {
-        var headersSpec = authorizedGetRequestHeadersSpec(url);
-        return headersSpec.exchangeToFlux(response -> {
-            var nextPage = getResponseHeaderNextLink(response);
+    // GitLab reports X-Total-Pages on offset paginated responses, so once the first page is back the remaining
+    // pages can be requested concurrently. mergeSequential keeps the items in page order.
+    // GitLab leaves the totals out for very large collections, in which case we recursively follow the Link header
+    private <T> Flux<T> fetchPages(String url, Class<T> type) {
+        return exchange(url).flatMapMany(response -> {
+            var items = decodeList(response, type).flatMapIterable(list -> list);
+            var currentPage = getResponseHeaderInt(response.getHeaders(), "X-Page");
+            var totalPages = getResponseHeaderInt(response.getHeaders(), "X-Total-Pages");
+
+            if (pageConcurrency > 1 && currentPage != null && totalPages != null) {
+                var remainingPages = Flux.range(currentPage + 1, Math.max(totalPages - currentPage, 0))
+                        .flatMapSequential(page -> fetchPage(getPageUrl(url, page), type), pageConcurrency);
+                return Flux.mergeSequential(items, remainingPages);
+            }
+
+            var nextPage = getResponseHeaderNextLink(response.getHeaders());
+            if (nextPage != null) {
+                return items.concatWith(fetchPages(nextPage, type));
+            }
+
+            return items;
+        });
+    }
+
+    // Walks the Link header one page at a time and hands back each page together with the link to the page after it.
+    // Keyset paginated responses never carry X-Total-Pages, and the link of the next page is the only way to resume them
+    private <T> Flux<GitLabPage<T>> fetchPagesWithCursor(String url, Class<T> type) {
+        return exchange(url).flatMapMany(response -> {
+            var nextPage = getResponseHeaderNextLink(response.getHeaders());
+            var page = decodeList(response, type).map(items -> new GitLabPage<>(items, nextPage));
 
             if (nextPage != null) {
-                return Flux.just(response).concatWith(fetchPages(nextPage));
+                return page.concatWith(fetchPagesWithCursor(nextPage, type));
             }
 
-            return Flux.just(response);
+            return page.flux();
         });
     }
 
+    private <T> Flux<T> fetchPage(String url, Class<T> type) {
+        return exchange(url).flatMap(response -> decodeList(response, type)).flatMapIterable(list -> list);
+    }
+
+    private <T> Mono<T> fetch(String url, Class<T> type) {
+        return exchange(url).flatMap(response -> Mono.fromCallable(() -> objectMapper.readValue(response.getBody(), type)));
+    }
+
+    // Every GitLab request goes through here. The rate limiter decides when it may be sent, and a stored copy of
+    // the response is revalidated with If-None-Match and served again when GitLab answers 304 Not Modified
+    private Mono<ResponseEntity<byte[]>> exchange(String url) {
+        var cached = conditionalRequestCache.get(url);
+        var headersSpec = authorizedGetRequestHeadersSpec(url);
+        if (cached != null) {
+            headersSpec = headersSpec.header(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+        }
+
+        var requestSpec = headersSpec;
+        return rateLimiter.execute(() -> requestSpec.exchangeToMono(response -> {
+            rateLimiter.onResponse(response.headers().asHttpHeaders());
+            if (cached != null && response.statusCode() == HttpStatus.NOT_MODIFIED) {
+                return response.releaseBody().thenReturn(conditionalRequestCache.revalidated(cached));
+            }
+            if (response.statusCode().isError()) {
+                return response.createException().flatMap(Mono::error);
+            }
+            return response.toEntity(byte[].class)
+                    .doOnNext(entity -> conditionalRequestCache.put(url, entity))
+                    .transformDeferredContextual((entity, context) -> entity.doOnNext(e -> countFetchedBytes(context, e)));
+        }));
+    }
+
+    private static void countFetchedBytes(ContextView context, ResponseEntity<byte[]> entity) {
+        if (entity.getBody() != null && context.hasKey(FETCHED_BYTES)) {
+            context.<AtomicLong>get(FETCHED_BYTES).addAndGet(entity.getBody().length);
+        }
+    }
+
+    private <T> Mono<List<T>> decodeList(ResponseEntity<byte[]> response, Class<T> type) {
+        var body = response.getBody();
+        if (body == null || body.length == 0) {
+            return Mono.just(List.of());
+        }
+        var listType = objectMapper.getTypeFactory().constructCollectionType(List.class, type);
+        return Mono.fromCallable(() -> objectMapper.readValue(body, listType));
+    }
+
+    private UriComponentsBuilder withPagination(UriComponentsBuilder uriBuilder) {
+        if ("keyset".equals(pagination)) {
+            return uriBuilder
+                    .queryParam("pagination", "keyset")
+                    .queryParam("order_by", "id")
+                    .queryParam("sort", "asc");
+        }
+        return uriBuilder;
+    }
+
+    // A cursor is the url of the next page, make sure we never send the access token anywhere but our GitLab server
+    private String checkCursor(String cursor) {
+        URI cursorUri;
+        try {
+            cursorUri = URI.create(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor does not belong to " + serverUrl, e);
+        }
+        URI serverUri = URI.create(serverUrl);
+        if (cursorUri.getScheme() == null || !cursorUri.getScheme().equalsIgnoreCase(serverUri.getScheme())
+                || cursorUri.getHost() == null || !cursorUri.getHost().equalsIgnoreCase(serverUri.getHost())
+                || port(cursorUri) != port(serverUri)) {
+            throw new IllegalArgumentException("Cursor does not belong to " + serverUrl);
+        }
+        return cursor;
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private String getPageUrl(String url, int page) {
+        return UriComponentsBuilder.fromUriString(url)
+                .replaceQueryParam("page", page)
+                .build(true)
+                .toUriString();
+    }
+
     private WebClient.RequestHeadersSpec<?> authorizedGetRequestHeadersSpec(String url) {
         return webClient.get()
             .uri(url)
             .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken);
     }
 
+    private Integer getResponseHeaderInt(HttpHeaders headers, String headerName) {
+        var value = headers.getFirst(headerName);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     // Based on https://github.com/eclipse/egit-github/blob/master/org.eclipse.egit.github.core/src/org/eclipse/egit/github/core/client/PageLinks.java
-    private String getResponseHeaderNextLink(ClientResponse response) {
-        if (response != null) {
-            var headerLink = response.headers().asHttpHeaders().getFirst(HttpHeaders.LINK);
+    private String getResponseHeaderNextLink(HttpHeaders headers) {
+        if (headers != null) {
+            var headerLink = headers.getFirst(HttpHeaders.LINK);
             if (headerLink != null) {
                 var relUrls = getUrlsFromHeaderLink(headerLink);
                 return relUrls.get("next");
@@ -217,7 +467,7 @@ public class GitLabService {
     }
 
     // Based on https://github.com/eclipse/egit-github/blob/master/org.eclipse.egit.github.core/src/org/eclipse/egit/github/core/client/PageLinks.java
-    private HashMap<String, String> getUrlsFromHeaderLink(String headerLink) {
+    static HashMap<String, String> getUrlsFromHeaderLink(String headerLink) {
         HashMap<String, String> relUrls = new HashMap<>();
         String[] links = headerLink.split(",");
         for (String link : links) {
@@ -0,0 +1,309 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.*;
+import com.eris.gitlabanalyzer.model.gitlabwebhook.*;
+import com.eris.gitlabanalyzer.repository.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Applies GitLab webhook events to the saved projects, one at a time and in the order they arrived.
+// Deliveries are saved to webhook_delivery before GitLab is answered, and applied from there, so an accepted event is
+// not lost when the node stops first. A node keeps the delivery it applies locked, so other nodes skip it. GitLab retries deliveries it thinks failed, so every event is saved by its
+// natural key (sha, iid, note id) and applying the same event twice changes nothing.
+@Service
+public class GitLabWebhookService {
+    private static final Logger log = LoggerFactory.getLogger(GitLabWebhookService.class);
+    private static final DateTimeFormatter legacyTimestamp = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss z");
+
+    private final ProjectRepository projectRepository;
+    private final CommitRepository commitRepository;
+    private final MergeRequestRepository mergeRequestRepository;
+    private final MergeRequestCommentRepository mergeRequestCommentRepository;
+    private final IssueRepository issueRepository;
+    private final IssueCommentRepository issueCommentRepository;
+    private final GitManagementUserRepository gitManagementUserRepository;
+    private final WebhookDeliveryRepository webhookDeliveryRepository;
+    private final IdentityIndexService identityIndexService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "gitlab-webhook");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter duplicateCounter;
+
+    @Value("${gitlab.SERVER_URL}")
+    String serverUrl;
+
+    @Value("${gitlab.WEBHOOK_SECRET:}")
+    String webhookSecret;
+
+    // Applied deliveries are kept this long so GitLab's retries of them are still recognized
+    @Value("${gitlab.WEBHOOK_DELIVERY_RETENTION_DAYS:7}")
+    long retentionDays;
+
+    public GitLabWebhookService(ProjectRepository projectRepository, CommitRepository commitRepository, MergeRequestRepository mergeRequestRepository,
+                                MergeRequestCommentRepository mergeRequestCommentRepository, IssueRepository issueRepository,
+                                IssueCommentRepository issueCommentRepository, GitManagementUserRepository gitManagementUserRepository,
+                                WebhookDeliveryRepository webhookDeliveryRepository, IdentityIndexService identityIndexService,
+                                ObjectMapper objectMapper, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.projectRepository = projectRepository;
+        this.commitRepository = commitRepository;
+        this.mergeRequestRepository = mergeRequestRepository;
+        this.mergeRequestCommentRepository = mergeRequestCommentRepository;
+        this.issueRepository = issueRepository;
+        this.issueCommentRepository = issueCommentRepository;
+        this.gitManagementUserRepository = gitManagementUserRepository;
+        this.webhookDeliveryRepository = webhookDeliveryRepository;
+        this.identityIndexService = identityIndexService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+
+        Gauge.builder("gitlab.webhook.queued", webhookDeliveryRepository, WebhookDeliveryRepository::countByAppliedAtIsNull)
+                .description("Webhook events received but not applied yet")
+                .register(meterRegistry);
+        this.duplicateCounter = Counter.builder("gitlab.webhook.duplicates")
+                .description("Webhook deliveries skipped because the same delivery was already received")
+                .register(meterRegistry);
+    }
+
+    // Without a configured secret every delivery is refused
+    public boolean isValidToken(String token) {
+        if (webhookSecret == null || webhookSecret.isEmpty() || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(webhookSecret.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Saves the delivery to be applied soon. Returns false when the delivery was already received.
+    public boolean receive(String deliveryId, String payload) {
+        if (deliveryId != null && webhookDeliveryRepository.existsByDeliveryUuid(deliveryId)) {
+            duplicateCounter.increment();
+            return false;
+        }
+        try {
+            webhookDeliveryRepository.save(new WebhookDelivery(deliveryId, payload, OffsetDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            // the same delivery was saved by another request in the meantime
+            duplicateCounter.increment();
+            return false;
+        }
+        executor.execute(this::applyPending);
+        return true;
+    }
+
+    // Deliveries accepted before the last shutdown are applied on startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        executor.execute(this::applyPending);
+    }
+
+    public long getPending() {
+        return webhookDeliveryRepository.countByAppliedAtIsNull();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void applyPending() {
+        while (true) {
+            var claimed = new AtomicReference<WebhookDelivery>();
+            try {
+                if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> applyNext(claimed)))) {
+                    break;
+                }
+            } catch (RuntimeException e) {
+                if (claimed.get() == null) {
+                    throw e;
+                }
+                // a delivery that cannot be applied is not retried, the next sync of its project catches up
+                log.warn("Could not apply webhook delivery {}", claimed.get().getId(), e);
+                webhookDeliveryRepository.markApplied(claimed.get().getId(), OffsetDateTime.now());
+            }
+        }
+        webhookDeliveryRepository.deleteAppliedBefore(OffsetDateTime.now().minusDays(retentionDays));
+    }
+
+    // Applies the oldest delivery no other node is applying, returns false when there is none left
+    private boolean applyNext(AtomicReference<WebhookDelivery> claimed) {
+        var deliveries = webhookDeliveryRepository.findUnapplied(PageRequest.of(0, 1));
+        if (deliveries.isEmpty()) {
+            return false;
+        }
+        var delivery = deliveries.get(0);
+        claimed.set(delivery);
+        try {
+            apply(objectMapper.readValue(delivery.getPayload(), GitLabWebhookEvent.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unreadable webhook payload", e);
+        }
+        delivery.setAppliedAt(OffsetDateTime.now());
+        return true;
+    }
+
+    void apply(GitLabWebhookEvent event) {
+        var gitLabProjectId = event.getProject() != null ? event.getProject().getId() : null;
+        Project project = gitLabProjectId != null ? projectRepository.findByGitlabProjectIdAndServerUrl(gitLabProjectId, serverUrl) : null;
+        if (project == null) {
+            // only projects that have been synced once are kept up to date
+            return;
+        }
+
+        if (event instanceof GitLabPushEvent) {
+            applyPush(project, (GitLabPushEvent) event);
+        } else if (event instanceof GitLabMergeRequestEvent) {
+            applyMergeRequest(project, (GitLabMergeRequestEvent) event);
+        } else if (event instanceof GitLabIssueEvent) {
+            applyIssue(project, (GitLabIssueEvent) event);
+        } else if (event instanceof GitLabNoteEvent) {
+            applyNote(project, (GitLabNoteEvent) event);
+        }
+    }
+
+    private void applyPush(Project project, GitLabPushEvent event) {
+        // like the regular sync, only commits on the default branch are kept
+        if (event.getCommits() == null || event.getRef() == null
+                || !event.getRef().equals("refs/heads/" + event.getProject().getDefaultBranch())) {
+            return;
+        }
+        var identities = identityIndexService.load(project);
+        for (var pushCommit : event.getCommits()) {
+            if (commitRepository.findByShaAndProjectId(pushCommit.getSha(), project.getId()) != null) {
+                continue;
+            }
+            var authorEmail = pushCommit.getAuthor().getEmail();
+            GitManagementUser gitManagementUser = identities.findCommitAuthor(authorEmail, pushCommit.getAuthor().getName());
+            if (gitManagementUser == null) {
+                continue;
+            }
+            var title = pushCommit.getTitle() != null ? pushCommit.getTitle() : pushCommit.getMessage().split("\n", 2)[0];
+            commitRepository.save(new Commit(
+                    pushCommit.getSha(),
+                    title,
+                    authorEmail,
+                    authorEmail,
+                    authorEmail,
+                    authorEmail,
+                    parseTimestamp(pushCommit.getTimestamp()),
+                    pushCommit.getUrl(),
+                    project,
+                    gitManagementUser
+            ));
+        }
+    }
+
+    private void applyMergeRequest(Project project, GitLabMergeRequestEvent event) {
+        var attributes = event.getObjectAttributes();
+        // like the regular sync, only merged merge requests are kept
+        if (!"merged".equals(attributes.getState())) {
+            return;
+        }
+        var headSha = attributes.getLastCommit() != null ? attributes.getLastCommit().getSha() : null;
+        MergeRequest savedMergeRequest = mergeRequestRepository.findByIidAndProjectId(attributes.getIid(), project.getId());
+        if (savedMergeRequest != null) {
+            if (headSha != null && !headSha.equals(savedMergeRequest.getHeadSha())) {
+                savedMergeRequest.setHeadSha(headSha);
+                mergeRequestRepository.save(savedMergeRequest);
+            }
+            return;
+        }
+        // the event's user is whoever triggered it, a maintainer merging it for example
+        GitManagementUser gitManagementUser = findAuthor(attributes);
+        if (gitManagementUser == null) {
+            return;
+        }
+        var mergeRequest = new MergeRequest(
+                attributes.getIid(),
+                gitManagementUser.getUsername(),
+                attributes.getTitle(),
+                parseTimestamp(attributes.getCreatedAt()),
+                attributes.getUrl(),
+                project,
+                gitManagementUser
+        );
+        mergeRequest.setHeadSha(headSha);
+        mergeRequestRepository.save(mergeRequest);
+    }
+
+    private void applyIssue(Project project, GitLabIssueEvent event) {
+        var attributes = event.getObjectAttributes();
+        if (issueRepository.findByIidAndProjectId(attributes.getIid(), project.getId()) != null) {
+            return;
+        }
+        GitManagementUser gitManagementUser = findAuthor(attributes);
+        if (gitManagementUser == null) {
+            return;
+        }
+        issueRepository.save(new Issue(
+                attributes.getIid(),
+                attributes.getTitle(),
+                gitManagementUser.getUsername(),
+                parseTimestamp(attributes.getCreatedAt()).toString(),
+                attributes.getUrl(),
+                project,
+                gitManagementUser
+        ));
+    }
+
+    private void applyNote(Project project, GitLabNoteEvent event) {
+        var note = event.getObjectAttributes();
+        GitManagementUser gitManagementUser = findAuthor(note);
+        if (gitManagementUser == null) {
+            return;
+        }
+        var createdAt = parseTimestamp(note.getCreatedAt()).toString();
+
+        if ("MergeRequest".equals(note.getNoteableType()) && event.getMergeRequest() != null) {
+            MergeRequest mergeRequest = mergeRequestRepository.findByIidAndProjectId(event.getMergeRequest().getIid(), project.getId());
+            if (mergeRequest == null || mergeRequestCommentRepository.findByIidAndMergeRequestId(note.getId(), mergeRequest.getId()) != null) {
+                return;
+            }
+            mergeRequestCommentRepository.save(new MergeRequestComment(note.getId(), gitManagementUser, mergeRequest, note.getUrl(), createdAt));
+        } else if ("Issue".equals(note.getNoteableType()) && event.getIssue() != null) {
+            Issue issue = issueRepository.findByIidAndProjectId(event.getIssue().getIid(), project.getId());
+            if (issue == null || issueCommentRepository.findByIidAndIssueId(note.getId(), issue.getId()) != null) {
+                return;
+            }
+            issueCommentRepository.save(new IssueComment(note.getId(), gitManagementUser, issue, note.getUrl(), createdAt));
+        }
+    }
+
+    private GitManagementUser findAuthor(GitLabWebhookAttributes attributes) {
+        return attributes.getAuthorId() != null ? gitManagementUserRepository.findByGitLabUserIdAndServerUrl(attributes.getAuthorId(), serverUrl) : null;
+    }
+
+    static OffsetDateTime parseTimestamp(String timestamp) {
+        try {
+            return OffsetDateTime.parse(timestamp);
+        } catch (DateTimeParseException e) {
+            return ZonedDateTime.parse(timestamp, legacyTimestamp).toOffsetDateTime();
+        }
+    }
+}
@@ -2,13 +2,18 @@ package com.eris.gitlabanalyzer.service;
 
 import com.eris.gitlabanalyzer.model.GitManagementUser;
 import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.model.projection.MemberSummary;
 import com.eris.gitlabanalyzer.repository.GitManagementUserRepository;
 import com.eris.gitlabanalyzer.repository.ProjectRepository;
 import com.eris.gitlabanalyzer.repository.ServerRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 public class GitManagementUserService {
@@ -16,6 +21,7 @@ public class GitManagementUserService {
     private final ProjectRepository projectRepository;
     private final ServerRepository serverRepository;
     private final GitLabService gitLabService;
+    private final IdentityIndexService identityIndexService;
 
     @Value("${gitlab.SERVER_URL}")
     String serverUrl;
@@ -23,14 +29,18 @@ public class GitManagementUserService {
     @Value("${gitlab.ACCESS_TOKEN}")
     String accessToken;
 
-    public GitManagementUserService(GitManagementUserRepository gitManagementUserRepository, ProjectRepository projectRepository, ServerRepository serverRepository, GitLabService gitLabService) {
+    public GitManagementUserService(GitManagementUserRepository gitManagementUserRepository, ProjectRepository projectRepository, ServerRepository serverRepository, GitLabService gitLabService,
+                                    IdentityIndexService identityIndexService) {
         this.gitManagementUserRepository = gitManagementUserRepository;
         this.projectRepository = projectRepository;
         this.serverRepository = serverRepository;
         this.gitLabService = gitLabService;
+        this.identityIndexService = identityIndexService;
     }
 
     //TODO Investigate other ways rather than using block(). Current issue is that there is a race condition when using subscribe()
+    // one transaction so both sides of the user / project association can be loaded and saved together
+    @Transactional
     public void saveGitManagementUserInfo(Long gitLabProjectId){
         Project project = projectRepository.findByGitlabProjectIdAndServerUrl(gitLabProjectId, serverUrl);
 
@@ -38,29 +48,32 @@ public class GitManagementUserService {
         var gitLabMemberList= gitLabMembers.collectList().block();
 
         if (gitLabMemberList != null && !gitLabMemberList.isEmpty()) {
+            var identities = identityIndexService.load(project);
+            var server = serverRepository.findByServerUrlAndAccessToken(serverUrl, accessToken);
             gitLabMemberList.forEach(gitLabMember -> {
-                    GitManagementUser gitManagementUser= gitManagementUserRepository.findByUserNameAndServerUrl(gitLabMember.getUsername(),serverUrl);
+                    GitManagementUser gitManagementUser = identities.findByUsername(gitLabMember.getUsername());
                     if (gitManagementUser == null){
                         gitManagementUser = new GitManagementUser(
                                 gitLabMember.getUsername(),
                                 gitLabMember.getName(),
-                                serverRepository.findByServerUrlAndAccessToken(serverUrl,accessToken)
+                                server
                         );
+                    } else if (identities.isMember(gitLabMember.getUsername())
+                            && Objects.equals(gitLabMember.getId(), gitManagementUser.getGitLabUserId())) {
+                        return;
                     }
 
-                    GitManagementUser checkIfAlreadyInProject = gitManagementUserRepository.findByUsernameAndProjectId(gitLabMember.getUsername(),project.getId());
-                    if(checkIfAlreadyInProject == null){
-                        gitManagementUser.addProject(project);
-                    }
-
-                    gitManagementUserRepository.save(gitManagementUser);
+                    gitManagementUser.setGitLabUserId(gitLabMember.getId());
+                    gitManagementUser.addProject(project);
+                    identities.add(gitManagementUserRepository.save(gitManagementUser));
+                    identities.addMember(gitLabMember.getUsername());
                 }
             );
         }
     }
 
 
-    public List<GitManagementUser> getMembersByProjectId(Long projectId){
-        return gitManagementUserRepository.findByProjectId(projectId);
+    public Page<MemberSummary> getMembersByProjectId(Long projectId, Pageable pageable){
+        return gitManagementUserRepository.findSummariesByProjectId(projectId, pageable);
     }
 }
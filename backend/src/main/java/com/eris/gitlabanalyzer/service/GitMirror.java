@@ -0,0 +1,190 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabFileChange;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RefSpec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// A bare copy of one project's repository. Commits missing from it are brought in with a single fetch,
+// after which diffs are computed locally in the same shape GitLab's diff endpoints return them.
+public class GitMirror implements Closeable {
+    private static final List<RefSpec> refSpecs = List.of(
+            new RefSpec("+refs/heads/*:refs/heads/*"),
+            // GitLab keeps the head of every merge request here, even after its source branch is deleted
+            new RefSpec("+refs/merge-requests/*/head:refs/merge-requests/*/head"));
+
+    private final Path directory;
+    private final String remoteUrl;
+    private final CredentialsProvider credentialsProvider;
+    private Repository repository;
+
+    public GitMirror(Path directory, String remoteUrl, CredentialsProvider credentialsProvider) {
+        this.directory = directory;
+        this.remoteUrl = remoteUrl;
+        this.credentialsProvider = credentialsProvider;
+    }
+
+    // Fetches if any of the commits is missing, returns false if one is still missing afterwards
+    public synchronized boolean ensureCommits(String... shas) throws IOException, GitAPIException {
+        open();
+        if (hasCommits(shas)) {
+            return true;
+        }
+        fetch();
+        return hasCommits(shas);
+    }
+
+    public synchronized void fetch() throws IOException, GitAPIException {
+        open();
+        Git.wrap(repository).fetch()
+                .setRemote(remoteUrl)
+                .setRefSpecs(refSpecs)
+                .setRemoveDeletedRefs(true)
+                .setCredentialsProvider(credentialsProvider)
+                .call();
+    }
+
+    // Like GitLab, a merge commit is compared with its first parent and the first commit with an empty tree
+    public synchronized List<GitLabFileChange> getCommitDiff(String sha) throws IOException {
+        open();
+        try (var revWalk = new RevWalk(repository)) {
+            var commit = revWalk.parseCommit(ObjectId.fromString(sha));
+            RevTree parentTree = null;
+            if (commit.getParentCount() > 0) {
+                parentTree = revWalk.parseCommit(commit.getParent(0)).getTree();
+            }
+            return diff(parentTree, commit.getTree());
+        }
+    }
+
+    // The merge request diff goes from where the source branch left the target branch to its head.
+    // Empty when that point cannot be told from the mirror (e.g. fast-forward merges), so callers can ask GitLab.
+    public synchronized Optional<List<GitLabFileChange>> getMergeRequestDiff(String headSha, String mergeCommitSha, String targetBranch) throws IOException {
+        open();
+        try (var revWalk = new RevWalk(repository)) {
+            var head = revWalk.parseCommit(ObjectId.fromString(headSha));
+            RevCommit target = null;
+            if (mergeCommitSha != null) {
+                var mergeCommit = revWalk.parseCommit(ObjectId.fromString(mergeCommitSha));
+                if (mergeCommit.getParentCount() > 1) {
+                    target = revWalk.parseCommit(mergeCommit.getParent(0));
+                }
+            } else if (targetBranch != null) {
+                var targetRef = repository.exactRef("refs/heads/" + targetBranch);
+                if (targetRef != null) {
+                    target = revWalk.parseCommit(targetRef.getObjectId());
+                }
+            }
+            if (target == null) {
+                return Optional.empty();
+            }
+
+            var mergeBase = getMergeBase(head, target);
+            if (mergeBase == null || mergeBase.equals(head)) {
+                return Optional.empty();
+            }
+            return Optional.of(diff(revWalk.parseCommit(mergeBase).getTree(), head.getTree()));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (repository != null) {
+            repository.close();
+            repository = null;
+        }
+    }
+
+    private void open() throws IOException {
+        if (repository != null) {
+            return;
+        }
+        if (Files.exists(directory.resolve("HEAD"))) {
+            repository = new FileRepositoryBuilder().setGitDir(directory.toFile()).setMustExist(true).build();
+            return;
+        }
+        try {
+            repository = Git.init().setBare(true).setDirectory(directory.toFile()).call().getRepository();
+        } catch (GitAPIException e) {
+            throw new IOException("Could not create mirror in " + directory, e);
+        }
+    }
+
+    private boolean hasCommits(String... shas) throws IOException {
+        for (String sha : shas) {
+            if (sha != null && !repository.getObjectDatabase().has(ObjectId.fromString(sha))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ObjectId getMergeBase(RevCommit head, RevCommit target) throws IOException {
+        try (var revWalk = new RevWalk(repository)) {
+            revWalk.setRevFilter(RevFilter.MERGE_BASE);
+            revWalk.markStart(revWalk.parseCommit(head));
+            revWalk.markStart(revWalk.parseCommit(target));
+            var mergeBase = revWalk.next();
+            return mergeBase != null ? mergeBase.getId() : null;
+        }
+    }
+
+    private List<GitLabFileChange> diff(RevTree oldTree, RevTree newTree) throws IOException {
+        var output = new ByteArrayOutputStream();
+        try (var formatter = new DiffFormatter(output)) {
+            formatter.setRepository(repository);
+            formatter.setDetectRenames(true);
+
+            var changes = new ArrayList<GitLabFileChange>();
+            for (DiffEntry entry : formatter.scan(oldTree, newTree)) {
+                output.reset();
+                formatter.format(entry);
+                changes.add(toFileChange(entry, output.toString(StandardCharsets.UTF_8)));
+            }
+            return changes;
+        }
+    }
+
+    private static GitLabFileChange toFileChange(DiffEntry entry, String patch) {
+        var type = entry.getChangeType();
+        // GitLab reports the same path on both sides of an added or deleted file instead of /dev/null
+        var newPath = type == DiffEntry.ChangeType.DELETE ? entry.getOldPath() : entry.getNewPath();
+        var oldPath = type == DiffEntry.ChangeType.ADD ? entry.getNewPath() : entry.getOldPath();
+        return new GitLabFileChange(
+                getHunks(patch),
+                newPath,
+                oldPath,
+                type == DiffEntry.ChangeType.ADD,
+                type == DiffEntry.ChangeType.RENAME,
+                type == DiffEntry.ChangeType.DELETE);
+    }
+
+    // GitLab's diff field starts at the first hunk, without the diff --git / index / --- / +++ lines
+    private static String getHunks(String patch) {
+        if (patch.startsWith("@@")) {
+            return patch;
+        }
+        int start = patch.indexOf("\n@@");
+        return start < 0 ? "" : patch.substring(start + 1);
+    }
+}
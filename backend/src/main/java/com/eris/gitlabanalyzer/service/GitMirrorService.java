@@ -0,0 +1,100 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabFileChange;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabMergeRequest;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Computes diffs from a local mirror of each project instead of asking GitLab for every commit.
+// Anything the mirror cannot answer falls back to the REST endpoints.
+@Service
+public class GitMirrorService {
+    private static final Logger log = LoggerFactory.getLogger(GitMirrorService.class);
+
+    private final GitLabService gitLabService;
+    private final Path mirrorDirectory;
+    private final Map<Long, GitMirror> mirrors = new ConcurrentHashMap<>();
+
+    @Value("${gitlab.SERVER_URL}")
+    String serverUrl;
+
+    @Value("${gitlab.ACCESS_TOKEN}")
+    String accessToken;
+
+    public GitMirrorService(GitLabService gitLabService,
+                            @Value("${gitlab.MIRROR_DIR:${java.io.tmpdir}/gitlab-analyzer/mirrors}") String mirrorDirectory) {
+        this.gitLabService = gitLabService;
+        this.mirrorDirectory = Paths.get(mirrorDirectory);
+    }
+
+    public Flux<GitLabFileChange> getCommitDiff(Long projectId, String sha) {
+        var localDiff = getMirror(projectId)
+                .flatMap(mirror -> Mono.fromCallable(() -> mirror.ensureCommits(sha) ? mirror.getCommitDiff(sha) : null)
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .onErrorResume(e -> {
+                    log.warn("Could not diff commit {} of project {} locally", sha, projectId, e);
+                    return Mono.empty();
+                });
+
+        return localDiff
+                .switchIfEmpty(Mono.defer(() -> gitLabService.getCommitDiff(projectId, sha).collectList()))
+                .flatMapIterable(changes -> changes);
+    }
+
+    public Flux<GitLabFileChange> getMergeRequestDiff(Long projectId, GitLabMergeRequest mergeRequest) {
+        var localDiff = getMirror(projectId)
+                .flatMap(mirror -> Mono.fromCallable(() -> {
+                    if (mergeRequest.getSha() == null || !mirror.ensureCommits(mergeRequest.getSha(), mergeRequest.getMergeCommitSha())) {
+                        return null;
+                    }
+                    return mirror.getMergeRequestDiff(mergeRequest.getSha(), mergeRequest.getMergeCommitSha(), mergeRequest.getTargetBranch())
+                            .orElse(null);
+                }).subscribeOn(Schedulers.boundedElastic()))
+                .onErrorResume(e -> {
+                    log.warn("Could not diff merge request {} of project {} locally", mergeRequest.getIid(), projectId, e);
+                    return Mono.empty();
+                });
+
+        return localDiff
+                .switchIfEmpty(Mono.defer(() -> gitLabService.getMergeRequestDiff(projectId, mergeRequest.getIid()).collectList()))
+                .flatMapIterable(changes -> changes);
+    }
+
+    @PreDestroy
+    public void closeMirrors() {
+        mirrors.values().forEach(GitMirror::close);
+        mirrors.clear();
+    }
+
+    private Mono<GitMirror> getMirror(Long projectId) {
+        var mirror = mirrors.get(projectId);
+        if (mirror != null) {
+            return Mono.just(mirror);
+        }
+        return gitLabService.getProject(projectId)
+                .filter(project -> project.getHttpUrlToRepo() != null)
+                .map(project -> mirrors.computeIfAbsent(projectId, id -> new GitMirror(
+                        getMirrorPath(id),
+                        project.getHttpUrlToRepo(),
+                        new UsernamePasswordCredentialsProvider("oauth2", accessToken))));
+    }
+
+    private Path getMirrorPath(Long projectId) {
+        var server = URI.create(serverUrl);
+        var serverName = server.getPort() < 0 ? server.getHost() : server.getHost() + "_" + server.getPort();
+        return mirrorDirectory.resolve(serverName).resolve(projectId + ".git");
+    }
+}
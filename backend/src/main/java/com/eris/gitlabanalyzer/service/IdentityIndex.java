@@ -0,0 +1,75 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.GitManagementUser;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// The users of one server and the members of one project, loaded once for an ingest so matching commits,
+// merge requests and notes to their authors does not cost a query each. Users created during the ingest
+// are added as they are saved.
+public class IdentityIndex {
+    private final Map<String, GitManagementUser> byUsername = new HashMap<>();
+    // display names shared by more than one user are kept out of byName for good, they cannot tell the users apart
+    private final Map<String, GitManagementUser> byName = new HashMap<>();
+    private final Set<String> ambiguousNames = new HashSet<>();
+    private final Set<String> memberUsernames = new HashSet<>();
+
+    public IdentityIndex(Iterable<GitManagementUser> users, Iterable<String> memberUsernames) {
+        users.forEach(this::add);
+        memberUsernames.forEach(this.memberUsernames::add);
+    }
+
+    public void add(GitManagementUser user) {
+        byUsername.put(user.getUsername(), user);
+        if (ambiguousNames.contains(user.getName())) {
+            return;
+        }
+        var existing = byName.get(user.getName());
+        if (existing == null || existing.getUsername().equals(user.getUsername())) {
+            byName.put(user.getName(), user);
+        } else {
+            byName.remove(user.getName());
+            ambiguousNames.add(user.getName());
+        }
+    }
+
+    public void addMember(String username) {
+        memberUsernames.add(username);
+    }
+
+    public GitManagementUser findByUsername(String username) {
+        return byUsername.get(username);
+    }
+
+    // GitLab usernames are the part of the email before the @ for accounts created by the university
+    public GitManagementUser findByEmail(String email) {
+        return email != null ? byUsername.get(email.split("@")[0]) : null;
+    }
+
+    // Commit author names are whatever the author's git config says, so they only match a unique display name
+    public GitManagementUser findByAuthorName(String authorName) {
+        return byName.get(authorName);
+    }
+
+    // The user a commit is saved for, or null if the commit cannot be matched to anyone and is skipped
+    public GitManagementUser findCommitAuthor(GitLabCommit commit) {
+        return findCommitAuthor(commit.getAuthorEmail(), commit.getAuthorName());
+    }
+
+    public GitManagementUser findCommitAuthor(String authorEmail, String authorName) {
+        var user = findByEmail(authorEmail);
+        return user != null ? user : findByAuthorName(authorName);
+    }
+
+    public boolean isMember(String username) {
+        return memberUsernames.contains(username);
+    }
+
+    public int size() {
+        return byUsername.size();
+    }
+}
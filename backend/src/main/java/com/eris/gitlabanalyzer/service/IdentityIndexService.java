@@ -0,0 +1,21 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.repository.GitManagementUserRepository;
+import org.springframework.stereotype.Service;
+
+@Service
+public class IdentityIndexService {
+    private final GitManagementUserRepository gitManagementUserRepository;
+
+    public IdentityIndexService(GitManagementUserRepository gitManagementUserRepository) {
+        this.gitManagementUserRepository = gitManagementUserRepository;
+    }
+
+    // Two queries however many users the server has
+    public IdentityIndex load(Project project) {
+        return new IdentityIndex(
+                gitManagementUserRepository.findByServerId(project.getServer().getId()),
+                gitManagementUserRepository.findUsernamesByProjectId(project.getId()));
+    }
+}
@@ -0,0 +1,121 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.IngestionTask;
+import com.eris.gitlabanalyzer.repository.IngestionTaskRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// The ingestion_task table used as a work queue shared by every backend node. Each method is one short transaction,
+// the GitLab requests of a task run outside of them while the lease is kept alive with heartbeats.
+@Service
+public class IngestionTaskService {
+    private final IngestionTaskRepository ingestionTaskRepository;
+
+    @Value("${gitlab.SERVER_URL}")
+    String serverUrl;
+
+    @Value("${gitlab.INGESTION_LEASE_SECONDS:60}")
+    long leaseSeconds;
+
+    @Value("${gitlab.INGESTION_MAX_ATTEMPTS:5}")
+    int maxAttempts;
+
+    @Value("${gitlab.INGESTION_RETRY_BACKOFF_SECONDS:10}")
+    long retryBackoffSeconds;
+
+    public IngestionTaskService(IngestionTaskRepository ingestionTaskRepository) {
+        this.ingestionTaskRepository = ingestionTaskRepository;
+    }
+
+    // A project that still has an unfinished task is not queued again, that task is returned instead
+    public List<IngestionTask> enqueue(List<Long> gitLabProjectIdList, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        var tasks = new ArrayList<IngestionTask>();
+        for (Long gitLabProjectId : gitLabProjectIdList) {
+            tasks.add(enqueue(new IngestionTask(IngestionTask.Type.PROJECT, serverUrl, gitLabProjectId, startDateTime, endDateTime)));
+        }
+        return tasks;
+    }
+
+    private IngestionTask enqueue(IngestionTask task) {
+        var queued = ingestionTaskRepository.findByActiveProjectKey(task.getActiveProjectKey());
+        if (queued != null) {
+            return queued;
+        }
+        try {
+            return ingestionTaskRepository.save(task);
+        } catch (DataIntegrityViolationException e) {
+            // queued by another request or node in the meantime
+            return Optional.ofNullable(ingestionTaskRepository.findByActiveProjectKey(task.getActiveProjectKey())).orElseThrow(() -> e);
+        }
+    }
+
+    // Leases the next due task to owner. Tasks whose lease ran out once too often are given up on.
+    @Transactional
+    public Optional<IngestionTask> lease(String owner) {
+        var now = OffsetDateTime.now();
+        for (var task : ingestionTaskRepository.findLeasable(now, 10)) {
+            if (task.getStatus() == IngestionTask.Status.RUNNING && task.getAttempts() >= maxAttempts) {
+                task.failed("Lease of " + task.getLeaseOwner() + " expired", null);
+                continue;
+            }
+            task.lease(owner, now.plusSeconds(leaseSeconds));
+            return Optional.of(task);
+        }
+        return Optional.empty();
+    }
+
+    @Transactional
+    public int heartbeat(Collection<Long> taskIds, String owner) {
+        if (taskIds.isEmpty()) {
+            return 0;
+        }
+        return ingestionTaskRepository.extendLeases(taskIds, owner, OffsetDateTime.now().plusSeconds(leaseSeconds), IngestionTask.Status.RUNNING);
+    }
+
+    // Returns false when the lease was lost in the meantime, the task then belongs to another node
+    @Transactional
+    public boolean complete(IngestionTask leased, String owner, IngestionTask.Type next) {
+        var task = ingestionTaskRepository.findByIdForUpdate(leased.getId());
+        if (task == null || !task.isLeasedBy(owner)) {
+            return false;
+        }
+        task.done();
+        if (next != null) {
+            // the done task gives up its project key first, Hibernate would otherwise insert the next one before
+            ingestionTaskRepository.flush();
+            ingestionTaskRepository.save(task.next(next));
+        }
+        return true;
+    }
+
+    @Transactional
+    public boolean fail(IngestionTask leased, String owner, String error) {
+        var task = ingestionTaskRepository.findByIdForUpdate(leased.getId());
+        if (task == null || !task.isLeasedBy(owner)) {
+            return false;
+        }
+        var retryAt = task.getAttempts() < maxAttempts
+                ? OffsetDateTime.now().plus(retryBackoff(task.getAttempts()))
+                : null;
+        task.failed(error, retryAt);
+        return true;
+    }
+
+    public List<IngestionTask> getTasks(IngestionTask.Status status) {
+        return ingestionTaskRepository.findByStatus(status);
+    }
+
+    // Doubles with every attempt
+    Duration retryBackoff(int attempts) {
+        return Duration.ofSeconds(retryBackoffSeconds).multipliedBy(1L << Math.min(attempts - 1, 10));
+    }
+}
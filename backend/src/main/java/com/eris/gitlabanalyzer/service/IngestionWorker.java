@@ -0,0 +1,157 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.IngestionTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Runs ingestion tasks leased from the shared queue, so the sync of a project is spread over every backend node
+// instead of running on the one that received the request. The steps of one project run one after the other
+// because they share its sync watermarks.
+@Component
+public class IngestionWorker {
+    private static final Logger log = LoggerFactory.getLogger(IngestionWorker.class);
+
+    private final IngestionTaskService ingestionTaskService;
+    private final ProjectService projectService;
+    private final GitManagementUserService gitManagementUserService;
+    private final MergeRequestService mergeRequestService;
+    private final CommitService commitService;
+
+    private final Set<Long> runningTaskIds = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService executor;
+
+    @Value("${gitlab.NODE_ID:}")
+    String nodeId;
+
+    @Value("${gitlab.INGESTION_WORKERS:2}")
+    int workers;
+
+    @Value("${gitlab.INGESTION_POLL_MILLIS:1000}")
+    long pollMillis;
+
+    @Value("${gitlab.INGESTION_LEASE_SECONDS:60}")
+    long leaseSeconds;
+
+    public IngestionWorker(IngestionTaskService ingestionTaskService, ProjectService projectService, GitManagementUserService gitManagementUserService,
+                           MergeRequestService mergeRequestService, CommitService commitService) {
+        this.ingestionTaskService = ingestionTaskService;
+        this.projectService = projectService;
+        this.gitManagementUserService = gitManagementUserService;
+        this.mergeRequestService = mergeRequestService;
+        this.commitService = commitService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (workers <= 0) {
+            return;
+        }
+        executor = Executors.newScheduledThreadPool(workers + 1, runnable -> {
+            var thread = new Thread(runnable, "gitlab-ingestion");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.scheduleWithFixedDelay(this::runAvailable, 0, pollMillis, TimeUnit.MILLISECONDS);
+        }
+        // renewed well before it runs out, a node that stops renewing is taken as dead
+        long heartbeatMillis = TimeUnit.SECONDS.toMillis(leaseSeconds) / 3;
+        executor.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        log.info("Ingestion worker {} started with {} threads", getNodeId(), workers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public String getNodeId() {
+        if (nodeId == null || nodeId.isEmpty()) {
+            nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        return nodeId;
+    }
+
+    // Leases and runs tasks until none are due
+    void runAvailable() {
+        try {
+            while (!Thread.currentThread().isInterrupted() && runNext()) {
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not lease an ingestion task", e);
+        }
+    }
+
+    // Returns false when there was no task to run
+    public boolean runNext() {
+        var leased = ingestionTaskService.lease(getNodeId());
+        if (leased.isEmpty()) {
+            return false;
+        }
+        var task = leased.get();
+        runningTaskIds.add(task.getId());
+        try {
+            var next = run(task);
+            if (!ingestionTaskService.complete(task, getNodeId(), next)) {
+                log.warn("Lost the lease of {} before it finished", task);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ingestion task {} failed", task, e);
+            ingestionTaskService.fail(task, getNodeId(), e.toString());
+        } finally {
+            runningTaskIds.remove(task.getId());
+        }
+        return true;
+    }
+
+    // Runs one step and returns the step to run after it
+    private IngestionTask.Type run(IngestionTask task) {
+        var gitLabProjectId = task.getGitLabProjectId();
+        switch (task.getType()) {
+            case PROJECT:
+                projectService.saveProjectInfo(gitLabProjectId);
+                gitManagementUserService.saveGitManagementUserInfo(gitLabProjectId);
+                return IngestionTask.Type.MERGE_REQUESTS;
+            case MERGE_REQUESTS:
+                mergeRequestService.saveMergeRequestInfo(gitLabProjectId, task.getStartDateTime(), task.getEndDateTime());
+                return IngestionTask.Type.COMMITS;
+            case COMMITS:
+                commitService.saveCommitInfo(gitLabProjectId, task.getStartDateTime(), task.getEndDateTime());
+                return null;
+            default:
+                throw new IllegalStateException("Unknown ingestion task type " + task.getType());
+        }
+    }
+
+    private void heartbeat() {
+        try {
+            ingestionTaskService.heartbeat(Set.copyOf(runningTaskIds), getNodeId());
+        } catch (RuntimeException e) {
+            log.warn("Could not renew ingestion task leases", e);
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.*;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabMergeRequestNote;
+import com.eris.gitlabanalyzer.repository.CommitRepository;
+import com.eris.gitlabanalyzer.repository.MergeRequestCommentRepository;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Loads through JPA with batched inserts, works on any database
+public class JpaBulkLoader implements BulkLoader {
+    private final BatchInsertService batchInsertService;
+    private final CommitRepository commitRepository;
+    private final MergeRequestCommentRepository mergeRequestCommentRepository;
+
+    public JpaBulkLoader(BatchInsertService batchInsertService, CommitRepository commitRepository, MergeRequestCommentRepository mergeRequestCommentRepository) {
+        this.batchInsertService = batchInsertService;
+        this.commitRepository = commitRepository;
+        this.mergeRequestCommentRepository = mergeRequestCommentRepository;
+    }
+
+    @Override
+    public int loadCommits(Project project, IdentityIndex identities, List<GitLabCommit> gitLabCommits) {
+        var savedShas = new HashSet<>(commitRepository.findShasByProjectIdAndShaIn(project.getId(),
+                gitLabCommits.stream().map(GitLabCommit::getSha).collect(Collectors.toList())));
+        var commits = new ArrayList<Commit>();
+        for (var gitLabCommit : gitLabCommits) {
+            if (!savedShas.add(gitLabCommit.getSha())) {
+                continue;
+            }
+            var gitManagementUser = identities.findCommitAuthor(gitLabCommit);
+            if (gitManagementUser == null) {
+                continue;
+            }
+            String authorName = gitLabCommit.getAuthorEmail();
+            commits.add(new Commit(
+                    gitLabCommit.getSha(),
+                    gitLabCommit.getTitle(),
+                    authorName,
+                    gitLabCommit.getAuthorEmail(),
+                    authorName,
+                    gitLabCommit.getAuthorEmail(),
+                    gitLabCommit.getCreatedAt(),
+                    gitLabCommit.getWebUrl(),
+                    project,
+                    gitManagementUser
+            ));
+        }
+        return batchInsertService.insertAll(commits);
+    }
+
+    @Override
+    public int loadMergeRequestNotes(Project project, IdentityIndex identities, Map<MergeRequest, List<GitLabMergeRequestNote>> notes) {
+        var comments = new ArrayList<MergeRequestComment>();
+        notes.forEach((mergeRequest, gitLabNotes) -> {
+            if (gitLabNotes.isEmpty()) {
+                return;
+            }
+            var savedNoteIds = new HashSet<>(mergeRequestCommentRepository.findIidsByMergeRequestId(mergeRequest.getId()));
+            for (var gitLabNote : gitLabNotes) {
+                var gitManagementUser = identities.findByUsername(gitLabNote.getAuthor().getUsername());
+                if (gitManagementUser == null || !savedNoteIds.add(gitLabNote.getId())) {
+                    continue;
+                }
+                comments.add(new MergeRequestComment(
+                        gitLabNote.getId(),
+                        gitManagementUser,
+                        mergeRequest,
+                        BulkLoader.noteUrl(mergeRequest, gitLabNote),
+                        gitLabNote.getCreatedAt().toString()
+                ));
+            }
+        });
+        return batchInsertService.insertAll(comments);
+    }
+}
@@ -3,20 +3,36 @@ package com.eris.gitlabanalyzer.service;
 import com.eris.gitlabanalyzer.model.GitManagementUser;
 import com.eris.gitlabanalyzer.model.MergeRequest;
 import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabMergeRequest;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabMergeRequestNote;
+import com.eris.gitlabanalyzer.model.projection.MergeRequestSummary;
 import com.eris.gitlabanalyzer.repository.GitManagementUserRepository;
+import com.eris.gitlabanalyzer.repository.MergeRequestCommentRepository;
 import com.eris.gitlabanalyzer.repository.MergeRequestRepository;
 import com.eris.gitlabanalyzer.repository.ProjectRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class MergeRequestService {
     GitLabService gitLabService;
     MergeRequestRepository mergeRequestRepository;
+    MergeRequestCommentRepository mergeRequestCommentRepository;
     ProjectRepository projectRepository;
     GitManagementUserRepository gitManagementUserRepository;
+    SyncWatermarkService syncWatermarkService;
+    BatchInsertService batchInsertService;
+    BulkLoader bulkLoader;
+    IdentityIndexService identityIndexService;
 
     @Value("${gitlab.SERVER_URL}")
     String serverUrl;
@@ -24,38 +40,116 @@ public class MergeRequestService {
     @Value("${gitlab.ACCESS_TOKEN}")
     String accessToken;
 
-    public MergeRequestService(GitLabService gitLabService, MergeRequestRepository mergeRequestRepository, ProjectRepository projectRepository, GitManagementUserRepository gitManagementUserRepository) {
+    public MergeRequestService(GitLabService gitLabService, MergeRequestRepository mergeRequestRepository, MergeRequestCommentRepository mergeRequestCommentRepository,
+                               ProjectRepository projectRepository, GitManagementUserRepository gitManagementUserRepository, SyncWatermarkService syncWatermarkService,
+                               BatchInsertService batchInsertService, BulkLoader bulkLoader,
+                               IdentityIndexService identityIndexService) {
         this.gitLabService = gitLabService;
         this.mergeRequestRepository = mergeRequestRepository;
+        this.mergeRequestCommentRepository = mergeRequestCommentRepository;
         this.projectRepository = projectRepository;
         this.gitManagementUserRepository = gitManagementUserRepository;
+        this.syncWatermarkService = syncWatermarkService;
+        this.batchInsertService = batchInsertService;
+        this.bulkLoader = bulkLoader;
+        this.identityIndexService = identityIndexService;
     }
 
     public void saveMergeRequestInfo(Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
         Project project = projectRepository.findByGitlabProjectIdAndServerUrl(gitLabProjectId, serverUrl);
 
-        var gitLabMergeRequests = gitLabService.getMergeRequests(gitLabProjectId, startDateTime, endDateTime);
-        var gitLabMergeRequestList = gitLabMergeRequests.collectList().block();
-
-        if (gitLabMergeRequestList != null && !gitLabMergeRequestList.isEmpty()) {
-            gitLabMergeRequestList.forEach(gitLabMergeRequest -> {
-                        GitManagementUser gitManagementUser = gitManagementUserRepository.findByUserNameAndServerUrl(gitLabMergeRequest.getAuthor().getUsername(), serverUrl);
-                        MergeRequest mergeRequest = mergeRequestRepository.findByIidAndProjectId(gitLabMergeRequest.getIid(),project.getId());
-                        if(mergeRequest == null){
-                            mergeRequest = new MergeRequest(
-                                    gitLabMergeRequest.getIid(),
-                                    gitLabMergeRequest.getAuthor().getUsername(),
-                                    gitLabMergeRequest.getTitle(),
-                                    gitLabMergeRequest.getCreatedAt(),
-                                    gitLabMergeRequest.getWebUrl(),
-                                    project,
-                                    gitManagementUser
-                            );
-                        }
-                        mergeRequestRepository.save(mergeRequest);
+        // after the first sync only merge requests updated since the last one are fetched, new notes also update a merge request
+        var watermark = syncWatermarkService.getWatermark(project, startDateTime);
+        var updatedAfter = watermark.getLastMergeRequestUpdatedAt();
+        var lastNoteId = watermark.getLastNoteId();
+        var latestUpdatedAt = updatedAfter;
+        var latestNoteId = lastNoteId;
+        // notes skipped for an author we do not know yet hold both watermarks back, so they are fetched again
+        OffsetDateTime heldUpdatedAt = null;
+        Long heldNoteId = null;
+
+        var range = SyncWatermarkService.range(startDateTime, endDateTime);
+        var gitLabMergeRequestPages = gitLabService.getMergeRequestPages(gitLabProjectId, startDateTime, endDateTime, updatedAfter,
+                watermark.getMergeRequestCursor(range));
+
+        var identities = identityIndexService.load(project);
+        boolean allSaved = true;
+        for (var page : gitLabMergeRequestPages.toIterable()) {
+            var savedMergeRequests = mergeRequestRepository.findByProjectIdAndIidIn(project.getId(),
+                    page.getItems().stream().map(GitLabMergeRequest::getIid).collect(Collectors.toList())).stream()
+                    .collect(Collectors.toMap(MergeRequest::getIid, Function.identity()));
+            var newMergeRequests = new ArrayList<MergeRequest>();
+            var movedMergeRequests = new ArrayList<MergeRequest>();
+            var mergeRequests = new ArrayList<MergeRequest>();
+            for (var gitLabMergeRequest : page.getItems()) {
+                MergeRequest mergeRequest = savedMergeRequests.get(gitLabMergeRequest.getIid());
+                if(mergeRequest == null){
+                    GitManagementUser gitManagementUser = identities.findByUsername(gitLabMergeRequest.getAuthor().getUsername());
+                    mergeRequest = new MergeRequest(
+                            gitLabMergeRequest.getIid(),
+                            gitLabMergeRequest.getAuthor().getUsername(),
+                            gitLabMergeRequest.getTitle(),
+                            gitLabMergeRequest.getCreatedAt(),
+                            gitLabMergeRequest.getWebUrl(),
+                            project,
+                            gitManagementUser
+                    );
+                    mergeRequest.setHeadSha(gitLabMergeRequest.getSha());
+                    newMergeRequests.add(mergeRequest);
+                } else if (gitLabMergeRequest.getSha() != null && !gitLabMergeRequest.getSha().equals(mergeRequest.getHeadSha())) {
+                    // new commits were pushed to it since the last sync
+                    mergeRequest.setHeadSha(gitLabMergeRequest.getSha());
+                    movedMergeRequests.add(mergeRequest);
+                }
+                mergeRequests.add(mergeRequest);
+                latestUpdatedAt = SyncWatermarkService.latest(latestUpdatedAt, gitLabMergeRequest.getUpdatedAt());
+            }
+            batchInsertService.insertAll(newMergeRequests);
+            mergeRequestRepository.saveAll(movedMergeRequests);
+
+            var notes = new LinkedHashMap<MergeRequest, List<GitLabMergeRequestNote>>();
+            for (int i = 0; i < mergeRequests.size(); i++) {
+                var mergeRequest = mergeRequests.get(i);
+                var mergeRequestNotes = new ArrayList<GitLabMergeRequestNote>();
+                latestNoteId = SyncWatermarkService.latest(latestNoteId, collectMergeRequestNotes(gitLabProjectId, mergeRequest, lastNoteId, mergeRequestNotes));
+                notes.put(mergeRequest, mergeRequestNotes);
+                for (var note : mergeRequestNotes) {
+                    if (identities.findByUsername(note.getAuthor().getUsername()) == null) {
+                        heldUpdatedAt = SyncWatermarkService.earliest(heldUpdatedAt, page.getItems().get(i).getUpdatedAt());
+                        heldNoteId = SyncWatermarkService.earliest(heldNoteId, note.getId() - 1);
+                        allSaved = false;
                     }
-            );
+                }
+            }
+            bulkLoader.loadMergeRequestNotes(project, identities, notes);
+
+            // the cursor stops before the first page with skipped notes, a resumed sync must see them again
+            if (allSaved && page.getNextCursor() != null) {
+                watermark.setMergeRequestCursor(range, page.getNextCursor());
+                watermark = syncWatermarkService.save(watermark);
+            }
         }
+        watermark.setMergeRequestCursor(range, null);
+
+        // only moved once everything up to them is saved, a failed sync fetches the same delta again
+        watermark.setLastMergeRequestUpdatedAt(heldUpdatedAt != null ? SyncWatermarkService.earliest(latestUpdatedAt, heldUpdatedAt) : latestUpdatedAt);
+        watermark.setLastNoteId(heldNoteId != null ? SyncWatermarkService.earliest(latestNoteId, heldNoteId) : latestNoteId);
+        syncWatermarkService.save(watermark);
     }
 
+    // Adds the notes newer than lastNoteId to notes and returns the highest note id seen
+    private Long collectMergeRequestNotes(Long gitLabProjectId, MergeRequest mergeRequest, Long lastNoteId, List<GitLabMergeRequestNote> notes) {
+        Long latestNoteId = null;
+        for (var gitLabNote : gitLabService.getMergeRequestNotes(gitLabProjectId, mergeRequest.getIid()).toIterable()) {
+            latestNoteId = SyncWatermarkService.latest(latestNoteId, gitLabNote.getId());
+            if (lastNoteId == null || gitLabNote.getId() > lastNoteId) {
+                notes.add(gitLabNote);
+            }
+        }
+        return latestNoteId;
+    }
+
+    public Page<MergeRequestSummary> getMergeRequests(Long projectId, Pageable pageable) {
+        return mergeRequestRepository.findSummariesByProjectId(projectId, pageable);
+    }
 }
@@ -0,0 +1,157 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.MergeRequest;
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabMergeRequestNote;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Streams the rows into a temporary staging table with COPY FROM STDIN and moves them into the real table
+// with a single INSERT ... ON CONFLICT DO NOTHING, which also skips rows that are already saved. Authors are
+// matched through the identity index like the JPA loader does, rows without one are not copied at all.
+// The ids come from the same sequences Hibernate uses. Hibernate takes every value as the top of a pooled
+// block of ids, so a row added here uses up a whole block but never collides with an id handed out by JPA.
+public class PostgresCopyBulkLoader implements BulkLoader {
+    // flushed to the server in pieces of about this size
+    private static final int copyBufferSize = 1 << 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public PostgresCopyBulkLoader(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public int loadCommits(Project project, IdentityIndex identities, List<GitLabCommit> gitLabCommits) {
+        var commits = gitLabCommits.stream()
+                .filter(commit -> identities.findCommitAuthor(commit) != null)
+                .collect(Collectors.toList());
+        if (commits.isEmpty()) {
+            return 0;
+        }
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("create temporary table commit_staging (" +
+                    "sha text, title text, author_email text, git_management_user_id bigint, created_at timestamptz, web_url text" +
+                    ") on commit drop");
+            copy("copy commit_staging (sha, title, author_email, git_management_user_id, created_at, web_url) from stdin with (format csv)",
+                    commits, (row, commit) -> row
+                            .field(commit.getSha())
+                            .field(commit.getTitle())
+                            .field(commit.getAuthorEmail())
+                            .field(identities.findCommitAuthor(commit).getId())
+                            .field(commit.getCreatedAt())
+                            .field(commit.getWebUrl()));
+            return jdbcTemplate.update("insert into commit (commit_id, sha, title, author_name, author_email, committer_name, committer_email, " +
+                            "created_at, web_url, project_id, git_management_user_id) " +
+                            "select nextval('commit_sequence'), s.sha, s.title, s.author_email, s.author_email, s.author_email, s.author_email, " +
+                            "s.created_at, s.web_url, ?, s.git_management_user_id " +
+                            "from (select distinct on (sha) * from commit_staging order by sha) s " +
+                            "on conflict (sha, project_id) do nothing",
+                    project.getId());
+        });
+    }
+
+    @Override
+    public int loadMergeRequestNotes(Project project, IdentityIndex identities, Map<MergeRequest, List<GitLabMergeRequestNote>> notes) {
+        var rows = notes.entrySet().stream()
+                .flatMap(entry -> entry.getValue().stream().map(note -> Map.entry(entry.getKey(), note)))
+                .filter(note -> identities.findByUsername(note.getValue().getAuthor().getUsername()) != null)
+                .collect(Collectors.toList());
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("create temporary table merge_request_comment_staging (" +
+                    "note_id bigint, merge_request_id bigint, git_management_user_id bigint, web_url text, created_at text" +
+                    ") on commit drop");
+            copy("copy merge_request_comment_staging (note_id, merge_request_id, git_management_user_id, web_url, created_at) from stdin with (format csv)",
+                    rows, (row, note) -> row
+                            .field(note.getValue().getId())
+                            .field(note.getKey().getId())
+                            .field(identities.findByUsername(note.getValue().getAuthor().getUsername()).getId())
+                            .field(BulkLoader.noteUrl(note.getKey(), note.getValue()))
+                            .field(note.getValue().getCreatedAt().toString()));
+            return jdbcTemplate.update("insert into merge_request_comment (merge_request_comment_id, merge_request_comment_iid, " +
+                            "git_management_user_id, merge_request_id, web_url, created_at) " +
+                            "select nextval('merge_request_comment_sequence'), s.note_id, s.git_management_user_id, s.merge_request_id, s.web_url, s.created_at " +
+                            "from (select distinct on (note_id, merge_request_id) * from merge_request_comment_staging order by note_id, merge_request_id) s " +
+                            "on conflict (merge_request_comment_iid, merge_request_id) do nothing");
+        });
+    }
+
+    private <T> void copy(String sql, List<T> items, RowWriter<T> rowWriter) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+            try {
+                var row = new CsvRow();
+                for (T item : items) {
+                    rowWriter.write(row, item);
+                    row.end();
+                    if (row.length() >= copyBufferSize) {
+                        row.writeTo(copyIn);
+                    }
+                }
+                row.writeTo(copyIn);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+            return null;
+        });
+    }
+
+    private interface RowWriter<T> {
+        void write(CsvRow row, T item);
+    }
+
+    // CSV as COPY reads it: every value quoted, quotes doubled and an unquoted empty field for null
+    static class CsvRow {
+        private final StringBuilder buffer = new StringBuilder();
+        private boolean firstField = true;
+
+        CsvRow field(Object value) {
+            if (!firstField) {
+                buffer.append(',');
+            }
+            firstField = false;
+            if (value != null) {
+                buffer.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+            }
+            return this;
+        }
+
+        void end() {
+            buffer.append('\n');
+            firstField = true;
+        }
+
+        int length() {
+            return buffer.length();
+        }
+
+        String drain() {
+            var text = buffer.toString();
+            buffer.setLength(0);
+            return text;
+        }
+
+        void writeTo(CopyIn copyIn) throws SQLException {
+            var bytes = drain().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -3,21 +3,25 @@ package com.eris.gitlabanalyzer.service;
 import com.eris.gitlabanalyzer.model.Project;
 import com.eris.gitlabanalyzer.model.RawCommitData;
 import com.eris.gitlabanalyzer.model.RawMergeRequestData;
+import com.eris.gitlabanalyzer.model.RawTimeLineEvent;
 import com.eris.gitlabanalyzer.model.RawTimeLineProjectData;
 import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
 import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabMergeRequest;
+import com.eris.gitlabanalyzer.model.projection.ProjectSummary;
 import com.eris.gitlabanalyzer.repository.ProjectRepository;
 import com.eris.gitlabanalyzer.repository.ServerRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.time.OffsetDateTime;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,6 +29,7 @@ public class ProjectService {
     private final ProjectRepository projectRepository;
     private final ServerRepository serverRepository;
     private final GitLabService gitLabService;
+    private final GitMirrorService gitMirrorService;
 
     @Value("${gitlab.SERVER_URL}")
     String serverUrl;
@@ -32,10 +37,19 @@ public class ProjectService {
     @Value("${gitlab.ACCESS_TOKEN}")
     String accessToken;
 
-    public ProjectService(ProjectRepository projectRepository, ServerRepository serverRepository, GitLabService gitLabService) {
+    // "rest" (default) asks GitLab for every diff, "mirror" computes them from a local clone of the project
+    @Value("${gitlab.DIFF_BACKEND:rest}")
+    String diffBackend;
+
+    // Merge requests / orphan commits assembled ahead of what a streaming client has read
+    @Value("${gitlab.STREAM_CONCURRENCY:4}")
+    int streamConcurrency;
+
+    public ProjectService(ProjectRepository projectRepository, ServerRepository serverRepository, GitLabService gitLabService, GitMirrorService gitMirrorService) {
         this.projectRepository = projectRepository;
         this.serverRepository = serverRepository;
         this.gitLabService = gitLabService;
+        this.gitMirrorService = gitMirrorService;
     }
 
 
@@ -59,65 +73,109 @@ public class ProjectService {
     }
 
     public RawTimeLineProjectData getTimeLineProjectData(Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
-        var mergeRequests = gitLabService.getMergeRequests(gitLabProjectId, startDateTime, endDateTime);
+        return fetchTimeLineProjectData(gitLabProjectId, startDateTime, endDateTime).block();
+    }
 
-        // for all items in mergeRequests call get commits
-            // for all items in commits call get diff
-            // for all items in merge request get diff
-        var rawMergeRequestData = mergeRequests
-                .parallel()
-                .runOn(Schedulers.boundedElastic())
-                .map((mergeRequest) -> getRawMergeRequestData(mergeRequest, gitLabProjectId))
-                .sorted((mr1, mr2) -> (int)(mr1.getGitLabMergeRequest().getIid() - mr2.getGitLabMergeRequest().getIid()));
+    // Every GitLab result is requested once and held in the returned data, so serializing it does no further I/O
+    public Mono<RawTimeLineProjectData> fetchTimeLineProjectData(Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        return fetchTimeLineProjectData(gitLabProjectId, startDateTime, endDateTime, TimeLineProgressListener.NONE);
+    }
 
+    public Mono<RawTimeLineProjectData> fetchTimeLineProjectData(Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime,
+                                                                 TimeLineProgressListener progress) {
+        // for all items in mergeRequests get commits with their diffs and the merge request diff
+        var rawMergeRequestData = gitLabService.getMergeRequests(gitLabProjectId, startDateTime, endDateTime)
+                .collectList()
+                .doOnNext(mergeRequests -> progress.mergeRequestsFound(mergeRequests.size()))
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(mergeRequest -> getRawMergeRequestData(mergeRequest, gitLabProjectId, progress))
+                .doOnNext(mergeRequest -> progress.mergeRequestDone())
+                .sort(Comparator.comparing(mr -> mr.getGitLabMergeRequest().getIid()))
+                .collectList();
+        var commits = gitLabService.getCommits(gitLabProjectId, startDateTime, endDateTime).collectList();
 
         // for all commits NOT in merge commits get diff
-        var mergeRequestCommitIds = getMergeRequestCommitIds(rawMergeRequestData);
-        var commits = gitLabService.getCommits(gitLabProjectId, startDateTime, endDateTime);
-        var orphanCommits = getOrphanCommits(commits, mergeRequestCommitIds);
-        var rawOrphanCommitData = orphanCommits
-                .parallel()
-                .runOn(Schedulers.boundedElastic())
-                .map((commit) -> getRawCommitData(commit, gitLabProjectId))
-                .sorted(Comparator.comparing(c -> c.getGitLabCommit().getCreatedAt()));
-
-        var rawProjectData = new RawTimeLineProjectData(gitLabProjectId, startDateTime, endDateTime, rawMergeRequestData, rawOrphanCommitData);
-
-        return rawProjectData;
+        return Mono.zip(rawMergeRequestData, commits).flatMap(mergeRequestsAndCommits -> {
+            var mergeRequestData = mergeRequestsAndCommits.getT1();
+            var mergeRequestCommitIds = getMergeRequestCommitIds(mergeRequestData);
+
+            return Flux.fromIterable(mergeRequestsAndCommits.getT2())
+                    .filter(gitLabCommit -> !mergeRequestCommitIds.contains(gitLabCommit.getSha()))
+                    .collectList()
+                    .doOnNext(orphanCommits -> progress.commitsFound(orphanCommits.size()))
+                    .flatMapMany(Flux::fromIterable)
+                    .flatMap(commit -> getRawCommitData(commit, gitLabProjectId, progress))
+                    .sort(Comparator.comparing(c -> c.getGitLabCommit().getCreatedAt()))
+                    .collectList()
+                    .map(orphanCommitData -> new RawTimeLineProjectData(gitLabProjectId, startDateTime, endDateTime, mergeRequestData, orphanCommitData));
+        });
     }
 
+    // Same data as fetchTimeLineProjectData, but each merge request and orphan commit is emitted as soon as it is ready
+    // and only as fast as the client reads, so the whole timeline is never held at once
+    public Flux<RawTimeLineEvent> streamTimeLineProjectData(Long gitLabProjectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        return Flux.defer(() -> {
+            Set<String> mergeRequestCommitIds = ConcurrentHashMap.newKeySet();
+            var commits = gitLabService.getCommits(gitLabProjectId, startDateTime, endDateTime).collectList().cache();
+
+            var mergeRequestEvents = gitLabService.getMergeRequests(gitLabProjectId, startDateTime, endDateTime)
+                    .flatMap(mergeRequest -> getRawMergeRequestData(mergeRequest, gitLabProjectId, TimeLineProgressListener.NONE), streamConcurrency)
+                    .doOnNext(mergeRequest -> mergeRequest.getRawCommitData()
+                            .forEach(commit -> mergeRequestCommitIds.add(commit.getGitLabCommit().getSha())))
+                    .map(RawTimeLineEvent::mergeRequest);
+
+            // orphans are only known once every merge request is in
+            var orphanCommitEvents = commits
+                    .flatMapMany(Flux::fromIterable)
+                    .filter(gitLabCommit -> !mergeRequestCommitIds.contains(gitLabCommit.getSha()))
+                    .flatMapSequential(commit -> getRawCommitData(commit, gitLabProjectId, TimeLineProgressListener.NONE), streamConcurrency)
+                    .map(RawTimeLineEvent::orphanCommit);
+
+            // the commit list is fetched while the merge requests stream
+            return mergeRequestEvents
+                    .mergeWith(commits.then(Mono.<RawTimeLineEvent>empty()))
+                    .concatWith(orphanCommitEvents);
+        });
+    }
 
-    private RawMergeRequestData getRawMergeRequestData(GitLabMergeRequest mergeRequest, Long gitLabProjectId) {
-        var gitLabCommits = gitLabService.getMergeRequestCommits(gitLabProjectId, mergeRequest.getIid());
-        var rawCommitData = gitLabCommits
-                .parallel()
-                .runOn(Schedulers.boundedElastic())
-                .map((commit) -> getRawCommitData(commit, gitLabProjectId))
-                .sorted(Comparator.comparing(c -> c.getGitLabCommit().getCreatedAt()));
-
-        var gitLabDiff = gitLabService.getMergeRequestDiff(gitLabProjectId, mergeRequest.getIid());
-
-        var rawMergeRequestData = new RawMergeRequestData(rawCommitData, gitLabDiff, mergeRequest);
-        return rawMergeRequestData;
+    private Mono<RawMergeRequestData> getRawMergeRequestData(GitLabMergeRequest mergeRequest, Long gitLabProjectId, TimeLineProgressListener progress) {
+        var rawCommitData = gitLabService.getMergeRequestCommits(gitLabProjectId, mergeRequest.getIid())
+                .collectList()
+                .doOnNext(commits -> progress.commitsFound(commits.size()))
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(commit -> getRawCommitData(commit, gitLabProjectId, progress))
+                .sort(Comparator.comparing(c -> c.getGitLabCommit().getCreatedAt()))
+                .collectList();
+
+        var gitLabDiff = isMirrorBackend()
+                ? gitMirrorService.getMergeRequestDiff(gitLabProjectId, mergeRequest)
+                : gitLabService.getMergeRequestDiff(gitLabProjectId, mergeRequest.getIid());
+
+        return Mono.zip(rawCommitData, gitLabDiff.collectList())
+                .map(commitsAndDiff -> new RawMergeRequestData(commitsAndDiff.getT1(), commitsAndDiff.getT2(), mergeRequest));
     }
 
-    private RawCommitData getRawCommitData(GitLabCommit commit, Long gitLabProjectId) {
-        var changes = gitLabService.getCommitDiff(gitLabProjectId, commit.getSha());
-        var rawCommitData = new RawCommitData(commit, changes);
-        return rawCommitData;
+    private Mono<RawCommitData> getRawCommitData(GitLabCommit commit, Long gitLabProjectId, TimeLineProgressListener progress) {
+        var changes = isMirrorBackend()
+                ? gitMirrorService.getCommitDiff(gitLabProjectId, commit.getSha())
+                : gitLabService.getCommitDiff(gitLabProjectId, commit.getSha());
+        return changes.collectList()
+                .map(diff -> new RawCommitData(commit, diff))
+                .doOnNext(commitData -> progress.commitDone());
     }
 
-    private Mono<Set<String>> getMergeRequestCommitIds(Flux<RawMergeRequestData> mergeRequestData) {
-        return mergeRequestData.flatMap(mergeRequest -> mergeRequest.getFluxRawCommitData())
-                .map(commit -> commit.getFluxGitLabCommit().getSha())
-                .collect(Collectors.toSet());
+    private boolean isMirrorBackend() {
+        return "mirror".equalsIgnoreCase(diffBackend);
     }
 
-    private Flux<GitLabCommit> getOrphanCommits(Flux<GitLabCommit> commits, Mono<Set<String>> mrCommitIds) {
-        return mrCommitIds.flatMapMany(commitIds -> commits.filter(gitLabCommit -> !commitIds.contains(gitLabCommit.getSha())));
+    private static Set<String> getMergeRequestCommitIds(List<RawMergeRequestData> mergeRequestData) {
+        return mergeRequestData.stream()
+                .flatMap(mergeRequest -> mergeRequest.getRawCommitData().stream())
+                .map(commit -> commit.getGitLabCommit().getSha())
+                .collect(Collectors.toSet());
     }
 
-    public List<Project> getProjects() {
-        return projectRepository.findAll();
+    public Page<ProjectSummary> getProjects(Pageable pageable) {
+        return projectRepository.findAllProjectedBy(pageable);
     }
 }
@@ -0,0 +1,112 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.cache.ScoreCache;
+import com.eris.gitlabanalyzer.dataprocessing.CompiledScoreProfile;
+import com.eris.gitlabanalyzer.model.ScoreProfile;
+import com.eris.gitlabanalyzer.model.projection.ScoreProfileVersion;
+import com.eris.gitlabanalyzer.repository.ScoreProfileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Compiled score profiles by id. Scoring only reads from the map, which never locks, and ScoreProfileService replaces
+// a profile with a newly compiled one whenever it is saved, so scoring sees either the old or the new weights.
+// Profiles edited or deleted on another backend node are noticed by polling the saved versions in the background.
+@Component
+public class ScoreProfileRegistry {
+    private static final Logger log = LoggerFactory.getLogger(ScoreProfileRegistry.class);
+
+    private final ScoreProfileRepository scoreProfileRepository;
+    private final ScoreCache scoreCache;
+    private final ConcurrentMap<Long, CompiledScoreProfile> profiles = new ConcurrentHashMap<>();
+
+    @Value("${gitlab.SCORE_PROFILE_POLL_SECONDS:30}")
+    long pollSeconds;
+
+    private Disposable poll;
+
+    public ScoreProfileRegistry(ScoreProfileRepository scoreProfileRepository, ScoreCache scoreCache) {
+        this.scoreProfileRepository = scoreProfileRepository;
+        this.scoreCache = scoreCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (ScoreProfile scoreProfile : scoreProfileRepository.findAllWithExtensionWeightsBy()) {
+            profiles.putIfAbsent(scoreProfile.getId(), CompiledScoreProfile.compile(scoreProfile));
+        }
+        poll = Schedulers.boundedElastic().schedulePeriodically(this::pollVersions, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (poll != null) {
+            poll.dispose();
+        }
+    }
+
+    // The default weights for null
+    public CompiledScoreProfile get(Long scoreProfileId) {
+        if (scoreProfileId == null) {
+            return CompiledScoreProfile.DEFAULT;
+        }
+        var compiled = profiles.get(scoreProfileId);
+        if (compiled != null) {
+            return compiled;
+        }
+
+        // created by another node since the last poll, only looked up once
+        var loaded = scoreProfileRepository.findWithExtensionWeightsById(scoreProfileId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Profile not found for this id : " + scoreProfileId));
+        return publish(loaded);
+    }
+
+    // Keeps whichever of the compiled and the given profile is newer
+    public CompiledScoreProfile publish(ScoreProfile scoreProfile) {
+        var compiled = CompiledScoreProfile.compile(scoreProfile);
+        var published = profiles.merge(scoreProfile.getId(), compiled,
+                (current, candidate) -> current.getVersion() >= candidate.getVersion() ? current : candidate);
+        if (published == compiled) {
+            // the new version is never looked up with the old scores, this only frees them early
+            scoreCache.evictProfile(scoreProfile.getId());
+        }
+        return published;
+    }
+
+    public void remove(Long scoreProfileId) {
+        profiles.remove(scoreProfileId);
+        scoreCache.evictProfile(scoreProfileId);
+    }
+
+    // Drops the profiles deleted and recompiles the ones edited elsewhere, one query when nothing changed
+    public void pollVersions() {
+        try {
+            var versions = scoreProfileRepository.findAllVersions().stream()
+                    .collect(Collectors.toMap(ScoreProfileVersion::getId, ScoreProfileVersion::getVersion));
+            profiles.forEach((id, compiled) -> {
+                var version = versions.get(id);
+                if (version == null) {
+                    remove(id);
+                } else if (version > compiled.getVersion()) {
+                    scoreProfileRepository.findWithExtensionWeightsById(id).ifPresentOrElse(this::publish, () -> remove(id));
+                }
+            });
+        } catch (RuntimeException e) {
+            // the next poll tries again
+            log.warn("Could not poll the score profile versions", e);
+        }
+    }
+}
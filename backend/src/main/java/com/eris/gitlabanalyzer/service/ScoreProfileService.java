@@ -11,9 +11,11 @@ import java.util.List;
 public class ScoreProfileService {
 
     private final ScoreProfileRepository scoreProfileRepository;
+    private final ScoreProfileRegistry scoreProfileRegistry;
 
-    public ScoreProfileService(ScoreProfileRepository scoreProfileRepository) {
+    public ScoreProfileService(ScoreProfileRepository scoreProfileRepository, ScoreProfileRegistry scoreProfileRegistry) {
         this.scoreProfileRepository = scoreProfileRepository;
+        this.scoreProfileRegistry = scoreProfileRegistry;
     }
 
     public List<ScoreProfile> getScoreProfiles(){
@@ -27,20 +29,28 @@ public class ScoreProfileService {
 
 
     public ScoreProfile createScoreProfile(ScoreProfile scoreProfile){
-        return this.scoreProfileRepository.save(scoreProfile);
+        ScoreProfile savedProfile = this.scoreProfileRepository.save(scoreProfile);
+        scoreProfileRegistry.publish(savedProfile);
+        return savedProfile;
     }
 
     public ScoreProfile updateScoreProfile( Long id, ScoreProfile scoreProfile) {
 
         ScoreProfile oldProfile =  scoreProfileRepository.findById(id).orElseThrow(()->new ResponseStatusException(HttpStatus.NOT_FOUND, "Profile not found for this id : " + id));
         scoreProfile.setId(oldProfile.getId());
-        return this.scoreProfileRepository.save(scoreProfile);
+        // the request does not know the version, the edit always wins over the saved weights
+        scoreProfile.setVersion(oldProfile.getVersion());
+        ScoreProfile savedProfile = this.scoreProfileRepository.save(scoreProfile);
+        // scoring picks up the new weights once they are saved
+        scoreProfileRegistry.publish(savedProfile);
+        return savedProfile;
     }
 
 
     public Long deleteScoreProfile( Long id) {
         ScoreProfile scoreProfile = scoreProfileRepository.findById(id).orElseThrow(() ->new ResponseStatusException(HttpStatus.NOT_FOUND, "Profile not found for this id : " + id));
         scoreProfileRepository.delete(scoreProfile);
+        scoreProfileRegistry.remove(id);
         return id;
     }
 
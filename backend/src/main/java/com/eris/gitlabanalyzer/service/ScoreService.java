@@ -1,57 +1,194 @@
 package com.eris.gitlabanalyzer.service;
 
+import com.eris.gitlabanalyzer.cache.CommitDiffCache;
+import com.eris.gitlabanalyzer.cache.ScoreCache;
+import com.eris.gitlabanalyzer.dataprocessing.CompiledScoreProfile;
 import com.eris.gitlabanalyzer.dataprocessing.DiffScoreCalculator;
+import com.eris.gitlabanalyzer.model.DiffLineCounts;
+import com.eris.gitlabanalyzer.model.FileLineCounts;
 import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
-import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabFileChange;
 import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabMergeRequest;
+import com.eris.gitlabanalyzer.repository.DiffLineCountsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+// Diffs are only fetched and parsed the first time they are scored, after that their saved line counts are weighed.
+// Weighed scores are kept in the ScoreCache until the profile they were weighed with changes.
 @Service
 public class ScoreService {
 
     private final GitLabService gitLabService;
     private final DiffScoreCalculator diffScoreCalculator;
+    private final DiffLineCountsRepository diffLineCountsRepository;
+    private final ScoreProfileRegistry scoreProfileRegistry;
+    private final ScoreCache scoreCache;
+
+    @Value("${gitlab.SERVER_URL}")
+    String serverUrl;
 
     @Autowired
-    public ScoreService(GitLabService gitLabService, DiffScoreCalculator diffScoreCalculator){
+    public ScoreService(GitLabService gitLabService, DiffScoreCalculator diffScoreCalculator, DiffLineCountsRepository diffLineCountsRepository,
+                        ScoreProfileRegistry scoreProfileRegistry, ScoreCache scoreCache){
         this.diffScoreCalculator = diffScoreCalculator;
         this.gitLabService = gitLabService;
+        this.diffLineCountsRepository = diffLineCountsRepository;
+        this.scoreProfileRegistry = scoreProfileRegistry;
+        this.scoreCache = scoreCache;
     }
 
-    // This will most likely change as we update how we retrieve diff's
-    public int getMergeDiffScore(Long projectId, Long mergeRequestIid){
-        Iterable<GitLabFileChange> mr = gitLabService.getMergeRequestDiff(projectId, mergeRequestIid).toIterable();
-        return diffScoreCalculator.calculateScore(mr);
+    // A null scoreProfileId scores with the default weights
+    public double getMergeDiffScore(Long projectId, Long mergeRequestIid, Long scoreProfileId){
+        CompiledScoreProfile scoreProfile = scoreProfileRegistry.get(scoreProfileId);
+        GitLabMergeRequest mergeRequest = gitLabService.getMergeRequest(projectId, mergeRequestIid).block();
+        return getMergeRequestScores(projectId, List.of(mergeRequest), scoreProfile, TimeLineProgressListener.NONE).get(mergeRequestIid);
     }
 
-    // This will most likely change as we update how we retrieve diff's
-    public int getTotalMergeDiffScore(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime){
-        Iterable<GitLabMergeRequest> mergeRequests = gitLabService.getMergeRequests(projectId, startDateTime, endDateTime).toIterable();
-        int totalScore = 0;
-        for( GitLabMergeRequest mr : mergeRequests){
-          totalScore += diffScoreCalculator.calculateScore(gitLabService.getMergeRequestDiff(projectId, mr.getIid()).toIterable());
-        }
+    public double getTotalMergeDiffScore(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime, Long scoreProfileId){
+        return getTotalMergeDiffScore(projectId, startDateTime, endDateTime, scoreProfileId, TimeLineProgressListener.NONE);
+    }
 
+    // progress is told about each merge request once it is scored
+    public double getTotalMergeDiffScore(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime, Long scoreProfileId,
+                                         TimeLineProgressListener progress){
+        CompiledScoreProfile scoreProfile = scoreProfileRegistry.get(scoreProfileId);
+        List<GitLabMergeRequest> mergeRequests = gitLabService.getMergeRequests(projectId, startDateTime, endDateTime).collectList().block();
+        progress.mergeRequestsFound(mergeRequests.size());
+        double totalScore = 0;
+        for(double score : getMergeRequestScores(projectId, mergeRequests, scoreProfile, progress).values()){
+            totalScore += score;
+        }
         return totalScore;
     }
 
-    // This will most likely change as we update how we retrieve diff's
-    public int getCommitDiffScore(Long projectId, String sha){
-        Iterable<GitLabFileChange> commit = gitLabService.getCommitDiff(projectId, sha).toIterable();
-        return diffScoreCalculator.calculateScore(commit);
+    public double getCommitDiffScore(Long projectId, String sha, Long scoreProfileId){
+        CompiledScoreProfile scoreProfile = scoreProfileRegistry.get(scoreProfileId);
+        return getCommitScores(projectId, List.of(sha), scoreProfile, TimeLineProgressListener.NONE).get(sha);
+    }
+
+    public double getTotalCommitDiffScore(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime, Long scoreProfileId) {
+        return getTotalCommitDiffScore(projectId, startDateTime, endDateTime, scoreProfileId, TimeLineProgressListener.NONE);
     }
 
-    // This will most likely change as we update how we retrieve diff's
-    public int getTotalCommitDiffScore(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
-        Iterable<GitLabCommit> commits = gitLabService.getCommits(projectId, startDateTime, endDateTime).toIterable();
-        int totalScore = 0;
-        for (GitLabCommit commit : commits) {
-            totalScore += diffScoreCalculator.calculateScore(gitLabService.getCommitDiff(projectId, commit.getSha()).toIterable());
+    // progress is told about each commit once it is scored
+    public double getTotalCommitDiffScore(Long projectId, OffsetDateTime startDateTime, OffsetDateTime endDateTime, Long scoreProfileId,
+                                          TimeLineProgressListener progress) {
+        CompiledScoreProfile scoreProfile = scoreProfileRegistry.get(scoreProfileId);
+        List<String> shas = gitLabService.getCommits(projectId, startDateTime, endDateTime)
+                .map(GitLabCommit::getSha)
+                .collectList()
+                .block();
+        progress.commitsFound(shas.size());
+        double totalScore = 0;
+        for(double score : getCommitScores(projectId, shas, scoreProfile, progress).values()){
+            totalScore += score;
         }
         return totalScore;
     }
 
+    // Scores already weighed with this profile come from the score cache, only the others need their line counts
+    private Map<String, Double> getCommitScores(Long projectId, List<String> shas, CompiledScoreProfile scoreProfile, TimeLineProgressListener progress){
+        Map<String, Double> scores = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for(String sha : shas){
+            Double score = scoreCache.getCommitScoreIfPresent(serverUrl, projectId, sha, scoreProfile);
+            if(score != null){
+                scores.put(sha, score);
+                progress.commitDone();
+            } else {
+                uncached.add(sha);
+            }
+        }
+        getCommitLineCounts(projectId, uncached).forEach((sha, files) -> {
+            double score = scoreProfile.weigh(files);
+            scoreCache.putCommitScore(serverUrl, projectId, sha, scoreProfile, score);
+            scores.put(sha, score);
+            progress.commitDone();
+        });
+        return scores;
+    }
+
+    private Map<Long, Double> getMergeRequestScores(Long projectId, List<GitLabMergeRequest> mergeRequests, CompiledScoreProfile scoreProfile,
+                                                    TimeLineProgressListener progress){
+        Map<Long, Double> scores = new HashMap<>();
+        List<GitLabMergeRequest> uncached = new ArrayList<>();
+        for(GitLabMergeRequest mergeRequest : mergeRequests){
+            Double score = scoreCache.getMergeRequestScoreIfPresent(serverUrl, projectId, mergeRequest.getIid(), mergeRequest.getSha(), scoreProfile);
+            if(score != null){
+                scores.put(mergeRequest.getIid(), score);
+                progress.mergeRequestDone();
+            } else {
+                uncached.add(mergeRequest);
+            }
+        }
+        Map<Long, List<FileLineCounts>> lineCounts = getMergeRequestLineCounts(projectId, uncached);
+        for(GitLabMergeRequest mergeRequest : uncached){
+            double score = scoreProfile.weigh(lineCounts.get(mergeRequest.getIid()));
+            scoreCache.putMergeRequestScore(serverUrl, projectId, mergeRequest.getIid(), mergeRequest.getSha(), scoreProfile, score);
+            scores.put(mergeRequest.getIid(), score);
+            progress.mergeRequestDone();
+        }
+        return scores;
+    }
+
+    // Line counts of each commit by sha, diffs that were not counted before are fetched and counted now
+    public Map<String, List<FileLineCounts>> getCommitLineCounts(Long projectId, List<String> shas){
+        if(shas.isEmpty()){
+            return Map.of();
+        }
+        Map<String, List<FileLineCounts>> saved = diffLineCountsRepository.findCommitLineCounts(serverUrl, projectId, shas).stream()
+                .collect(Collectors.toMap(DiffLineCounts::getSha, DiffLineCounts::getFiles));
+
+        return shas.stream().distinct().collect(Collectors.toMap(Function.identity(), sha -> {
+            var files = saved.get(sha);
+            if(files != null){
+                return files;
+            }
+            files = diffScoreCalculator.countLines(gitLabService.getCommitDiff(projectId, sha).toIterable());
+            if(CommitDiffCache.isCacheable(sha)){
+                saveIfAbsent(new DiffLineCounts(serverUrl, projectId, sha, DiffLineCounts.COMMIT, files));
+            }
+            return files;
+        }));
+    }
+
+    // Line counts of each merge request by iid, counted again once new commits are pushed to it
+    public Map<Long, List<FileLineCounts>> getMergeRequestLineCounts(Long projectId, List<GitLabMergeRequest> mergeRequests){
+        if(mergeRequests.isEmpty()){
+            return Map.of();
+        }
+        List<String> headShas = mergeRequests.stream().map(GitLabMergeRequest::getSha).collect(Collectors.toList());
+        Map<String, List<FileLineCounts>> saved = diffLineCountsRepository.findMergeRequestLineCounts(serverUrl, projectId, headShas).stream()
+                .collect(Collectors.toMap(counts -> counts.getMergeRequestIid() + "/" + counts.getSha(), DiffLineCounts::getFiles));
+
+        return mergeRequests.stream().collect(Collectors.toMap(GitLabMergeRequest::getIid, mergeRequest -> {
+            var files = saved.get(mergeRequest.getIid() + "/" + mergeRequest.getSha());
+            if(files != null){
+                return files;
+            }
+            files = diffScoreCalculator.countLines(gitLabService.getMergeRequestDiff(projectId, mergeRequest.getIid()).toIterable());
+            if(mergeRequest.getSha() != null){
+                saveIfAbsent(new DiffLineCounts(serverUrl, projectId, mergeRequest.getSha(), mergeRequest.getIid(), files));
+            }
+            return files;
+        }, (first, second) -> first));
+    }
+
+    // Two threads counting the same diff at once both try to save it, the counts are equal and the first one is kept
+    private void saveIfAbsent(DiffLineCounts lineCounts){
+        try {
+            diffLineCountsRepository.save(lineCounts);
+        } catch (DataIntegrityViolationException e) {
+            // already saved by the other thread
+        }
+    }
 }
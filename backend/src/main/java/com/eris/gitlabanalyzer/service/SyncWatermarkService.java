@@ -0,0 +1,73 @@
+package com.eris.gitlabanalyzer.service;
+
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.model.SyncWatermark;
+import com.eris.gitlabanalyzer.repository.SyncWatermarkRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+
+@Service
+public class SyncWatermarkService {
+    private final SyncWatermarkRepository syncWatermarkRepository;
+
+    public SyncWatermarkService(SyncWatermarkRepository syncWatermarkRepository) {
+        this.syncWatermarkRepository = syncWatermarkRepository;
+    }
+
+    // Watermarks for syncing the project from startDateTime on. If what was synced before does not reach back that far,
+    // they are cleared so everything in the range is fetched once more.
+    public SyncWatermark getWatermark(Project project, OffsetDateTime startDateTime) {
+        var watermark = syncWatermarkRepository.findByProjectId(project.getId());
+        if (watermark == null) {
+            watermark = new SyncWatermark(project);
+        }
+        if (!watermark.covers(startDateTime)) {
+            watermark.setSyncedFrom(startDateTime);
+            watermark.setLastPushEventId(null);
+            watermark.setCommitsListedUntil(null);
+            watermark.setLastMergeRequestUpdatedAt(null);
+            watermark.setLastNoteId(null);
+            watermark.setCommitCursor(null, null);
+            watermark.setMergeRequestCursor(null, null);
+        }
+        return watermark;
+    }
+
+    public SyncWatermark save(SyncWatermark watermark) {
+        return syncWatermarkRepository.save(watermark);
+    }
+
+    // Identifies the date range a resume cursor was saved for
+    static String range(OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        return startDateTime.toInstant() + "/" + endDateTime.toInstant();
+    }
+
+    static OffsetDateTime latest(OffsetDateTime first, OffsetDateTime second) {
+        if (first == null) {
+            return second;
+        }
+        return second != null && second.isAfter(first) ? second : first;
+    }
+
+    static Long latest(Long first, Long second) {
+        if (first == null) {
+            return second;
+        }
+        return second != null && second > first ? second : first;
+    }
+
+    static OffsetDateTime earliest(OffsetDateTime first, OffsetDateTime second) {
+        if (first == null) {
+            return second;
+        }
+        return second != null && second.isBefore(first) ? second : first;
+    }
+
+    static Long earliest(Long first, Long second) {
+        if (first == null) {
+            return second;
+        }
+        return second != null && second < first ? second : first;
+    }
+}
@@ -0,0 +1,19 @@
+package com.eris.gitlabanalyzer.service;
+
+// Told how far ProjectService has got with a timeline, or ScoreService with a score total. The commit total of a
+// timeline grows as merge request commit lists and the orphan commits become known.
+public interface TimeLineProgressListener {
+    TimeLineProgressListener NONE = new TimeLineProgressListener() {};
+
+    default void mergeRequestsFound(int count) {
+    }
+
+    default void mergeRequestDone() {
+    }
+
+    default void commitsFound(int count) {
+    }
+
+    default void commitDone() {
+    }
+}
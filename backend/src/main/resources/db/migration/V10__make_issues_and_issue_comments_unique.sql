@@ -0,0 +1,15 @@
+-- Two nodes applying the same webhook delivery could both save its issue or note. Comments of a duplicate issue move
+-- to the first one, then the duplicates are dropped and unique keys keep them out.
+
+update issue_comment set issue_id = (
+    select min(o.issue_id) from issue o, issue i where i.issue_id = issue_comment.issue_id
+        and o.project_id = i.project_id and o.issue_iid = i.issue_iid);
+delete from issue_comment c where exists (
+    select 1 from issue_comment o where o.issue_id = c.issue_id and o.issue_comment_iid = c.issue_comment_iid
+        and o.issue_comment_id < c.issue_comment_id);
+delete from issue i where exists (
+    select 1 from issue o where o.project_id = i.project_id and o.issue_iid = i.issue_iid and o.issue_id < i.issue_id);
+
+drop index issue_project_id_iid_idx;
+alter table issue add constraint issue_project_id_iid_key unique (project_id, issue_iid);
+alter table issue_comment add constraint issue_comment_issue_id_iid_key unique (issue_id, issue_comment_iid);
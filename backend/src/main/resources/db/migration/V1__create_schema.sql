@@ -0,0 +1,210 @@
+-- Schema as it was generated by Hibernate before migrations were introduced
+
+create sequence user_sequence start with 1 increment by 1;
+create sequence server_sequence start with 1 increment by 1;
+create sequence project_sequence start with 1 increment by 50;
+create sequence git_management_user_sequence start with 1 increment by 50;
+create sequence merge_request_sequence start with 1 increment by 50;
+create sequence merge_request_comment_sequence start with 1 increment by 50;
+create sequence commit_sequence start with 1 increment by 50;
+create sequence commit_comment_sequence start with 1 increment by 50;
+create sequence commit_mapping_sequence start with 1 increment by 50;
+create sequence issue_sequence start with 1 increment by 50;
+create sequence issue_comment_sequence start with 1 increment by 50;
+create sequence score_profile_id_seq start with 1 increment by 1;
+create sequence sync_watermark_sequence start with 1 increment by 1;
+create sequence ingestion_task_sequence start with 1 increment by 1;
+
+create table app_user (
+    user_id int8 not null,
+    username varchar(255),
+    primary key (user_id)
+);
+
+create table server (
+    server_id int8 not null,
+    server_url varchar(255),
+    primary key (server_id)
+);
+
+create table user_server (
+    id bigserial not null,
+    access_token varchar(255),
+    server_id int8 not null,
+    user_id int8 not null,
+    primary key (id),
+    constraint user_server_server_id_fk foreign key (server_id) references server,
+    constraint user_server_user_id_fk foreign key (user_id) references app_user
+);
+
+create table project (
+    project_id int8 not null,
+    gitlab_project_id int8 not null,
+    name varchar(255) not null,
+    name_with_namespace varchar(255) not null,
+    web_url varchar(255) not null,
+    server_id int8 not null,
+    primary key (project_id),
+    constraint project_server_id_project_id_key unique (server_id, project_id),
+    constraint project_server_id_fk foreign key (server_id) references server
+);
+
+create table git_management_user (
+    git_management_user_id int8 not null,
+    name varchar(255) not null,
+    score float4 not null,
+    username varchar(255) not null,
+    server_id int8 not null,
+    primary key (git_management_user_id),
+    constraint git_management_user_server_id_fk foreign key (server_id) references server
+);
+
+create table member (
+    git_management_user_id int8 not null,
+    project_id int8 not null,
+    primary key (git_management_user_id, project_id),
+    constraint member_git_management_user_id_fk foreign key (git_management_user_id) references git_management_user,
+    constraint member_project_id_fk foreign key (project_id) references project
+);
+
+create table merge_request (
+    merge_request_id int8 not null,
+    author_username varchar(255) not null,
+    created_at timestamp not null,
+    merge_request_iid int8,
+    title varchar(255) not null,
+    web_url varchar(255) not null,
+    git_management_user_id int8 not null,
+    project_id int8 not null,
+    primary key (merge_request_id),
+    constraint merge_request_git_management_user_id_fk foreign key (git_management_user_id) references git_management_user,
+    constraint merge_request_project_id_fk foreign key (project_id) references project
+);
+
+create table merge_request_comment (
+    merge_request_comment_id int8 not null,
+    created_at varchar(255) not null,
+    merge_request_comment_iid int8 not null,
+    web_url varchar(255) not null,
+    git_management_user_id int8 not null,
+    merge_request_id int8 not null,
+    primary key (merge_request_comment_id),
+    constraint merge_request_comment_iid_merge_request_id_key unique (merge_request_comment_iid, merge_request_id),
+    constraint merge_request_comment_git_management_user_id_fk foreign key (git_management_user_id) references git_management_user,
+    constraint merge_request_comment_merge_request_id_fk foreign key (merge_request_id) references merge_request
+);
+
+create table commit (
+    commit_id int8 not null,
+    author_email varchar(255) not null,
+    author_name varchar(255) not null,
+    committer_email varchar(255) not null,
+    committer_name varchar(255) not null,
+    created_at timestamp not null,
+    sha varchar(255) not null,
+    title varchar(255) not null,
+    web_url varchar(255) not null,
+    git_management_user_id int8 not null,
+    merge_request_id int8,
+    project_id int8 not null,
+    primary key (commit_id),
+    constraint commit_sha_project_id_key unique (sha, project_id),
+    constraint commit_git_management_user_id_fk foreign key (git_management_user_id) references git_management_user,
+    constraint commit_merge_request_id_fk foreign key (merge_request_id) references merge_request,
+    constraint commit_project_id_fk foreign key (project_id) references project
+);
+
+create table commit_comment (
+    commit_comment_id int8 not null,
+    created_at timestamp not null,
+    commit_comment_iid int8 not null,
+    web_url varchar(255) not null,
+    commit_id int8 not null,
+    git_management_user_id int8 not null,
+    primary key (commit_comment_id),
+    constraint commit_comment_commit_id_fk foreign key (commit_id) references commit,
+    constraint commit_comment_git_management_user_id_fk foreign key (git_management_user_id) references git_management_user
+);
+
+create table commit_mapping (
+    commit_mapping_id int8 not null,
+    commit_id int8,
+    git_management_user_id int8,
+    primary key (commit_mapping_id),
+    constraint commit_mapping_commit_id_fk foreign key (commit_id) references commit,
+    constraint commit_mapping_member_id_fk foreign key (git_management_user_id) references git_management_user
+);
+
+create table issue (
+    issue_id int8 not null,
+    author_name varchar(255) not null,
+    created_at varchar(255) not null,
+    issue_iid int8 not null,
+    title varchar(255) not null,
+    web_url varchar(255) not null,
+    git_management_user_id int8 not null,
+    project_id int8 not null,
+    primary key (issue_id),
+    constraint issue_git_management_user_id_fk foreign key (git_management_user_id) references git_management_user,
+    constraint issue_project_id_fk foreign key (project_id) references project
+);
+
+create table issue_comment (
+    issue_comment_id int8 not null,
+    created_at varchar(255) not null,
+    issue_comment_iid int8 not null,
+    web_url varchar(255) not null,
+    git_management_user_id int8 not null,
+    issue_id int8 not null,
+    primary key (issue_comment_id),
+    constraint issue_comment_git_management_user_id_fk foreign key (git_management_user_id) references git_management_user,
+    constraint issue_comment_issue_id_fk foreign key (issue_id) references issue
+);
+
+create table score_profile (
+    id int8 not null,
+    comments float8,
+    delete float8,
+    line float8,
+    name varchar(255),
+    syntax float8,
+    primary key (id)
+);
+
+create table score_profile_extension_weights (
+    score_profile_id int8 not null,
+    weight float8,
+    extension varchar(255) not null,
+    primary key (score_profile_id, extension),
+    constraint score_profile_extension_weights_score_profile_id_fk foreign key (score_profile_id) references score_profile
+);
+
+create table sync_watermark (
+    sync_watermark_id int8 not null,
+    last_commit_at timestamp,
+    last_merge_request_updated_at timestamp,
+    last_note_id int8,
+    synced_from timestamp,
+    project_id int8 not null,
+    primary key (sync_watermark_id),
+    constraint sync_watermark_project_id_key unique (project_id),
+    constraint sync_watermark_project_id_fk foreign key (project_id) references project
+);
+
+create table ingestion_task (
+    ingestion_task_id int8 not null,
+    attempts int4 not null,
+    end_date_time timestamp not null,
+    gitlab_project_id int8 not null,
+    last_error varchar(1000),
+    lease_expires_at timestamp,
+    lease_owner varchar(255),
+    run_after timestamp not null,
+    server_url varchar(255) not null,
+    start_date_time timestamp not null,
+    status varchar(255) not null,
+    type varchar(255) not null,
+    primary key (ingestion_task_id)
+);
+
+create index ingestion_task_status_idx on ingestion_task (status, run_after);
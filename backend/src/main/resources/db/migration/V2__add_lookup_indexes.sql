@@ -0,0 +1,15 @@
+-- Indexes for the lookups done on every ingest and webhook delivery. Project scoped indexes lead with
+-- project_id so they also serve queries that only filter by project.
+
+alter table commit drop constraint commit_sha_project_id_key;
+alter table commit add constraint commit_project_id_sha_key unique (project_id, sha);
+create index commit_project_id_created_at_idx on commit (project_id, created_at);
+
+alter table merge_request add constraint merge_request_project_id_iid_key unique (project_id, merge_request_iid);
+create index merge_request_project_id_created_at_idx on merge_request (project_id, created_at);
+
+create index issue_project_id_iid_idx on issue (project_id, issue_iid);
+
+alter table git_management_user add constraint git_management_user_server_id_username_key unique (server_id, username);
+
+alter table project add constraint project_server_id_gitlab_project_id_key unique (server_id, gitlab_project_id);
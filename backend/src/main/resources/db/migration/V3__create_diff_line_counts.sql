@@ -0,0 +1,27 @@
+-- Line counts per file of every scored diff, so a diff is only parsed once and can be weighed under any score profile
+
+create sequence diff_line_counts_sequence start with 1 increment by 50;
+
+create table diff_line_counts (
+    diff_line_counts_id int8 not null,
+    gitlab_project_id int8 not null,
+    merge_request_iid int8,
+    server_url varchar(255) not null,
+    sha varchar(255) not null,
+    primary key (diff_line_counts_id)
+);
+
+create index diff_line_counts_lookup_idx on diff_line_counts (server_url, gitlab_project_id, sha);
+
+create table diff_line_counts_file (
+    diff_line_counts_id int8 not null,
+    block_comment_lines int4 not null,
+    code_lines int4 not null,
+    comment_lines int4 not null,
+    deleted_lines int4 not null,
+    extension varchar(255) not null,
+    syntax_lines int4 not null,
+    constraint diff_line_counts_file_diff_line_counts_id_fk foreign key (diff_line_counts_id) references diff_line_counts
+);
+
+create index diff_line_counts_file_diff_line_counts_id_idx on diff_line_counts_file (diff_line_counts_id);
@@ -0,0 +1,6 @@
+-- Next page cursors of syncs that did not finish, kept with the watermarks so they survive a restart
+
+alter table sync_watermark add column commit_cursor varchar(2048);
+alter table sync_watermark add column commit_cursor_range varchar(255);
+alter table sync_watermark add column merge_request_cursor varchar(2048);
+alter table sync_watermark add column merge_request_cursor_range varchar(255);
@@ -0,0 +1,7 @@
+-- Commits are synced from the push events after the last one that was fully saved instead of from the newest
+-- commit date, which misses commits pushed late with older dates
+
+alter table sync_watermark drop column last_commit_at;
+alter table sync_watermark add column last_push_event_id int8;
+alter table sync_watermark add column commits_listed_until timestamp;
+alter table sync_watermark add column listing_push_event_id int8;
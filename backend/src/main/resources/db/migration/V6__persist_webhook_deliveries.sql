@@ -0,0 +1,19 @@
+-- Webhook deliveries are saved before GitLab is answered and applied from the table, so accepted events survive a
+-- restart and retried deliveries are recognized on every node. Webhook payloads name authors by their GitLab user id.
+
+alter table git_management_user add column gitlab_user_id int8;
+alter table git_management_user add constraint git_management_user_server_id_gitlab_user_id_key unique (server_id, gitlab_user_id);
+
+create sequence webhook_delivery_sequence start with 1 increment by 1;
+
+create table webhook_delivery (
+    webhook_delivery_id int8 not null,
+    applied_at timestamp,
+    delivery_uuid varchar(255),
+    payload varchar(1048576) not null,
+    received_at timestamp not null,
+    primary key (webhook_delivery_id),
+    constraint webhook_delivery_delivery_uuid_key unique (delivery_uuid)
+);
+
+create index webhook_delivery_applied_at_idx on webhook_delivery (applied_at);
@@ -0,0 +1,3 @@
+-- Score profiles carry a version raised on every save, so each backend node recompiles profiles edited by another
+
+alter table score_profile add column version int8 default 0 not null;
@@ -0,0 +1,20 @@
+-- A diff counted by two threads at once was saved twice. Commit diffs get merge request iid 0 instead of null so the
+-- unique key covers them, and the second insert of a diff is dropped.
+
+update diff_line_counts set merge_request_iid = 0 where merge_request_iid is null;
+
+delete from diff_line_counts_file where diff_line_counts_id in (
+    select d.diff_line_counts_id from diff_line_counts d where exists (
+        select 1 from diff_line_counts o where o.server_url = d.server_url and o.gitlab_project_id = d.gitlab_project_id
+            and o.sha = d.sha and o.merge_request_iid = d.merge_request_iid and o.diff_line_counts_id < d.diff_line_counts_id));
+delete from diff_line_counts d where exists (
+    select 1 from diff_line_counts o where o.server_url = d.server_url and o.gitlab_project_id = d.gitlab_project_id
+        and o.sha = d.sha and o.merge_request_iid = d.merge_request_iid and o.diff_line_counts_id < d.diff_line_counts_id);
+
+alter table diff_line_counts alter column merge_request_iid set not null;
+drop index diff_line_counts_lookup_idx;
+alter table diff_line_counts add constraint diff_line_counts_server_url_project_sha_iid_key
+    unique (server_url, gitlab_project_id, sha, merge_request_iid);
+
+-- Merge requests keep the sha of their head, so they can be scored without asking GitLab for them
+alter table merge_request add column head_sha varchar(255);
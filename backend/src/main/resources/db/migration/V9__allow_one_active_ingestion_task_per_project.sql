@@ -0,0 +1,14 @@
+-- A project has at most one PENDING or RUNNING ingestion task, so two nodes never sync the same project at once.
+-- Of the unfinished tasks already queued for a project only the oldest is kept.
+
+alter table ingestion_task add column active_project_key varchar(255);
+
+update ingestion_task set status = 'FAILED', last_error = 'Another task of the project was queued first', lease_owner = null,
+        lease_expires_at = null
+    where status in ('PENDING', 'RUNNING') and exists (
+        select 1 from ingestion_task o where o.server_url = ingestion_task.server_url
+            and o.gitlab_project_id = ingestion_task.gitlab_project_id and o.status in ('PENDING', 'RUNNING')
+            and o.ingestion_task_id < ingestion_task.ingestion_task_id);
+update ingestion_task set active_project_key = server_url || '|' || gitlab_project_id where status in ('PENDING', 'RUNNING');
+
+alter table ingestion_task add constraint ingestion_task_active_project_key_key unique (active_project_key);
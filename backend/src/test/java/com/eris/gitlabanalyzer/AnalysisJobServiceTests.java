@@ -0,0 +1,175 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.cache.InFlightRequests;
+import com.eris.gitlabanalyzer.model.AnalysisJob;
+import com.eris.gitlabanalyzer.service.AnalysisJobService;
+import com.eris.gitlabanalyzer.service.GitLabRateLimiter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposables;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class AnalysisJobServiceTests {
+    private static final GitLabStubServer gitLab = new GitLabStubServer();
+    private static final String projectPath = "/api/v4/projects/2";
+    private static final String diff = "[{\"diff\":\"+line\\n\",\"new_path\":\"A.java\",\"old_path\":\"A.java\"}]";
+
+    @Autowired
+    private AnalysisJobService analysisJobService;
+    @Autowired
+    private InFlightRequests inFlightRequests;
+    @Autowired
+    private GitLabRateLimiter rateLimiter;
+
+    private final OffsetDateTime endDateTime = OffsetDateTime.parse("2021-04-01T00:00:00Z");
+
+    @DynamicPropertySource
+    static void gitLabProperties(DynamicPropertyRegistry registry) {
+        registry.add("gitlab.SERVER_URL", gitLab::getUrl);
+    }
+
+    @AfterAll
+    static void stopGitLab() {
+        gitLab.stop();
+    }
+
+    static String commit(String sha) {
+        return "{\"id\":\"" + sha + "\",\"title\":\"commit\",\"created_at\":\"2021-02-01T00:00:00Z\"}";
+    }
+
+    @BeforeEach
+    void stubProject() {
+        gitLab.reset();
+        gitLab.on(projectPath + "/merge_requests", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":200,\"iid\":1,\"title\":\"Add jobs\",\"created_at\":\"2021-02-01T00:00:00Z\"}]"));
+        gitLab.on(projectPath + "/merge_requests/1/commits", exchange -> GitLabStubServer.StubResponse.json(
+                "[" + commit("mr-commit") + "]"));
+        gitLab.on(projectPath + "/merge_requests/1/changes", exchange -> GitLabStubServer.StubResponse.json(
+                "{\"changes\":" + diff + "}"));
+        gitLab.on(projectPath + "/repository/commits", exchange -> GitLabStubServer.StubResponse.json(
+                "[" + commit("mr-commit") + "," + commit("orphan") + "]"));
+        gitLab.on(projectPath + "/repository/commits/mr-commit/diff", exchange -> GitLabStubServer.StubResponse.json(diff));
+        gitLab.on(projectPath + "/repository/commits/orphan/diff", exchange -> GitLabStubServer.StubResponse.json(diff));
+    }
+
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    void reportsProgressAndReusesTheResult() throws InterruptedException {
+        var startDateTime = OffsetDateTime.parse("2021-01-01T00:00:00Z");
+        var job = analysisJobService.submit(2L, startDateTime, endDateTime);
+        await(job::isFinished);
+
+        assertEquals(AnalysisJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals(1, job.getMergeRequestsDone());
+        assertEquals(1, job.getMergeRequestsTotal());
+        assertEquals(2, job.getCommitsDone());
+        assertEquals(2, job.getCommitsTotal());
+        assertTrue(job.getBytesFetched() > 0);
+        assertEquals(1, job.getResult().getOrphanCommits().size());
+
+        int requests = gitLab.getRequests().size();
+        var sameJob = analysisJobService.submit(2L, startDateTime.withOffsetSameInstant(ZoneOffset.ofHours(-8)), endDateTime);
+        assertSame(job, sameJob);
+        assertEquals(requests, gitLab.getRequests().size());
+    }
+
+    @Test
+    void runsScoreTotalsAsJobs() throws InterruptedException {
+        var startDateTime = OffsetDateTime.parse("2021-01-06T00:00:00Z");
+        var commits = analysisJobService.submitScore(AnalysisJob.Type.COMMIT_SCORE, 2L, startDateTime, endDateTime, null);
+        var mergeRequests = analysisJobService.submitScore(AnalysisJob.Type.MERGE_REQUEST_SCORE, 2L, startDateTime, endDateTime, null);
+        await(() -> commits.isFinished() && mergeRequests.isFinished());
+
+        // a line of code at 2 points in each diff
+        assertEquals(AnalysisJob.Status.SUCCEEDED, commits.getStatus());
+        assertEquals(4.0, commits.getScore());
+        assertEquals(2, commits.getCommitsDone());
+        assertEquals(2, commits.getCommitsTotal());
+        assertEquals(2.0, mergeRequests.getScore());
+        assertEquals(1, mergeRequests.getMergeRequestsDone());
+        assertNull(mergeRequests.getResult());
+
+        assertSame(commits, analysisJobService.submitScore(AnalysisJob.Type.COMMIT_SCORE, 2L, startDateTime, endDateTime, null));
+        assertNotSame(commits, analysisJobService.submit(2L, startDateTime, endDateTime));
+    }
+
+    @Test
+    void cancellingStopsTheGitLabRequests() throws InterruptedException {
+        var diffRequested = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        gitLab.on(projectPath + "/repository/commits/orphan/diff", exchange -> {
+            diffRequested.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return GitLabStubServer.StubResponse.json(diff);
+        });
+
+        var job = analysisJobService.submit(2L, OffsetDateTime.parse("2021-01-02T00:00:00Z"), endDateTime);
+        assertTrue(diffRequested.await(5, TimeUnit.SECONDS));
+        assertEquals(AnalysisJob.Status.RUNNING, job.getStatus());
+
+        analysisJobService.cancel(job.getId());
+        release.countDown();
+
+        assertEquals(AnalysisJob.Status.CANCELLED, job.getStatus());
+        assertNull(job.getResult());
+        await(() -> inFlightRequests.size() == 0 && rateLimiter.getInFlight() == 0);
+
+        // a cancelled job is not handed out again
+        var retried = analysisJobService.submit(2L, OffsetDateTime.parse("2021-01-02T00:00:00Z"), endDateTime);
+        assertNotEquals(job.getId(), retried.getId());
+        await(retried::isFinished);
+        assertEquals(AnalysisJob.Status.SUCCEEDED, retried.getStatus());
+    }
+
+    @Test
+    void cancellingBeforeTheSubscriptionIsSetDisposesIt() {
+        var job = new AnalysisJob("unsubscribed", 2L, OffsetDateTime.parse("2021-01-05T00:00:00Z"), endDateTime);
+        job.getSubscription().dispose();
+
+        var subscription = Disposables.single();
+        job.getSubscription().update(subscription);
+        assertTrue(subscription.isDisposed());
+    }
+
+    @Test
+    void dropsTheOldestResultsOverTheByteLimit() throws InterruptedException {
+        var first = analysisJobService.submit(2L, OffsetDateTime.parse("2021-01-03T00:00:00Z"), endDateTime);
+        await(first::isFinished);
+        var second = analysisJobService.submit(2L, OffsetDateTime.parse("2021-01-04T00:00:00Z"), endDateTime);
+        await(second::isFinished);
+
+        ReflectionTestUtils.setField(analysisJobService, "maxResultBytes", second.getBytesFetched());
+        try {
+            analysisJobService.removeExpiredJobs();
+        } finally {
+            ReflectionTestUtils.setField(analysisJobService, "maxResultBytes", 268435456L);
+        }
+
+        assertTrue(analysisJobService.getJob(first.getId()).isEmpty());
+        assertSame(second, analysisJobService.getJob(second.getId()).orElseThrow());
+    }
+}
@@ -0,0 +1,55 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssociationTests {
+    private final Server server = new Server("http://gitlab");
+    private final Project project = new Project(30L, "associations", "eris / associations", "http://gitlab/associations", server);
+    private final GitManagementUser gitManagementUser = new GitManagementUser("csl33", "Jason Lee", server);
+    private final OffsetDateTime createdAt = OffsetDateTime.parse("2021-02-01T00:00:00Z");
+
+    private Commit commit(int i) {
+        return new Commit("sha" + i, "commit", "csl33@sfu.ca", "csl33@sfu.ca", "csl33@sfu.ca", "csl33@sfu.ca",
+                createdAt, "http://gitlab/commit/" + i, null, null);
+    }
+
+    @Test
+    void addingTwiceKeepsOne() {
+        var commit = commit(1);
+        project.addCommit(commit);
+        project.addCommit(commit);
+        gitManagementUser.addCommit(commit);
+
+        assertEquals(1, project.getCommits().size());
+        assertTrue(gitManagementUser.getCommits().contains(commit));
+
+        project.addGitManagementUser(gitManagementUser);
+        gitManagementUser.addProject(project);
+        assertEquals(1, project.getGitManagementUsers().size());
+        assertEquals(1, gitManagementUser.getProjects().size());
+    }
+
+    // mvn test -Dtest=AssociationTests -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkAddingCommits() {
+        int count = 100000;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            var commit = commit(i);
+            project.addCommit(commit);
+            gitManagementUser.addCommit(commit);
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("added %d commits to a project and a user in %d ms%n", count, nanos / 1_000_000);
+
+        assertEquals(count, project.getCommits().size());
+        assertEquals(count, gitManagementUser.getCommits().size());
+    }
+}
@@ -0,0 +1,88 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.Commit;
+import com.eris.gitlabanalyzer.model.GitManagementUser;
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.repository.CommitRepository;
+import com.eris.gitlabanalyzer.service.BatchInsertService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DatabaseTest
+class BatchInsertTests {
+    @Autowired
+    private BatchInsertService batchInsertService;
+    @Autowired
+    private CommitRepository commitRepository;
+    @Autowired
+    private TestProjects testProjects;
+
+    private Project project;
+    private GitManagementUser gitManagementUser;
+
+    @BeforeAll
+    void createProject() {
+        project = testProjects.create(20L, "batch");
+        gitManagementUser = testProjects.addMember(project);
+    }
+
+    @BeforeEach
+    void deleteCommits() {
+        testProjects.deleteCommits(project);
+    }
+
+    private List<Commit> commits(String prefix, int count) {
+        var commits = new ArrayList<Commit>(count);
+        var createdAt = OffsetDateTime.parse("2021-02-01T00:00:00Z");
+        for (int i = 0; i < count; i++) {
+            commits.add(new Commit(prefix + i, "commit " + i, "csl33@sfu.ca", "csl33@sfu.ca", "csl33@sfu.ca", "csl33@sfu.ca",
+                    createdAt.plusMinutes(i), "http://gitlab/commit/" + i, project, gitManagementUser));
+        }
+        return commits;
+    }
+
+    @Test
+    void insertsEveryEntityAcrossBatches() {
+        var commits = commits("sha-", 120);
+        assertEquals(120, batchInsertService.insertAll(commits));
+
+        assertEquals(120, testProjects.countCommits(project));
+        assertEquals(120, commits.stream().map(Commit::getId).collect(Collectors.toSet()).size());
+        assertEquals(Set.of("sha-0", "sha-119"),
+                commitRepository.findShasByProjectIdAndShaIn(project.getId(), List.of("sha-0", "sha-119", "sha-120")));
+    }
+
+    // mvn test -Dtest=BatchInsertTests -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkSavingCommits() {
+        int count = 50000;
+
+        var perRow = commits("row-", count);
+        long start = System.nanoTime();
+        perRow.forEach(commitRepository::save);
+        report("one save per commit", count, System.nanoTime() - start);
+
+        var batched = commits("batch-", count);
+        start = System.nanoTime();
+        batchInsertService.insertAll(batched);
+        report("batched inserts", count, System.nanoTime() - start);
+
+        assertEquals(2L * count, testProjects.countCommits(project));
+    }
+
+    private static void report(String name, int rows, long nanos) {
+        System.out.printf("%-20s %6d rows in %6d ms, %8.0f rows/s%n", name, rows, nanos / 1_000_000, rows / (nanos / 1e9));
+    }
+}
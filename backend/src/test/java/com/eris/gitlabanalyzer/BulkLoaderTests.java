@@ -0,0 +1,79 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.MergeRequest;
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabMergeRequestNote;
+import com.eris.gitlabanalyzer.repository.*;
+import com.eris.gitlabanalyzer.service.BulkLoader;
+import com.eris.gitlabanalyzer.service.IdentityIndex;
+import com.eris.gitlabanalyzer.service.JpaBulkLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DatabaseTest
+class BulkLoaderTests {
+    @Autowired
+    private BulkLoader bulkLoader;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private TestProjects testProjects;
+    @Autowired
+    private MergeRequestRepository mergeRequestRepository;
+    @Autowired
+    private CommitRepository commitRepository;
+    @Autowired
+    private MergeRequestCommentRepository mergeRequestCommentRepository;
+
+    private Project project;
+    private MergeRequest mergeRequest;
+    private IdentityIndex identities;
+
+    @BeforeAll
+    void createProject() {
+        project = testProjects.create(21L, "bulk");
+        var gitManagementUser = testProjects.addMember(project);
+        mergeRequest = mergeRequestRepository.save(new MergeRequest(1L, "csl33", "Bulk loading",
+                OffsetDateTime.parse("2021-02-01T00:00:00Z"), "http://gitlab/mr/1", project, gitManagementUser));
+        identities = new IdentityIndex(List.of(gitManagementUser), List.of());
+    }
+
+    private GitLabCommit commit(String sha, String authorEmail) throws Exception {
+        return objectMapper.readValue("{\"id\":\"" + sha + "\",\"title\":\"say \\\"hi\\\", twice\",\"author_email\":\"" + authorEmail + "\","
+                + "\"created_at\":\"2021-02-01T00:00:00Z\",\"web_url\":\"http://gitlab/commit/" + sha + "\"}", GitLabCommit.class);
+    }
+
+    private GitLabMergeRequestNote note(long id, String username) throws Exception {
+        return objectMapper.readValue("{\"id\":" + id + ",\"body\":\"looks good\",\"author\":{\"username\":\"" + username + "\"},"
+                + "\"created_at\":\"2021-02-02T00:00:00Z\"}", GitLabMergeRequestNote.class);
+    }
+
+    @Test
+    void fallsBackToJpaOutsideOfPostgres() {
+        assertTrue(bulkLoader instanceof JpaBulkLoader);
+    }
+
+    @Test
+    void loadsNewRowsOfMembersOnly() throws Exception {
+        var commits = List.of(commit("a1", "csl33@sfu.ca"), commit("b2", "stranger@sfu.ca"), commit("a1", "csl33@sfu.ca"));
+        assertEquals(1, bulkLoader.loadCommits(project, identities, commits));
+        assertEquals(1, bulkLoader.loadCommits(project, identities, List.of(commit("a1", "csl33@sfu.ca"), commit("c3", "csl33@sfu.ca"))));
+        assertEquals(2, commitRepository.findShasByProjectIdAndShaIn(project.getId(), List.of("a1", "b2", "c3")).size());
+        assertEquals("say \"hi\", twice", commitRepository.findByShaAndProjectId("a1", project.getId()).getTitle());
+
+        var notes = Map.of(mergeRequest, List.of(note(10, "csl33"), note(11, "stranger")));
+        assertEquals(1, bulkLoader.loadMergeRequestNotes(project, identities, notes));
+        assertEquals(0, bulkLoader.loadMergeRequestNotes(project, identities, notes));
+        var comment = mergeRequestCommentRepository.findByIidAndMergeRequestId(10L, mergeRequest.getId());
+        assertEquals("http://gitlab/mr/1#note_10", comment.getWebUrl());
+    }
+}
@@ -0,0 +1,72 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.cache.CommitDiffCache;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabFileChange;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitDiffCacheTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String serverUrl = "https://gitlab.example/";
+
+    @TempDir
+    Path cacheDirectory;
+
+    private List<GitLabFileChange> diff(String path) throws Exception {
+        var json = "[{\"diff\":\"@@ -0,0 +1 @@\\n+class A {}\\n\",\"new_path\":\"" + path + "\",\"old_path\":\"" + path + "\",\"new_file\":true}]";
+        return objectMapper.readValue(json, new TypeReference<>() {});
+    }
+
+    private static String sha(int n) {
+        return String.format("%040x", n);
+    }
+
+    @Test
+    void keepsDiffsAcrossInstances() throws Exception {
+        var cache = new CommitDiffCache(objectMapper, cacheDirectory.toString(), 1_000_000);
+        cache.put(serverUrl, 1L, sha(1), diff("src/A.java"));
+
+        var reopened = new CommitDiffCache(objectMapper, cacheDirectory.toString(), 1_000_000);
+        var cached = reopened.get(serverUrl, 1L, sha(1)).orElseThrow();
+
+        assertEquals("src/A.java", cached.get(0).getNewPath());
+        assertEquals("@@ -0,0 +1 @@\n+class A {}\n", cached.get(0).getDiff());
+        assertTrue(cached.get(0).getNewFile());
+        assertTrue(reopened.get(serverUrl, 2L, sha(1)).isEmpty());
+        assertTrue(reopened.get("https://other.example/", 1L, sha(1)).isEmpty());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedDiffs() throws Exception {
+        var probe = new CommitDiffCache(objectMapper, cacheDirectory.resolve("probe").toString(), 1_000_000);
+        probe.put(serverUrl, 1L, sha(0), diff("src/A.java"));
+        long entryBytes = probe.getTotalBytes();
+
+        var cache = new CommitDiffCache(objectMapper, cacheDirectory.resolve("lru").toString(), entryBytes * 2);
+        cache.put(serverUrl, 1L, sha(1), diff("src/A.java"));
+        cache.put(serverUrl, 1L, sha(2), diff("src/A.java"));
+        cache.get(serverUrl, 1L, sha(1));
+        cache.put(serverUrl, 1L, sha(3), diff("src/A.java"));
+
+        assertTrue(cache.get(serverUrl, 1L, sha(1)).isPresent());
+        assertTrue(cache.get(serverUrl, 1L, sha(2)).isEmpty());
+        assertTrue(cache.get(serverUrl, 1L, sha(3)).isPresent());
+        assertTrue(cache.getTotalBytes() <= entryBytes * 2);
+    }
+
+    @Test
+    void ignoresRefsThatAreNotFullShas() throws Exception {
+        var cache = new CommitDiffCache(objectMapper, cacheDirectory.toString(), 1_000_000);
+        cache.put(serverUrl, 1L, "master", diff("src/A.java"));
+
+        assertTrue(cache.get(serverUrl, 1L, "master").isEmpty());
+        assertEquals(0, cache.getTotalBytes());
+    }
+}
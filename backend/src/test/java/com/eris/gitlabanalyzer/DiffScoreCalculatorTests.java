@@ -0,0 +1,134 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.dataprocessing.DiffScoreCalculator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiffScoreCalculatorTests {
+    private static final List<String> corpus = List.of("java-comments.diff", "python-docstrings.diff", "whitespace.diff", "plain.diff");
+    private static final List<String> fileTypes = List.of("java", "ts", "py", "md", "c");
+    private static final List<String> fragments = List.of("+", "-", " ", "//", "/*", "*/", "/", "*", "#", "\"\"\"", "\"", "\t", "\r",
+            "\u000B", "\f", " ", "\\ No newline at end of file", "code", "x", "\n", "\n\n");
+
+    private final DiffScoreCalculator diffScoreCalculator = new DiffScoreCalculator();
+
+    private static String readDiff(String name) throws IOException {
+        return new String(new ClassPathResource("diffs/" + name).getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void scoresTheCorpusLikeTheSplittingScorer() throws IOException {
+        for (String name : corpus) {
+            String diff = readDiff(name);
+            for (String fileType : fileTypes) {
+                assertEquals(LegacyScorer.score(diff, fileType), diffScoreCalculator.calculateScore(diff, fileType), name + " as " + fileType);
+            }
+        }
+    }
+
+    @Test
+    void scoresGeneratedDiffsLikeTheSplittingScorer() {
+        var random = new Random(21);
+        for (int i = 0; i < 20000; i++) {
+            var diff = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                diff.append(fragments.get(random.nextInt(fragments.size())));
+            }
+            String fileType = fileTypes.get(random.nextInt(fileTypes.size()));
+            assertEquals(LegacyScorer.score(diff.toString(), fileType), diffScoreCalculator.calculateScore(diff, fileType),
+                    () -> fileType + ": " + diff.toString().replace("\n", "\\n"));
+        }
+    }
+
+    @Test
+    void scoresWithoutAllocatingPerLine() throws IOException {
+        var threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threadMXBean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+        String diff = readDiff("java-comments.diff").repeat(5000);
+        int expected = LegacyScorer.score(diff, "java");
+
+        for (int i = 0; i < 5; i++) {
+            diffScoreCalculator.calculateScore(diff, "java");
+        }
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        int score = diffScoreCalculator.calculateScore(diff, "java");
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(expected, score);
+        // the diff has more than 100k lines, the old scorer allocated several Strings for each of them
+        assertTrue(allocated < 1024, () -> allocated + " bytes allocated");
+    }
+
+    // The scorer as it was before it stopped splitting the diff, kept to check that scores did not change
+    private static class LegacyScorer {
+        private static final Map<String, String[]> commentCharacters = Map.of(
+                "java", new String[]{"//", "/*", "*/"},
+                "ts", new String[]{"//", "/*", "*/"},
+                "js", new String[]{"//", "/*", "*/"},
+                "tsx", new String[]{"//", "/*", "*/"},
+                "c", new String[]{"//", "/*", "*/"},
+                "cpp", new String[]{"//", "/*", "*/"},
+                "py", new String[]{"#", "\"\"\""});
+        private static final int commentPointValue = 1;
+        private static final int pointValue = 2;
+
+        static int score(String diff, String fileType) {
+            int totalScore = 0;
+            boolean inCommentBlock = false;
+            String[] lines = diff.split("\n");
+            String[] commentOperator = commentCharacters.getOrDefault(fileType, new String[]{" ", " "});
+            String commentTerminator = commentOperator[commentOperator.length - 1];
+
+            for (String line : lines) {
+                line = line.replaceAll("\\s+", "");
+                if (inCommentBlock) {
+                    totalScore += commentPointValue;
+                    if (line.contains(commentTerminator)) {
+                        inCommentBlock = false;
+                    }
+                } else if (line.length() > 1 && !line.equals("\\Nonewlineatendoffile")) {
+                    if (line.charAt(0) == '+') {
+                        switch (typeOfLine(line, commentOperator)) {
+                            case "code":
+                                totalScore += pointValue;
+                                break;
+                            case "comment":
+                                totalScore += commentPointValue;
+                                break;
+                            case "blockComment":
+                                totalScore += commentPointValue;
+                                inCommentBlock = true;
+                                break;
+                        }
+                    } else {
+                        totalScore += commentPointValue / 2;
+                    }
+                }
+            }
+            return totalScore;
+        }
+
+        private static String typeOfLine(String line, String[] commentOperator) {
+            for (int i = 0; i < commentOperator.length; i++) {
+                if (1 + commentOperator[i].length() > line.length()) {
+                    return "syntax";
+                }
+                if (line.substring(1, 1 + commentOperator[i].length()).equals(commentOperator[i])) {
+                    return i > 0 ? "blockComment" : "comment";
+                }
+            }
+            return "code";
+        }
+    }
+}
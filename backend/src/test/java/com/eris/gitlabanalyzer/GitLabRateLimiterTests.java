@@ -0,0 +1,79 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.service.GitLabRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitLabRateLimiterTests {
+
+    @Test
+    void queuesRequestsOverTheConcurrencyLimit() {
+        var rateLimiter = new GitLabRateLimiter(new SimpleMeterRegistry(), 2, 2, 0);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+
+        var completed = Flux.range(0, 10)
+                .flatMap(i -> rateLimiter.execute(() -> Mono.fromRunnable(() -> maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max))
+                        .then(Mono.delay(Duration.ofMillis(20)))
+                        .doOnTerminate(running::decrementAndGet)))
+                .count()
+                .block();
+
+        assertEquals(10, completed);
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, rateLimiter.getInFlight());
+        assertEquals(0, rateLimiter.getQueued());
+    }
+
+    @Test
+    void halvesConcurrencyWhenRateLimitIsNearlyUsedUp() {
+        var rateLimiter = new GitLabRateLimiter(new SimpleMeterRegistry(), 8, 16, 0);
+
+        var exhausted = new HttpHeaders();
+        exhausted.add("RateLimit-Remaining", "0");
+        rateLimiter.onResponse(exhausted);
+        assertEquals(4, rateLimiter.getConcurrencyLimit());
+
+        var plenty = new HttpHeaders();
+        plenty.add("RateLimit-Remaining", "500");
+        for (int i = 0; i < 4; i++) {
+            rateLimiter.onResponse(plenty);
+        }
+        assertTrue(rateLimiter.getConcurrencyLimit() > 4.9);
+        assertTrue(rateLimiter.getConcurrencyLimit() < 5.1);
+    }
+
+    @Test
+    void halvesConcurrencyOncePerRateLimitWindow() {
+        var rateLimiter = new GitLabRateLimiter(new SimpleMeterRegistry(), 8, 16, 1);
+
+        var exhausted = new HttpHeaders();
+        exhausted.add("RateLimit-Remaining", "0");
+        exhausted.add(HttpHeaders.RETRY_AFTER, "0");
+        var attempts = new AtomicInteger();
+        // GitLabService passes the headers of the 429 on before the request fails with it
+        var result = rateLimiter.execute(() -> {
+            if (attempts.getAndIncrement() > 0) {
+                return Mono.just("ok");
+            }
+            rateLimiter.onResponse(exhausted);
+            return Mono.error(WebClientResponseException.create(429, "Too Many Requests", exhausted, new byte[0], null));
+        }).block();
+        assertEquals("ok", result);
+        assertEquals(4, rateLimiter.getConcurrencyLimit());
+
+        // more responses from the same window report the same shortage
+        rateLimiter.onResponse(exhausted);
+        assertEquals(4, rateLimiter.getConcurrencyLimit());
+    }
+}
@@ -0,0 +1,265 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.cache.ConditionalRequestCache;
+import com.eris.gitlabanalyzer.cache.InFlightRequests;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabPage;
+import com.eris.gitlabanalyzer.service.GitLabService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class GitLabServiceTests {
+    private static final GitLabStubServer gitLab = new GitLabStubServer();
+    private static final Path diffCacheDirectory = createTempDirectory();
+    private static final String commitsPath = "/api/v4/projects/1/repository/commits";
+
+    @Autowired
+    private GitLabService gitLabService;
+    @Autowired
+    private ConditionalRequestCache conditionalRequestCache;
+    @Autowired
+    private InFlightRequests inFlightRequests;
+
+    private final OffsetDateTime startDateTime = OffsetDateTime.parse("2021-01-01T00:00:00Z");
+    private final OffsetDateTime endDateTime = OffsetDateTime.parse("2021-04-01T00:00:00Z");
+
+    @DynamicPropertySource
+    static void gitLabProperties(DynamicPropertyRegistry registry) {
+        registry.add("gitlab.SERVER_URL", gitLab::getUrl);
+        registry.add("gitlab.PAGE_CONCURRENCY", () -> 4);
+        registry.add("gitlab.DIFF_CACHE_DIR", () -> diffCacheDirectory.toString());
+    }
+
+    @AfterAll
+    static void stopGitLab() {
+        gitLab.stop();
+    }
+
+    @BeforeEach
+    void resetGitLab() {
+        gitLab.reset();
+    }
+
+    static String commitPage(int page, int perPage) {
+        return IntStream.range(0, perPage)
+                .mapToObj(i -> "{\"id\":\"sha-" + page + "-" + i + "\",\"title\":\"commit\",\"created_at\":\"2021-02-01T00:00:00Z\"}")
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    static List<String> expectedShas(int pages, int perPage) {
+        return IntStream.rangeClosed(1, pages)
+                .boxed()
+                .flatMap(page -> IntStream.range(0, perPage).mapToObj(i -> "sha-" + page + "-" + i))
+                .collect(Collectors.toList());
+    }
+
+    static int requestedPage(com.sun.net.httpserver.HttpExchange exchange) {
+        var page = GitLabStubServer.queryParam(exchange, "page");
+        return page == null ? 1 : Integer.parseInt(page);
+    }
+
+    @Test
+    void fetchesRemainingPagesUsingTotalPagesInPageOrder() {
+        int totalPages = 6;
+        gitLab.on(commitsPath, exchange -> {
+            int page = requestedPage(exchange);
+            // make the earlier pages slower so out of order completion would show up in the result
+            sleep((totalPages - page) * 20L);
+            return GitLabStubServer.StubResponse.json(commitPage(page, 3), Map.of(
+                    "X-Page", String.valueOf(page),
+                    "X-Total-Pages", String.valueOf(totalPages)));
+        });
+
+        var shas = gitLabService.getCommits(1L, startDateTime, endDateTime)
+                .map(GitLabCommit::getSha)
+                .collectList()
+                .block();
+
+        assertEquals(expectedShas(totalPages, 3), shas);
+        assertEquals(totalPages, gitLab.countRequests(commitsPath));
+    }
+
+    @Test
+    void followsLinkHeaderWhenTotalsAreMissing() {
+        int totalPages = 3;
+        gitLab.on(commitsPath, exchange -> {
+            int page = requestedPage(exchange);
+            if (page == totalPages) {
+                return GitLabStubServer.StubResponse.json(commitPage(page, 2));
+            }
+            var next = gitLab.getUrl() + commitsPath.substring(1) + "?per_page=2&page=" + (page + 1);
+            return GitLabStubServer.StubResponse.json(commitPage(page, 2), Map.of(
+                    "Link", "<" + next + ">; rel=\"next\""));
+        });
+
+        var shas = gitLabService.getCommits(1L, startDateTime, endDateTime)
+                .map(GitLabCommit::getSha)
+                .collectList()
+                .block();
+
+        assertEquals(expectedShas(totalPages, 2), shas);
+        assertEquals(totalPages, gitLab.countRequests(commitsPath));
+    }
+
+    @Test
+    void resumesPagesFromCursor() {
+        int totalPages = 3;
+        gitLab.on(commitsPath, exchange -> {
+            int page = requestedPage(exchange);
+            if (page == totalPages) {
+                return GitLabStubServer.StubResponse.json(commitPage(page, 2));
+            }
+            var next = gitLab.getUrl() + commitsPath.substring(1) + "?per_page=2&page=" + (page + 1);
+            return GitLabStubServer.StubResponse.json(commitPage(page, 2), Map.of(
+                    "Link", "<" + next + ">; rel=\"next\""));
+        });
+
+        var firstPage = gitLabService.getCommitPages(1L, startDateTime, endDateTime, null).blockFirst();
+        assertEquals(expectedShas(1, 2), firstPage.getItems().stream().map(GitLabCommit::getSha).collect(Collectors.toList()));
+
+        var resumedShas = gitLabService.getCommitPages(1L, startDateTime, endDateTime, firstPage.getNextCursor())
+                .flatMapIterable(GitLabPage::getItems)
+                .map(GitLabCommit::getSha)
+                .collectList()
+                .block();
+
+        assertEquals(expectedShas(totalPages, 2).subList(2, 6), resumedShas);
+        assertThrows(IllegalArgumentException.class,
+                () -> gitLabService.getCommitPages(1L, startDateTime, endDateTime, "http://elsewhere.example/api/v4/projects"));
+        // a host that only starts like ours is somebody else's
+        var lookalike = gitLab.getUrl().replace("localhost", "localhost.elsewhere.example");
+        assertThrows(IllegalArgumentException.class,
+                () -> gitLabService.getCommitPages(1L, startDateTime, endDateTime, lookalike + commitsPath.substring(1)));
+    }
+
+    @Test
+    void requestsKeysetPaginationWhenEnabled() {
+        gitLab.on(commitsPath, exchange -> GitLabStubServer.StubResponse.json(commitPage(1, 1)));
+
+        ReflectionTestUtils.setField(gitLabService, "pagination", "keyset");
+        try {
+            gitLabService.getCommits(1L, startDateTime, endDateTime).collectList().block();
+        } finally {
+            ReflectionTestUtils.setField(gitLabService, "pagination", "offset");
+        }
+
+        var query = gitLab.getRequests().get(0).getRawQuery();
+        assertTrue(query.contains("pagination=keyset"));
+        assertTrue(query.contains("order_by=id"));
+    }
+
+    @Test
+    void fetchesCommitDiffOnlyOnce() {
+        var sha = "0123456789abcdef0123456789abcdef01234567";
+        var diffPath = "/api/v4/projects/1/repository/commits/" + sha + "/diff";
+        gitLab.on(diffPath, exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"diff\":\"+line\\n\",\"new_path\":\"A.java\",\"old_path\":\"A.java\"}]"));
+
+        var first = gitLabService.getCommitDiff(1L, sha).collectList().block();
+        var second = gitLabService.getCommitDiff(1L, sha).collectList().block();
+
+        assertEquals("+line\n", first.get(0).getDiff());
+        assertEquals(first.get(0).getDiff(), second.get(0).getDiff());
+        assertEquals(1, gitLab.countRequests(diffPath));
+    }
+
+    @Test
+    void servesNotModifiedResponsesFromLocalCopy() {
+        var membersPath = "/api/v4/projects/1/members";
+        var members = "[{\"id\":1,\"username\":\"csl33\",\"name\":\"Jason Lee\"}]";
+        gitLab.on(membersPath, exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                return new GitLabStubServer.StubResponse(304, Map.of("ETag", "\"v1\""), "");
+            }
+            return GitLabStubServer.StubResponse.json(members, Map.of("ETag", "\"v1\""));
+        });
+        long hits = conditionalRequestCache.getHits();
+        long bytesSaved = conditionalRequestCache.getBytesSaved();
+
+        var first = gitLabService.getMembers(1L).collectList().block();
+        var second = gitLabService.getMembers(1L).collectList().block();
+
+        assertEquals("csl33", first.get(0).getUsername());
+        assertEquals("csl33", second.get(0).getUsername());
+        assertEquals(2, gitLab.countRequests(membersPath));
+        assertEquals(hits + 1, conditionalRequestCache.getHits());
+        assertEquals(bytesSaved + members.length(), conditionalRequestCache.getBytesSaved());
+    }
+
+    @Test
+    void retriesAfterTooManyRequests() {
+        var projectPath = "/api/v4/projects/1";
+        var attempts = new AtomicInteger();
+        gitLab.on(projectPath, exchange -> {
+            if (attempts.incrementAndGet() == 1) {
+                return new GitLabStubServer.StubResponse(429, Map.of("Retry-After", "0"), "{\"message\":\"Retry later\"}");
+            }
+            return GitLabStubServer.StubResponse.json("{\"id\":1,\"name\":\"analyzer\"}");
+        });
+
+        var project = gitLabService.getProject(1L).block();
+
+        assertEquals("analyzer", project.getName());
+        assertEquals(2, gitLab.countRequests(projectPath));
+    }
+
+    @Test
+    void sharesConcurrentRequestsForTheSameMergeRequestDiff() {
+        var changesPath = "/api/v4/projects/1/merge_requests/7/changes";
+        gitLab.on(changesPath, exchange -> {
+            // keep the first request running while the others arrive
+            sleep(200);
+            return GitLabStubServer.StubResponse.json(
+                    "{\"changes\":[{\"diff\":\"+line\\n\",\"new_path\":\"A.java\",\"old_path\":\"A.java\"}]}");
+        });
+        double joined = inFlightRequests.getJoined();
+
+        var diffs = Flux.range(0, 5)
+                .flatMap(i -> gitLabService.getMergeRequestDiff(1L, 7L).collectList())
+                .collectList()
+                .block();
+
+        assertEquals(5, diffs.size());
+        diffs.forEach(diff -> assertEquals("+line\n", diff.get(0).getDiff()));
+        assertEquals(1, gitLab.countRequests(changesPath));
+        assertEquals(joined + 4, inFlightRequests.getJoined());
+        assertEquals(0, inFlightRequests.size());
+    }
+
+    static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("diff-cache");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.eris.gitlabanalyzer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+// Minimal stand-in for a GitLab instance so GitLabService can be tested without network access
+class GitLabStubServer {
+
+    static class StubResponse {
+        final int status;
+        final Map<String, String> headers;
+        final String body;
+
+        StubResponse(int status, Map<String, String> headers, String body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        static StubResponse json(String body) {
+            return new StubResponse(200, Map.of(), body);
+        }
+
+        static StubResponse json(String body, Map<String, String> headers) {
+            return new StubResponse(200, headers, body);
+        }
+    }
+
+    private final HttpServer server;
+    private final Map<String, Function<HttpExchange, StubResponse>> handlers = new ConcurrentHashMap<>();
+    private final List<URI> requests = new CopyOnWriteArrayList<>();
+
+    GitLabStubServer() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    // Handlers are matched against the request path without the query string
+    void on(String path, Function<HttpExchange, StubResponse> handler) {
+        handlers.put(path, handler);
+    }
+
+    List<URI> getRequests() {
+        return requests;
+    }
+
+    long countRequests(String path) {
+        return requests.stream().filter(uri -> uri.getPath().equals(path)).count();
+    }
+
+    void reset() {
+        handlers.clear();
+        requests.clear();
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    static String queryParam(HttpExchange exchange, String name) {
+        var query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            var keyValue = pair.split("=", 2);
+            if (keyValue[0].equals(name)) {
+                return keyValue.length > 1 ? keyValue[1] : "";
+            }
+        }
+        return null;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.add(exchange.getRequestURI());
+        var handler = handlers.get(exchange.getRequestURI().getPath());
+        var response = handler != null ? handler.apply(exchange) : new StubResponse(404, Map.of(), "{\"message\":\"404 Not Found\"}");
+
+        var bytes = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        response.headers.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+        if (response.status == 304) {
+            exchange.sendResponseHeaders(response.status, -1);
+        } else {
+            exchange.sendResponseHeaders(response.status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,181 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.GitManagementUser;
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.repository.*;
+import com.eris.gitlabanalyzer.service.GitLabWebhookService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DatabaseTest
+class GitLabWebhookControllerTests {
+    private static final String webhookUrl = "/api/v1/webhooks/gitlab";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private GitLabWebhookService gitLabWebhookService;
+    @Autowired
+    private TestProjects testProjects;
+    @Autowired
+    private GitManagementUserRepository gitManagementUserRepository;
+    @Autowired
+    private CommitRepository commitRepository;
+    @Autowired
+    private MergeRequestRepository mergeRequestRepository;
+    @Autowired
+    private MergeRequestCommentRepository mergeRequestCommentRepository;
+    @Autowired
+    private IssueRepository issueRepository;
+    @Autowired
+    private WebhookDeliveryRepository webhookDeliveryRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Project project;
+    private GitManagementUser gitManagementUser;
+
+    // the payloads are of project 15 and name csl33 by GitLab user id 4
+    @BeforeAll
+    void createProject() {
+        project = testProjects.create(15L, "gitlabanalyzer");
+        gitManagementUser = testProjects.addMember(project);
+        gitManagementUser.setGitLabUserId(4L);
+        gitManagementUser = gitManagementUserRepository.save(gitManagementUser);
+    }
+
+    private void deliver(String payloadFile, String deliveryId, String token, int expectedStatus) throws Exception {
+        mockMvc.perform(post(webhookUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Gitlab-Token", token)
+                .header("X-Gitlab-Event-UUID", deliveryId)
+                .content(readPayload(payloadFile)))
+                .andExpect(status().is(expectedStatus));
+    }
+
+    private void deliverContent(String content, String deliveryId) throws Exception {
+        mockMvc.perform(post(webhookUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Gitlab-Token", "webhook-secret")
+                .header("X-Gitlab-Event-UUID", deliveryId)
+                .content(content))
+                .andExpect(status().isAccepted());
+    }
+
+    private void awaitApplied() throws InterruptedException {
+        for (int i = 0; i < 100 && gitLabWebhookService.getPending() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, gitLabWebhookService.getPending());
+    }
+
+    private static String readPayload(String payloadFile) throws IOException {
+        return new String(new ClassPathResource("webhooks/" + payloadFile).getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void appliesRecordedEventsOnce() throws Exception {
+        deliver("push.json", "push-1", "webhook-secret", 202);
+        deliver("merge_request.json", "merge-request-1", "webhook-secret", 202);
+        deliver("note.json", "note-1", "webhook-secret", 202);
+        deliver("issue.json", "issue-1", "webhook-secret", 202);
+        awaitApplied();
+
+        var projectId = project.getId();
+        assertEquals(2, testProjects.countCommits(project));
+        assertNotNull(commitRepository.findByShaAndProjectId("da1560886d4f094c3e6c9ef40349f7d38b5d27d7", projectId));
+        var mergeRequest = mergeRequestRepository.findByIidAndProjectId(7L, projectId);
+        assertEquals("Score profiles", mergeRequest.getTitle());
+        // merged by a maintainer, but authored by csl33
+        assertEquals("csl33", mergeRequest.getAuthorUsername());
+        assertEquals("b6568db1bc1dcd7f8b4d5a946b0b91f9dacd7327", mergeRequest.getHeadSha());
+        assertNotNull(mergeRequestCommentRepository.findByIidAndMergeRequestId(1244L, mergeRequest.getId()));
+        assertNotNull(issueRepository.findByIidAndProjectId(12L, projectId));
+
+        // a retried delivery keeps its id, a replayed one gets a new id and must not be saved twice either
+        deliver("push.json", "push-1", "webhook-secret", 202);
+        deliver("push.json", "push-2", "webhook-secret", 202);
+        deliver("note.json", "note-2", "webhook-secret", 202);
+        awaitApplied();
+
+        assertEquals(2, testProjects.countCommits(project));
+        assertEquals(1, testProjects.countMergeRequests(project));
+        assertEquals(1, testProjects.countMergeRequestComments(project));
+        // the retried delivery was recognized from the saved ones
+        assertEquals(1, webhookDeliveryRepository.findAll().stream().filter(delivery -> "push-1".equals(delivery.getDeliveryUuid())).count());
+    }
+
+    @Test
+    void keepsOnlyMergedMergeRequests() throws Exception {
+        var opened = readPayload("merge_request.json")
+                .replace("\"iid\": 7", "\"iid\": 8")
+                .replace("\"state\": \"merged\"", "\"state\": \"opened\"")
+                .replace("\"action\": \"merge\"", "\"action\": \"open\"");
+        deliverContent(opened, "merge-request-opened");
+        awaitApplied();
+
+        var projectId = project.getId();
+        assertNull(mergeRequestRepository.findByIidAndProjectId(8L, projectId));
+        assertNotNull(webhookDeliveryRepository.findAll().stream()
+                .filter(delivery -> "merge-request-opened".equals(delivery.getDeliveryUuid()))
+                .findFirst().orElseThrow().getAppliedAt());
+    }
+
+    @Test
+    void movesTheHeadOfSavedMergeRequests() throws Exception {
+        var merged = readPayload("merge_request.json").replace("\"iid\": 7", "\"iid\": 9");
+        deliverContent(merged, "merge-request-9-head-1");
+        awaitApplied();
+        deliverContent(merged.replace("b6568db1bc1dcd7f8b4d5a946b0b91f9dacd7327", "c7679ec2cd2edf9f9c5e6b057c1c0a0aebde8438"),
+                "merge-request-9-head-2");
+        awaitApplied();
+
+        var mergeRequest = mergeRequestRepository.findByIidAndProjectId(9L, project.getId());
+        assertEquals("c7679ec2cd2edf9f9c5e6b057c1c0a0aebde8438", mergeRequest.getHeadSha());
+        // the other test counts the saved merge requests
+        mergeRequestRepository.delete(mergeRequest);
+    }
+
+    @Test
+    void savesPushedCommitsLikeTheSync() throws Exception {
+        var push = readPayload("push.json");
+        deliverContent(push.replace("refs/heads/master", "refs/heads/feature")
+                .replace("b6568db1bc1dcd7f8b4d5a946b0b91f9dacd7327", "1111111111111111111111111111111111111111")
+                .replace("da1560886d4f094c3e6c9ef40349f7d38b5d27d7", "2222222222222222222222222222222222222222"), "push-feature");
+        // committed from another address, matched by the author name
+        deliverContent(push.replace("csl33@sfu.ca", "jason@example.com")
+                .replace("b6568db1bc1dcd7f8b4d5a946b0b91f9dacd7327", "3333333333333333333333333333333333333333")
+                .replace("da1560886d4f094c3e6c9ef40349f7d38b5d27d7", "4444444444444444444444444444444444444444"), "push-other-email");
+        awaitApplied();
+
+        var projectId = project.getId();
+        assertNull(commitRepository.findByShaAndProjectId("1111111111111111111111111111111111111111", projectId));
+        var commit = commitRepository.findByShaAndProjectId("3333333333333333333333333333333333333333", projectId);
+        assertEquals(gitManagementUser.getId(), jdbcTemplate.queryForObject(
+                "select git_management_user_id from commit where commit_id = ?", Long.class, commit.getId()));
+        // the other test counts the saved commits
+        commitRepository.delete(commit);
+        commitRepository.delete(commitRepository.findByShaAndProjectId("4444444444444444444444444444444444444444", projectId));
+    }
+
+    @Test
+    void rejectsDeliveriesWithoutTheSecretToken() throws Exception {
+        deliver("issue.json", "issue-wrong-token", "not-the-secret", 401);
+        mockMvc.perform(post(webhookUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(readPayload("issue.json")))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,112 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabFileChange;
+import com.eris.gitlabanalyzer.service.GitMirror;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitMirrorTests {
+    @TempDir
+    Path tempDirectory;
+
+    private Git source;
+    private GitMirror mirror;
+
+    @BeforeEach
+    void createRepositories() throws Exception {
+        source = Git.init().setInitialBranch("main").setDirectory(tempDirectory.resolve("source").toFile()).call();
+        mirror = new GitMirror(tempDirectory.resolve("mirror.git"), source.getRepository().getDirectory().toURI().toString(), null);
+    }
+
+    @AfterEach
+    void closeRepositories() {
+        mirror.close();
+        source.close();
+    }
+
+    private RevCommit commit(String message, String path, String content) throws Exception {
+        var file = source.getRepository().getWorkTree().toPath().resolve(path);
+        if (content == null) {
+            source.rm().addFilepattern(path).call();
+        } else {
+            Files.createDirectories(file.getParent());
+            Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+            source.add().addFilepattern(path).call();
+        }
+        return source.commit().setMessage(message).call();
+    }
+
+    @Test
+    void diffsCommitsInGitLabFormat() throws Exception {
+        var first = commit("add", "src/A.java", "line1\nline2\n");
+        var second = commit("modify", "src/A.java", "line1\nline two\n");
+        var third = commit("delete", "src/A.java", null);
+
+        assertTrue(mirror.ensureCommits(first.getName(), second.getName(), third.getName()));
+
+        var added = mirror.getCommitDiff(first.getName()).get(0);
+        assertEquals("@@ -0,0 +1,2 @@\n+line1\n+line2\n", added.getDiff());
+        assertEquals("src/A.java", added.getOldPath());
+        assertTrue(added.getNewFile());
+
+        var modified = mirror.getCommitDiff(second.getName()).get(0);
+        assertEquals("@@ -1,2 +1,2 @@\n line1\n-line2\n+line two\n", modified.getDiff());
+        assertFalse(modified.getNewFile());
+        assertFalse(modified.getDeletedFile());
+
+        var deleted = mirror.getCommitDiff(third.getName()).get(0);
+        assertEquals("src/A.java", deleted.getNewPath());
+        assertTrue(deleted.getDeletedFile());
+    }
+
+    @Test
+    void fetchesOnlyWhenCommitsAreMissing() throws Exception {
+        var first = commit("add", "A.java", "a\n");
+        assertTrue(mirror.ensureCommits(first.getName()));
+
+        var second = commit("modify", "A.java", "b\n");
+        assertTrue(mirror.ensureCommits(second.getName()));
+        assertEquals("@@ -1 +1 @@\n-a\n+b\n", mirror.getCommitDiff(second.getName()).get(0).getDiff());
+
+        assertFalse(mirror.ensureCommits("0123456789abcdef0123456789abcdef01234567"));
+    }
+
+    @Test
+    void diffsMergeRequestFromMergeBase() throws Exception {
+        commit("add", "A.java", "a\n");
+        source.checkout().setCreateBranch(true).setName("feature").call();
+        var head = commit("feature", "B.java", "b\n");
+        source.checkout().setName("main").call();
+        commit("main moves on", "A.java", "changed\n");
+        var merge = source.merge().include(head).setFastForward(MergeCommand.FastForwardMode.NO_FF).setMessage("merge").call();
+
+        assertTrue(mirror.ensureCommits(head.getName(), merge.getNewHead().getName()));
+
+        var mergedDiff = mirror.getMergeRequestDiff(head.getName(), merge.getNewHead().getName(), "main").orElseThrow();
+        assertEquals(List.of("B.java"), paths(mergedDiff));
+
+        source.checkout().setName("feature").call();
+        var openHead = commit("feature again", "C.java", "c\n");
+        assertTrue(mirror.ensureCommits(openHead.getName()));
+
+        var openDiff = mirror.getMergeRequestDiff(openHead.getName(), null, "main").orElseThrow();
+        assertEquals(List.of("C.java"), paths(openDiff));
+    }
+
+    private static List<String> paths(List<GitLabFileChange> changes) {
+        return changes.stream().map(GitLabFileChange::getNewPath).collect(Collectors.toList());
+    }
+}
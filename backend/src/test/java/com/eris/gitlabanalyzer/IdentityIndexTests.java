@@ -0,0 +1,142 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.GitManagementUser;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
+import com.eris.gitlabanalyzer.repository.CommitRepository;
+import com.eris.gitlabanalyzer.repository.GitManagementUserRepository;
+import com.eris.gitlabanalyzer.repository.ProjectRepository;
+import com.eris.gitlabanalyzer.service.CommitService;
+import com.eris.gitlabanalyzer.service.GitManagementUserService;
+import com.eris.gitlabanalyzer.service.IdentityIndex;
+import com.eris.gitlabanalyzer.service.ProjectService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:identities;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class IdentityIndexTests {
+    private static final GitLabStubServer gitLab = new GitLabStubServer();
+    private static final String projectPath = "/api/v4/projects/6";
+    private static final int members = 100;
+    private static final int commits = 2000;
+
+    @Autowired
+    private ProjectService projectService;
+    @Autowired
+    private GitManagementUserService gitManagementUserService;
+    @Autowired
+    private CommitService commitService;
+    @Autowired
+    private CommitRepository commitRepository;
+    @Autowired
+    private GitManagementUserRepository gitManagementUserRepository;
+    @Autowired
+    private ProjectRepository projectRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @DynamicPropertySource
+    static void gitLabProperties(DynamicPropertyRegistry registry) {
+        registry.add("gitlab.SERVER_URL", gitLab::getUrl);
+    }
+
+    @AfterAll
+    static void stopGitLab() {
+        gitLab.stop();
+    }
+
+    @Test
+    void ingestLooksUsersUpOnce() {
+        gitLab.on(projectPath, exchange -> GitLabStubServer.StubResponse.json(
+                "{\"id\":6,\"name\":\"identities\",\"name_with_namespace\":\"eris / identities\",\"web_url\":\"http://gitlab/identities\"}"));
+        gitLab.on(projectPath + "/members", exchange -> GitLabStubServer.StubResponse.json(IntStream.range(0, members)
+                .mapToObj(i -> "{\"id\":" + i + ",\"username\":\"user" + i + "\",\"name\":\"User " + i + "\"}")
+                .collect(Collectors.joining(",", "[", "]"))));
+        gitLab.on(projectPath + "/repository/commits", exchange -> GitLabStubServer.StubResponse.json(IntStream.range(0, commits)
+                .mapToObj(i -> "{\"id\":\"sha" + i + "\",\"title\":\"commit\",\"author_name\":\"User\",\"author_email\":\"user" + (i % members) + "@sfu.ca\","
+                        + "\"created_at\":\"2021-02-01T00:00:00Z\",\"web_url\":\"http://gitlab/commit/" + i + "\"}")
+                .collect(Collectors.joining(",", "[", "]"))));
+        gitLab.on(projectPath + "/events", exchange -> GitLabStubServer.StubResponse.json("[]"));
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        projectService.saveProjectInfo(6L);
+
+        statistics.clear();
+        gitManagementUserService.saveGitManagementUserInfo(6L);
+        assertTrue(statistics.getQueryExecutionCount() <= 5, () -> queries(statistics));
+        var projectId = projectRepository.findByGitlabProjectIdAndServerUrl(6L, gitLab.getUrl()).getId();
+        assertEquals(members, gitManagementUserRepository.findUsernamesByProjectId(projectId).size());
+
+        statistics.clear();
+        // a second sync finds every member in the index and saves nothing
+        gitManagementUserService.saveGitManagementUserInfo(6L);
+        assertEquals(0, statistics.getEntityInsertCount());
+
+        statistics.clear();
+        commitService.saveCommitInfo(6L, OffsetDateTime.parse("2021-01-01T00:00:00Z"), OffsetDateTime.parse("2021-04-01T00:00:00Z"));
+        assertEquals(commits, commitRepository.count());
+        assertTrue(statistics.getQueryExecutionCount() <= 6, () -> queries(statistics));
+    }
+
+    private static String queries(Statistics statistics) {
+        return statistics.getQueryExecutionCount() + " queries: " + String.join("\n", statistics.getQueries());
+    }
+
+    @Test
+    void matchesUsernamesEmailsAndUniqueDisplayNames() {
+        var jason = new GitManagementUser("csl33", "Jason Lee", null);
+        var alex = new GitManagementUser("alex1", "Alex", null);
+        var otherAlex = new GitManagementUser("alex2", "Alex", null);
+        var identities = new IdentityIndex(List.of(jason, alex, otherAlex), List.of("csl33"));
+
+        assertSame(jason, identities.findByUsername("csl33"));
+        assertSame(jason, identities.findByEmail("csl33@sfu.ca"));
+        assertSame(jason, identities.findByAuthorName("Jason Lee"));
+        assertNull(identities.findByAuthorName("Alex"));
+        // a third user of the same name must not make it look unique again
+        identities.add(new GitManagementUser("alex3", "Alex", null));
+        assertNull(identities.findByAuthorName("Alex"));
+        assertTrue(identities.isMember("csl33"));
+        assertFalse(identities.isMember("alex1"));
+
+        identities.add(new GitManagementUser("new1", "New User", null));
+        identities.addMember("new1");
+        assertNotNull(identities.findByEmail("new1@sfu.ca"));
+        assertTrue(identities.isMember("new1"));
+    }
+
+    @Test
+    void matchesCommitsByEmailThenByUniqueAuthorName() {
+        var jason = new GitManagementUser("csl33", "Jason Lee", null);
+        var identities = new IdentityIndex(List.of(jason, new GitManagementUser("alex1", "Alex", null),
+                new GitManagementUser("alex2", "Alex", null)), List.of());
+
+        assertSame(jason, identities.findCommitAuthor(commit("Someone", "csl33@sfu.ca")));
+        assertSame(jason, identities.findCommitAuthor(commit("Jason Lee", "jason@home.example")));
+        assertNull(identities.findCommitAuthor(commit("Alex", "alex@home.example")));
+        assertNull(identities.findCommitAuthor(commit("Nobody", null)));
+    }
+
+    private static GitLabCommit commit(String authorName, String authorEmail) {
+        var commit = new GitLabCommit();
+        ReflectionTestUtils.setField(commit, "authorName", authorName);
+        ReflectionTestUtils.setField(commit, "authorEmail", authorEmail);
+        return commit;
+    }
+}
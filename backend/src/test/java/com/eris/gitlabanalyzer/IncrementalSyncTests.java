@@ -0,0 +1,256 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.repository.CommitRepository;
+import com.eris.gitlabanalyzer.repository.MergeRequestCommentRepository;
+import com.eris.gitlabanalyzer.repository.MergeRequestRepository;
+import com.eris.gitlabanalyzer.repository.ProjectRepository;
+import com.eris.gitlabanalyzer.repository.SyncWatermarkRepository;
+import com.eris.gitlabanalyzer.service.AnalyticsService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class IncrementalSyncTests {
+    private static final GitLabStubServer gitLab = new GitLabStubServer();
+    private static final String projectPath = "/api/v4/projects/1";
+    private static final String mergeRequestsPath = projectPath + "/merge_requests";
+    private static final String commitsPath = projectPath + "/repository/commits";
+
+    @Autowired
+    private AnalyticsService analyticsService;
+    @Autowired
+    private ProjectRepository projectRepository;
+    @Autowired
+    private MergeRequestRepository mergeRequestRepository;
+    @Autowired
+    private MergeRequestCommentRepository mergeRequestCommentRepository;
+    @Autowired
+    private CommitRepository commitRepository;
+    @Autowired
+    private SyncWatermarkRepository syncWatermarkRepository;
+
+    private final OffsetDateTime startDateTime = OffsetDateTime.parse("2021-01-01T00:00:00Z");
+    private final OffsetDateTime endDateTime = OffsetDateTime.parse("2021-04-01T00:00:00Z");
+
+    @DynamicPropertySource
+    static void gitLabProperties(DynamicPropertyRegistry registry) {
+        registry.add("gitlab.SERVER_URL", gitLab::getUrl);
+    }
+
+    @AfterAll
+    static void stopGitLab() {
+        gitLab.stop();
+    }
+
+    static String commit(String sha, String createdAt) {
+        return "{\"id\":\"" + sha + "\",\"title\":\"commit\",\"author_name\":\"Jason Lee\",\"author_email\":\"csl33@sfu.ca\","
+                + "\"created_at\":\"" + createdAt + "\",\"web_url\":\"http://gitlab/commit/" + sha + "\"}";
+    }
+
+    static String pushEvent(long id, String commitFrom, String commitTo) {
+        return "{\"id\":" + id + ",\"action_name\":\"pushed to\",\"push_data\":{\"commit_from\":"
+                + (commitFrom == null ? "null" : "\"" + commitFrom + "\"") + ",\"commit_to\":\"" + commitTo + "\","
+                + "\"ref\":\"main\",\"ref_type\":\"branch\"}}";
+    }
+
+    private long countMergeRequests(Long projectId) {
+        return mergeRequestRepository.findAll().stream().filter(mergeRequest -> mergeRequest.getProject().getId().equals(projectId)).count();
+    }
+
+    private long countNotes(Long projectId) {
+        return mergeRequestCommentRepository.findAll().stream()
+                .filter(note -> note.getMergeRequest().getProject().getId().equals(projectId)).count();
+    }
+
+    static List<String> queryParams(List<URI> requests, String path, String name) {
+        return requests.stream()
+                .filter(uri -> uri.getPath().equals(path))
+                .map(uri -> uri.getQuery() == null ? "" : uri.getQuery())
+                .map(query -> List.of(query.split("&")).stream()
+                        .filter(pair -> pair.startsWith(name + "="))
+                        .map(pair -> pair.substring(name.length() + 1))
+                        .findFirst()
+                        .orElse(null))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void secondSyncOnlyFetchesChangesSinceTheWatermarks() {
+        gitLab.on(projectPath, exchange -> GitLabStubServer.StubResponse.json(
+                "{\"id\":1,\"name\":\"analyzer\",\"name_with_namespace\":\"eris / analyzer\",\"web_url\":\"http://gitlab/analyzer\","
+                        + "\"default_branch\":\"main\"}"));
+        gitLab.on(projectPath + "/members", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":1,\"username\":\"csl33\",\"name\":\"Jason Lee\"}]"));
+        gitLab.on(mergeRequestsPath, exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":100,\"iid\":1,\"title\":\"Add analyzer\",\"created_at\":\"2021-02-01T00:00:00Z\","
+                        + "\"updated_at\":\"2021-02-03T00:00:00Z\",\"author\":{\"username\":\"csl33\"},\"web_url\":\"http://gitlab/mr/1\"}]"));
+        gitLab.on(mergeRequestsPath + "/1/notes", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":10,\"body\":\"looks good\",\"author\":{\"username\":\"csl33\"},\"created_at\":\"2021-02-02T00:00:00Z\"}]"));
+        gitLab.on(commitsPath, exchange -> GitLabStubServer.StubResponse.json("["
+                + commit("0123456789abcdef0123456789abcdef01234567", "2021-02-01T00:00:00Z") + ","
+                + commit("89abcdef0123456789abcdef0123456789abcdef", "2021-02-05T00:00:00Z") + "]"));
+        var pushEvents = new AtomicReference<>("[" + pushEvent(5, null, "89abcdef0123456789abcdef0123456789abcdef") + "]");
+        gitLab.on(projectPath + "/events", exchange -> GitLabStubServer.StubResponse.json(pushEvents.get()));
+
+        analyticsService.saveAllFromGitlab(List.of(1L), startDateTime, endDateTime);
+
+        var project = projectRepository.findByGitlabProjectIdAndServerUrl(1L, gitLab.getUrl());
+        var watermark = syncWatermarkRepository.findByProjectId(project.getId());
+        assertEquals(OffsetDateTime.parse("2021-02-03T00:00:00Z").toInstant(), watermark.getLastMergeRequestUpdatedAt().toInstant());
+        assertEquals(5L, watermark.getLastPushEventId());
+        assertEquals(10L, watermark.getLastNoteId());
+        assertEquals(1, countMergeRequests(project.getId()));
+        assertEquals(1, countNotes(project.getId()));
+        assertEquals(2, commitRepository.findAll().size());
+
+        // pushed after the first sync, but made before the newest commit that was already saved
+        var latePushed = "fedcba9876543210fedcba9876543210fedcba98";
+        pushEvents.set("[" + pushEvent(6, "89abcdef0123456789abcdef0123456789abcdef", latePushed) + ","
+                + pushEvent(5, null, "89abcdef0123456789abcdef0123456789abcdef") + "]");
+        gitLab.on(projectPath + "/repository/compare", exchange -> GitLabStubServer.StubResponse.json(
+                "{\"commits\":[" + commit(latePushed, "2021-01-15T00:00:00Z") + "]}"));
+
+        analyticsService.saveAllFromGitlab(List.of(1L), startDateTime, endDateTime);
+
+        var updatedAfter = queryParams(gitLab.getRequests(), mergeRequestsPath, "updated_after");
+        assertNull(updatedAfter.get(0));
+        assertEquals("2021-02-03T00:00:00Z", updatedAfter.get(1));
+        // the commits are only listed once, after that the pushes are followed
+        assertEquals(1, gitLab.countRequests(commitsPath));
+        assertEquals(List.of("89abcdef0123456789abcdef0123456789abcdef"), queryParams(gitLab.getRequests(), projectPath + "/repository/compare", "from"));
+        assertNotNull(commitRepository.findByShaAndProjectId(latePushed, project.getId()));
+        assertEquals(6L, syncWatermarkRepository.findByProjectId(project.getId()).getLastPushEventId());
+
+        // the stub answers with the same data again, which must not be saved twice
+        assertEquals(1, countMergeRequests(project.getId()));
+        assertEquals(1, countNotes(project.getId()));
+        assertEquals(3, commitRepository.findAll().size());
+    }
+
+    @Test
+    void skippedAuthorsHoldTheWatermarksBack() {
+        var otherProjectPath = "/api/v4/projects/3";
+        var otherMergeRequestsPath = otherProjectPath + "/merge_requests";
+        var strangerCommit = "0f0f0f0f0f0f0f0f0f0f0f0f0f0f0f0f0f0f0f0f";
+        gitLab.on(otherProjectPath, exchange -> GitLabStubServer.StubResponse.json(
+                "{\"id\":3,\"name\":\"held\",\"name_with_namespace\":\"eris / held\",\"web_url\":\"http://gitlab/held\",\"default_branch\":\"main\"}"));
+        var members = new AtomicReference<>("[{\"id\":1,\"username\":\"csl33\",\"name\":\"Jason Lee\"}]");
+        gitLab.on(otherProjectPath + "/members", exchange -> GitLabStubServer.StubResponse.json(members.get()));
+        gitLab.on(otherMergeRequestsPath, exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":300,\"iid\":1,\"title\":\"Hold back\",\"created_at\":\"2021-02-01T00:00:00Z\","
+                        + "\"updated_at\":\"2021-02-03T00:00:00Z\",\"author\":{\"username\":\"csl33\"},\"web_url\":\"http://gitlab/held/mr/1\"}]"));
+        gitLab.on(otherMergeRequestsPath + "/1/notes", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":30,\"body\":\"who am i\",\"author\":{\"username\":\"stranger\"},\"created_at\":\"2021-02-02T00:00:00Z\"},"
+                        + "{\"id\":31,\"body\":\"looks good\",\"author\":{\"username\":\"csl33\"},\"created_at\":\"2021-02-02T00:00:00Z\"}]"));
+        gitLab.on(otherProjectPath + "/repository/commits", exchange -> GitLabStubServer.StubResponse.json("[" + "{\"id\":\"" + strangerCommit
+                + "\",\"title\":\"commit\",\"author_name\":\"Stranger\",\"author_email\":\"stranger@sfu.ca\","
+                + "\"created_at\":\"2021-02-01T00:00:00Z\",\"web_url\":\"http://gitlab/commit/" + strangerCommit + "\"}]"));
+        gitLab.on(otherProjectPath + "/events", exchange -> GitLabStubServer.StubResponse.json("[" + pushEvent(7, null, strangerCommit) + "]"));
+
+        analyticsService.saveAllFromGitlab(List.of(3L), startDateTime, endDateTime);
+
+        var project = projectRepository.findByGitlabProjectIdAndServerUrl(3L, gitLab.getUrl());
+        var watermark = syncWatermarkRepository.findByProjectId(project.getId());
+        assertEquals(1, countNotes(project.getId()));
+        assertNull(commitRepository.findByShaAndProjectId(strangerCommit, project.getId()));
+        assertEquals(29L, watermark.getLastNoteId());
+        assertEquals(OffsetDateTime.parse("2021-02-03T00:00:00Z").toInstant(), watermark.getLastMergeRequestUpdatedAt().toInstant());
+        assertNull(watermark.getLastPushEventId());
+
+        // once the author is a member the skipped rows are fetched again and saved
+        members.set("[{\"id\":1,\"username\":\"csl33\",\"name\":\"Jason Lee\"},{\"id\":2,\"username\":\"stranger\",\"name\":\"Stranger\"}]");
+        analyticsService.saveAllFromGitlab(List.of(3L), startDateTime, endDateTime);
+
+        watermark = syncWatermarkRepository.findByProjectId(project.getId());
+        assertEquals(2, countNotes(project.getId()));
+        var strangersCommit = commitRepository.findByShaAndProjectId(strangerCommit, project.getId());
+        assertNotNull(strangersCommit);
+        assertEquals(31L, watermark.getLastNoteId());
+        assertEquals(7L, watermark.getLastPushEventId());
+        // the other test counts all saved commits
+        commitRepository.delete(strangersCommit);
+    }
+
+    @Test
+    void movesTheHeadOfSavedMergeRequests() {
+        var otherProjectPath = "/api/v4/projects/4";
+        gitLab.on(otherProjectPath, exchange -> GitLabStubServer.StubResponse.json(
+                "{\"id\":4,\"name\":\"moved\",\"name_with_namespace\":\"eris / moved\",\"web_url\":\"http://gitlab/moved\"}"));
+        gitLab.on(otherProjectPath + "/members", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":1,\"username\":\"csl33\",\"name\":\"Jason Lee\"}]"));
+        var headSha = new AtomicReference<>("head-1");
+        gitLab.on(otherProjectPath + "/merge_requests", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":400,\"iid\":1,\"title\":\"Move\",\"sha\":\"" + headSha.get() + "\",\"created_at\":\"2021-02-01T00:00:00Z\","
+                        + "\"updated_at\":\"2021-02-03T00:00:00Z\",\"author\":{\"username\":\"csl33\"},\"web_url\":\"http://gitlab/moved/mr/1\"}]"));
+        gitLab.on(otherProjectPath + "/merge_requests/1/notes", exchange -> GitLabStubServer.StubResponse.json("[]"));
+        gitLab.on(otherProjectPath + "/repository/commits", exchange -> GitLabStubServer.StubResponse.json("[]"));
+        gitLab.on(otherProjectPath + "/events", exchange -> GitLabStubServer.StubResponse.json("[]"));
+
+        analyticsService.saveAllFromGitlab(List.of(4L), startDateTime, endDateTime);
+        var project = projectRepository.findByGitlabProjectIdAndServerUrl(4L, gitLab.getUrl());
+        assertEquals("head-1", mergeRequestRepository.findByIidAndProjectId(1L, project.getId()).getHeadSha());
+
+        headSha.set("head-2");
+        analyticsService.saveAllFromGitlab(List.of(4L), startDateTime, endDateTime);
+        assertEquals("head-2", mergeRequestRepository.findByIidAndProjectId(1L, project.getId()).getHeadSha());
+        assertEquals(1, countMergeRequests(project.getId()));
+    }
+
+    @Test
+    void resumesAFailedSyncFromTheSavedCursor() {
+        var otherProjectPath = "/api/v4/projects/2";
+        var otherCommitsPath = otherProjectPath + "/repository/commits";
+        gitLab.on(otherProjectPath, exchange -> GitLabStubServer.StubResponse.json(
+                "{\"id\":2,\"name\":\"resumed\",\"name_with_namespace\":\"eris / resumed\",\"web_url\":\"http://gitlab/resumed\"}"));
+        gitLab.on(otherProjectPath + "/members", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":1,\"username\":\"csl33\",\"name\":\"Jason Lee\"}]"));
+        gitLab.on(otherProjectPath + "/merge_requests", exchange -> GitLabStubServer.StubResponse.json("[]"));
+        gitLab.on(otherProjectPath + "/events", exchange -> GitLabStubServer.StubResponse.json("[]"));
+        var secondPageFails = new AtomicBoolean(true);
+        gitLab.on(otherCommitsPath, exchange -> {
+            if ("2".equals(GitLabStubServer.queryParam(exchange, "page"))) {
+                return secondPageFails.get()
+                        ? new GitLabStubServer.StubResponse(500, Map.of(), "{\"message\":\"500 Internal Server Error\"}")
+                        : GitLabStubServer.StubResponse.json("[" + commit("fedcba9876543210fedcba9876543210fedcba98", "2021-02-05T00:00:00Z") + "]");
+            }
+            var next = gitLab.getUrl() + otherCommitsPath.substring(1) + "?per_page=1&page=2";
+            return GitLabStubServer.StubResponse.json("[" + commit("76543210fedcba9876543210fedcba9876543210", "2021-02-01T00:00:00Z") + "]",
+                    Map.of("Link", "<" + next + ">; rel=\"next\""));
+        });
+
+        assertThrows(RuntimeException.class, () -> analyticsService.saveAllFromGitlab(List.of(2L), startDateTime, endDateTime));
+
+        var project = projectRepository.findByGitlabProjectIdAndServerUrl(2L, gitLab.getUrl());
+        var range = startDateTime.toInstant() + "/" + endDateTime.toInstant();
+        assertTrue(syncWatermarkRepository.findByProjectId(project.getId()).getCommitCursor(range).endsWith("page=2"));
+
+        // the cursor is read back from the database, the first page is not fetched again
+        secondPageFails.set(false);
+        int requests = gitLab.getRequests().size();
+        analyticsService.saveAllFromGitlab(List.of(2L), startDateTime, endDateTime);
+
+        var resumedRequests = gitLab.getRequests().subList(requests, gitLab.getRequests().size());
+        assertEquals(List.of("2"), queryParams(resumedRequests, otherCommitsPath, "page"));
+        assertNull(syncWatermarkRepository.findByProjectId(project.getId()).getCommitCursor(range));
+        var resumedCommits = java.util.Arrays.asList(
+                commitRepository.findByShaAndProjectId("76543210fedcba9876543210fedcba9876543210", project.getId()),
+                commitRepository.findByShaAndProjectId("fedcba9876543210fedcba9876543210fedcba98", project.getId()));
+        assertFalse(resumedCommits.contains(null));
+        // the other test counts all saved commits
+        commitRepository.deleteAll(resumedCommits);
+    }
+}
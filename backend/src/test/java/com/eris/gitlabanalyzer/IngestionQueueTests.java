@@ -0,0 +1,151 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.IngestionTask;
+import com.eris.gitlabanalyzer.repository.CommitRepository;
+import com.eris.gitlabanalyzer.repository.IngestionTaskRepository;
+import com.eris.gitlabanalyzer.repository.MergeRequestRepository;
+import com.eris.gitlabanalyzer.service.IngestionTaskService;
+import com.eris.gitlabanalyzer.service.IngestionWorker;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ingestion;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "gitlab.INGESTION_MAX_ATTEMPTS=2",
+        "gitlab.INGESTION_RETRY_BACKOFF_SECONDS=0"
+})
+class IngestionQueueTests {
+    private static final GitLabStubServer gitLab = new GitLabStubServer();
+    private static final String projectPath = "/api/v4/projects/3";
+
+    @Autowired
+    private IngestionTaskService ingestionTaskService;
+    @Autowired
+    private IngestionWorker ingestionWorker;
+    @Autowired
+    private IngestionTaskRepository ingestionTaskRepository;
+    @Autowired
+    private MergeRequestRepository mergeRequestRepository;
+    @Autowired
+    private CommitRepository commitRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final OffsetDateTime startDateTime = OffsetDateTime.parse("2021-01-01T00:00:00Z");
+    private final OffsetDateTime endDateTime = OffsetDateTime.parse("2021-04-01T00:00:00Z");
+
+    @DynamicPropertySource
+    static void gitLabProperties(DynamicPropertyRegistry registry) {
+        registry.add("gitlab.SERVER_URL", gitLab::getUrl);
+    }
+
+    @AfterAll
+    static void stopGitLab() {
+        gitLab.stop();
+    }
+
+    @BeforeEach
+    void stubProject() {
+        ingestionTaskRepository.deleteAll();
+        gitLab.reset();
+        gitLab.on(projectPath, exchange -> GitLabStubServer.StubResponse.json(
+                "{\"id\":3,\"name\":\"queue\",\"name_with_namespace\":\"eris / queue\",\"web_url\":\"http://gitlab/queue\"}"));
+        gitLab.on(projectPath + "/members", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":1,\"username\":\"csl33\",\"name\":\"Jason Lee\"}]"));
+        gitLab.on(projectPath + "/merge_requests", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":300,\"iid\":1,\"title\":\"Add queue\",\"created_at\":\"2021-02-01T00:00:00Z\","
+                        + "\"updated_at\":\"2021-02-03T00:00:00Z\",\"author\":{\"username\":\"csl33\"},\"web_url\":\"http://gitlab/mr/1\"}]"));
+        gitLab.on(projectPath + "/merge_requests/1/notes", exchange -> GitLabStubServer.StubResponse.json("[]"));
+        gitLab.on(projectPath + "/repository/commits", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":\"0123456789abcdef0123456789abcdef01234567\",\"title\":\"commit\",\"author_name\":\"Jason Lee\","
+                        + "\"author_email\":\"csl33@sfu.ca\",\"created_at\":\"2021-02-01T00:00:00Z\",\"web_url\":\"http://gitlab/commit/1\"}]"));
+        gitLab.on(projectPath + "/events", exchange -> GitLabStubServer.StubResponse.json("[]"));
+    }
+
+    @Test
+    void runsEveryStepOfAProject() {
+        ingestionTaskService.enqueue(List.of(3L), startDateTime, endDateTime);
+        while (ingestionWorker.runNext()) {
+        }
+
+        var tasks = ingestionTaskRepository.findAll();
+        assertEquals(Set.of(IngestionTask.Type.PROJECT, IngestionTask.Type.MERGE_REQUESTS, IngestionTask.Type.COMMITS),
+                tasks.stream().map(IngestionTask::getType).collect(Collectors.toSet()));
+        assertTrue(tasks.stream().allMatch(task -> task.getStatus() == IngestionTask.Status.DONE));
+        assertEquals(1, mergeRequestRepository.findAll().size());
+        assertEquals(1, commitRepository.findAll().size());
+    }
+
+    @Test
+    void leasedTasksAreOnlyHandedOutOnce() {
+        ingestionTaskService.enqueue(List.of(3L, 4L), startDateTime, endDateTime);
+
+        var first = ingestionTaskService.lease("node-a").orElseThrow();
+        var second = ingestionTaskService.lease("node-b").orElseThrow();
+        assertNotEquals(first.getId(), second.getId());
+        assertTrue(ingestionTaskService.lease("node-c").isEmpty());
+
+        // a renewed lease stays with its node
+        assertEquals(1, ingestionTaskService.heartbeat(List.of(first.getId()), "node-a"));
+        assertEquals(0, ingestionTaskService.heartbeat(List.of(first.getId()), "node-b"));
+    }
+
+    @Test
+    void aProjectHasOneUnfinishedTaskAtATime() {
+        var queued = ingestionTaskService.enqueue(List.of(3L), startDateTime, endDateTime).get(0);
+        assertEquals(queued.getId(), ingestionTaskService.enqueue(List.of(3L), startDateTime, endDateTime).get(0).getId());
+
+        // leased, and then followed by its next step, the project still has a single unfinished task
+        var leased = ingestionTaskService.lease("node-a").orElseThrow();
+        assertEquals(queued.getId(), ingestionTaskService.enqueue(List.of(3L), startDateTime, endDateTime).get(0).getId());
+        assertTrue(ingestionTaskService.complete(leased, "node-a", IngestionTask.Type.MERGE_REQUESTS));
+        var next = ingestionTaskService.enqueue(List.of(3L), startDateTime, endDateTime).get(0);
+        assertEquals(IngestionTask.Type.MERGE_REQUESTS, next.getType());
+        assertEquals(2, ingestionTaskRepository.count());
+    }
+
+    @Test
+    void expiredLeasesAreReclaimed() {
+        ingestionTaskService.enqueue(List.of(3L), startDateTime, endDateTime);
+        var lost = ingestionTaskService.lease("node-a").orElseThrow();
+        // node-a stops sending heartbeats
+        new TransactionTemplate(transactionManager).execute(status -> ingestionTaskRepository.extendLeases(
+                List.of(lost.getId()), "node-a", OffsetDateTime.now().minusSeconds(1), IngestionTask.Status.RUNNING));
+
+        var reclaimed = ingestionTaskService.lease("node-b").orElseThrow();
+        assertEquals(lost.getId(), reclaimed.getId());
+        assertEquals(2, reclaimed.getAttempts());
+        assertFalse(ingestionTaskService.complete(lost, "node-a", null));
+        assertTrue(ingestionTaskService.complete(reclaimed, "node-b", null));
+    }
+
+    @Test
+    void failedTasksAreRetriedUntilTheyRunOutOfAttempts() {
+        ingestionTaskService.enqueue(List.of(5L), startDateTime, endDateTime);
+
+        assertTrue(ingestionWorker.runNext());
+        var retried = ingestionTaskRepository.findAll().get(0);
+        assertEquals(IngestionTask.Status.PENDING, retried.getStatus());
+        assertNotNull(retried.getLastError());
+
+        assertTrue(ingestionWorker.runNext());
+        assertFalse(ingestionWorker.runNext());
+        var failed = ingestionTaskRepository.findAll().get(0);
+        assertEquals(IngestionTask.Status.FAILED, failed.getStatus());
+        assertEquals(2, failed.getAttempts());
+    }
+}
@@ -0,0 +1,105 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.RawCommitData;
+import com.eris.gitlabanalyzer.model.RawTimeLineEvent;
+import com.eris.gitlabanalyzer.model.gitlabresponse.GitLabCommit;
+import com.eris.gitlabanalyzer.service.ProjectService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ProjectServiceTests {
+    private static final GitLabStubServer gitLab = new GitLabStubServer();
+    private static final String projectPath = "/api/v4/projects/1";
+    private static final String diff = "[{\"diff\":\"+line\\n\",\"new_path\":\"A.java\",\"old_path\":\"A.java\"}]";
+
+    @Autowired
+    private ProjectService projectService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final OffsetDateTime startDateTime = OffsetDateTime.parse("2021-01-01T00:00:00Z");
+    private final OffsetDateTime endDateTime = OffsetDateTime.parse("2021-04-01T00:00:00Z");
+
+    @DynamicPropertySource
+    static void gitLabProperties(DynamicPropertyRegistry registry) {
+        registry.add("gitlab.SERVER_URL", gitLab::getUrl);
+    }
+
+    @AfterAll
+    static void stopGitLab() {
+        gitLab.stop();
+    }
+
+    static String commit(String sha, String createdAt) {
+        return "{\"id\":\"" + sha + "\",\"title\":\"commit\",\"created_at\":\"" + createdAt + "\"}";
+    }
+
+    @BeforeEach
+    void stubTimeline() {
+        gitLab.reset();
+        gitLab.on(projectPath + "/merge_requests", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":100,\"iid\":1,\"title\":\"Add analyzer\",\"created_at\":\"2021-02-01T00:00:00Z\"}]"));
+        gitLab.on(projectPath + "/merge_requests/1/commits", exchange -> GitLabStubServer.StubResponse.json(
+                "[" + commit("mr-commit", "2021-02-01T00:00:00Z") + "]"));
+        gitLab.on(projectPath + "/merge_requests/1/changes", exchange -> GitLabStubServer.StubResponse.json(
+                "{\"changes\":" + diff + "}"));
+        gitLab.on(projectPath + "/repository/commits", exchange -> GitLabStubServer.StubResponse.json(
+                "[" + commit("orphan-2", "2021-02-03T00:00:00Z") + "," + commit("mr-commit", "2021-02-01T00:00:00Z") + ","
+                        + commit("orphan-1", "2021-02-02T00:00:00Z") + "]"));
+        for (String sha : List.of("mr-commit", "orphan-1", "orphan-2")) {
+            gitLab.on(projectPath + "/repository/commits/" + sha + "/diff", exchange -> GitLabStubServer.StubResponse.json(diff));
+        }
+    }
+
+    static void assertEachRequestedOnce() {
+        gitLab.getRequests().stream()
+                .collect(Collectors.groupingBy(URI::getPath, Collectors.counting()))
+                .forEach((path, count) -> assertEquals(1L, count, path));
+    }
+
+    @Test
+    void fetchesEveryTimelineResourceOnce() throws Exception {
+        var timeline = projectService.getTimeLineProjectData(1L, startDateTime, endDateTime);
+        int requests = gitLab.getRequests().size();
+        objectMapper.writeValueAsString(timeline);
+
+        assertEquals(7, requests);
+        assertEquals(requests, gitLab.getRequests().size());
+        assertEachRequestedOnce();
+
+        assertEquals(1, timeline.getMergeRequestData().get(0).getRawCommitData().size());
+        assertEquals("+line\n", timeline.getMergeRequestData().get(0).getGitLabDiff().get(0).getDiff());
+        assertEquals(List.of("orphan-1", "orphan-2"), timeline.getOrphanCommits().stream()
+                .map(RawCommitData::getGitLabCommit)
+                .map(GitLabCommit::getSha)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void streamsMergeRequestsBeforeOrphanCommits() {
+        var events = projectService.streamTimeLineProjectData(1L, startDateTime, endDateTime)
+                .collectList()
+                .block();
+
+        assertEquals(List.of(RawTimeLineEvent.MERGE_REQUEST, RawTimeLineEvent.ORPHAN_COMMIT, RawTimeLineEvent.ORPHAN_COMMIT),
+                events.stream().map(RawTimeLineEvent::getType).collect(Collectors.toList()));
+        assertEquals(1L, events.get(0).getMergeRequestData().getGitLabMergeRequest().getIid());
+        assertEquals("orphan-2", events.get(1).getOrphanCommit().getGitLabCommit().getSha());
+        assertEquals(7, gitLab.getRequests().size());
+        assertEachRequestedOnce();
+    }
+}
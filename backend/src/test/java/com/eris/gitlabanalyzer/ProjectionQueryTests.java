@@ -0,0 +1,111 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.Commit;
+import com.eris.gitlabanalyzer.model.MergeRequest;
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.repository.*;
+import com.eris.gitlabanalyzer.service.BatchInsertService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.OffsetDateTime;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DatabaseTest
+class ProjectionQueryTests {
+    private static final int mergeRequests = 30;
+    private static final int commits = 500;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TestProjects testProjects;
+    @Autowired
+    private ProjectRepository projectRepository;
+    @Autowired
+    private BatchInsertService batchInsertService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Project project;
+
+    @BeforeAll
+    void createProject() {
+        project = testProjects.create(22L, "projections");
+        var owner = testProjects.addMember(project);
+        batchInsertService.insertAll(IntStream.range(0, mergeRequests)
+                .mapToObj(i -> new MergeRequest((long) i, "csl33", "Merge request " + i,
+                        OffsetDateTime.parse("2021-02-01T00:00:00Z").plusDays(i), "http://gitlab/mr/" + i, project, owner))
+                .collect(Collectors.toList()));
+        batchInsertService.insertAll(IntStream.range(0, commits)
+                .mapToObj(i -> new Commit("sha" + i, "commit", "Jason Lee", "csl33@sfu.ca", "Jason Lee", "csl33@sfu.ca",
+                        OffsetDateTime.parse("2021-02-01T00:00:00Z"), "http://gitlab/commit/" + i, project, owner))
+                .collect(Collectors.toList()));
+    }
+
+    private Statistics clearedStatistics() {
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    @Test
+    void listsProjectsWithoutTheirCollections() throws Exception {
+        long projects = projectRepository.count();
+        var statistics = clearedStatistics();
+        mockMvc.perform(get("/api/v1/projects"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[?(@.name == 'projections')]", hasSize(1)))
+                .andExpect(jsonPath("$.content[0]", not(hasKey("commits"))))
+                .andExpect(jsonPath("$.content[0]", not(hasKey("gitManagementUsers"))))
+                .andExpect(jsonPath("$.totalElements").value((int) projects));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+    }
+
+    @Test
+    void pagesAndSortsMergeRequests() throws Exception {
+        var statistics = clearedStatistics();
+        mockMvc.perform(get("/api/v1/projects/" + project.getId() + "/mergerequests")
+                .param("page", "1")
+                .param("size", "10")
+                .param("sort", "iid,asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(10)))
+                .andExpect(jsonPath("$.content[0].iid").value(10))
+                .andExpect(jsonPath("$.content[0].title").value("Merge request 10"))
+                .andExpect(jsonPath("$.content[0]", not(hasKey("commits"))))
+                .andExpect(jsonPath("$.totalElements").value(mergeRequests));
+
+        // the page and its count
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void listsMembers() throws Exception {
+        var statistics = clearedStatistics();
+        mockMvc.perform(get("/api/v1/" + project.getId() + "/managementuser/members"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].username").value("csl33"))
+                .andExpect(jsonPath("$.content[0]", not(hasKey("commits"))))
+                .andExpect(jsonPath("$.totalElements").value(1));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
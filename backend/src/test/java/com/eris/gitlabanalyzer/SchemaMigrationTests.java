@@ -0,0 +1,101 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.Commit;
+import com.eris.gitlabanalyzer.model.GitManagementUser;
+import com.eris.gitlabanalyzer.model.Issue;
+import com.eris.gitlabanalyzer.model.IssueComment;
+import com.eris.gitlabanalyzer.model.MergeRequest;
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.repository.*;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the same migrations as production, Hibernate only validates the schema they create
+@DatabaseTest
+class SchemaMigrationTests {
+    @Autowired
+    private Flyway flyway;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestProjects testProjects;
+    @Autowired
+    private GitManagementUserRepository gitManagementUserRepository;
+    @Autowired
+    private MergeRequestRepository mergeRequestRepository;
+    @Autowired
+    private CommitRepository commitRepository;
+    @Autowired
+    private IssueRepository issueRepository;
+    @Autowired
+    private IssueCommentRepository issueCommentRepository;
+
+    @Value("${gitlab.SERVER_URL}")
+    private String serverUrl;
+
+    private Project project;
+    private GitManagementUser gitManagementUser;
+    private Issue issue;
+
+    @BeforeAll
+    void createProject() {
+        project = testProjects.create(18L, "schema");
+        gitManagementUser = testProjects.addMember(project);
+        var mergeRequest = mergeRequestRepository.save(new MergeRequest(1L, "csl33", "Migrations",
+                OffsetDateTime.parse("2021-02-01T00:00:00Z"), "http://gitlab/mr/1", project, gitManagementUser));
+        commitRepository.save(new Commit("0123456789abcdef", "commit", "Jason Lee", "csl33@sfu.ca", "Jason Lee", "csl33@sfu.ca",
+                OffsetDateTime.parse("2021-02-01T00:00:00Z"), "http://gitlab/commit", project, gitManagementUser));
+        issue = issueRepository.save(new Issue(1L, "Migrations", "csl33", "2021-02-01T00:00Z", "http://gitlab/issue/1", project, gitManagementUser));
+        issueCommentRepository.save(new IssueComment(1L, gitManagementUser, issue, "http://gitlab/issue/1#note_1", "2021-02-01T00:00Z"));
+    }
+
+    private String plan(String query) {
+        return jdbcTemplate.queryForObject("explain " + query, String.class);
+    }
+
+    @Test
+    void lookupsUseTheCompositeIndexes() {
+        long projectId = project.getId();
+        long serverId = gitManagementUser.getServer().getId();
+
+        assertTrue(plan("select * from commit where sha = '0123456789abcdef' and project_id = " + projectId)
+                .contains("commit_project_id_sha_key"));
+        assertTrue(plan("select * from merge_request where merge_request_iid = 1 and project_id = " + projectId)
+                .contains("merge_request_project_id_iid_key"));
+        assertTrue(plan("select * from git_management_user where username = 'csl33' and server_id = " + serverId)
+                .contains("git_management_user_server_id_username_key"));
+        assertTrue(plan("select * from project where gitlab_project_id = 18 and server_id = " + serverId)
+                .contains("project_server_id_gitlab_project_id_key"));
+        assertTrue(plan("select * from commit where project_id = " + projectId
+                + " and created_at between '2021-01-01 00:00:00' and '2021-04-01 00:00:00'")
+                .contains("commit_project_id_created_at_idx"));
+    }
+
+    @Test
+    void rejectsDuplicateNaturalKeys() {
+        assertThrows(DataIntegrityViolationException.class, () -> commitRepository.save(new Commit("0123456789abcdef", "commit",
+                "Jason Lee", "csl33@sfu.ca", "Jason Lee", "csl33@sfu.ca", OffsetDateTime.parse("2021-02-01T00:00:00Z"),
+                "http://gitlab/commit", project, gitManagementUser)));
+        assertThrows(DataIntegrityViolationException.class, () -> issueRepository.save(new Issue(1L, "Migrations", "csl33",
+                "2021-02-01T00:00Z", "http://gitlab/issue/1", project, gitManagementUser)));
+        assertThrows(DataIntegrityViolationException.class, () -> issueCommentRepository.save(new IssueComment(1L, gitManagementUser,
+                issue, "http://gitlab/issue/1#note_1", "2021-02-01T00:00Z")));
+    }
+
+    @Test
+    void migratingAgainKeepsTheData() {
+        assertEquals(0, flyway.migrate().migrationsExecuted);
+        assertNotNull(commitRepository.findByShaAndProjectId("0123456789abcdef", project.getId()));
+        assertNotNull(mergeRequestRepository.findByIidAndProjectId(1L, project.getId()));
+        assertNotNull(gitManagementUserRepository.findByUserNameAndServerUrl("csl33", serverUrl));
+    }
+}
@@ -0,0 +1,303 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.cache.ScoreCache;
+import com.eris.gitlabanalyzer.dataprocessing.CompiledScoreProfile;
+import com.eris.gitlabanalyzer.dataprocessing.DiffScoreCalculator;
+import com.eris.gitlabanalyzer.model.DiffLineCounts;
+import com.eris.gitlabanalyzer.model.FileLineCounts;
+import com.eris.gitlabanalyzer.model.ScoreProfile;
+import com.eris.gitlabanalyzer.repository.DiffLineCountsRepository;
+import com.eris.gitlabanalyzer.repository.ScoreProfileRepository;
+import com.eris.gitlabanalyzer.service.ScoreProfileRegistry;
+import com.eris.gitlabanalyzer.service.ScoreProfileService;
+import com.eris.gitlabanalyzer.service.ScoreService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:linecounts;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ScoreServiceTests {
+    private static final GitLabStubServer gitLab = new GitLabStubServer();
+    private static final Path diffCacheDirectory = createTempDirectory();
+    private static final String projectPath = "/api/v4/projects/1";
+    private static final String sha = "0123456789abcdef0123456789abcdef01234567";
+    // 2 code lines, a comment, a block comment over 2 lines, a syntax line and a deleted line
+    private static final String diff = "[{\"diff\":\"@@ -1,2 +1,6 @@\\n+int a;\\n+int b;\\n+// a\\n+/* b\\n+*/\\n+}\\n-int c;\\n\"," +
+            "\"new_path\":\"src/A.java\",\"old_path\":\"src/A.java\"}," +
+            "{\"diff\":\"@@ -0,0 +1 @@\\n+# Analyzer\\n\",\"new_path\":\"README.md\",\"old_path\":\"README.md\"}]";
+
+    @Autowired
+    private ScoreService scoreService;
+    @Autowired
+    private DiffScoreCalculator diffScoreCalculator;
+    @Autowired
+    private DiffLineCountsRepository diffLineCountsRepository;
+    @Autowired
+    private ScoreProfileService scoreProfileService;
+    @Autowired
+    private ScoreProfileRepository scoreProfileRepository;
+    @Autowired
+    private ScoreProfileRegistry scoreProfileRegistry;
+    @Autowired
+    private ScoreCache scoreCache;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${gitlab.SERVER_URL}")
+    private String serverUrl;
+
+    @DynamicPropertySource
+    static void gitLabProperties(DynamicPropertyRegistry registry) {
+        registry.add("gitlab.SERVER_URL", gitLab::getUrl);
+        registry.add("gitlab.DIFF_CACHE_DIR", () -> diffCacheDirectory.toString());
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("score-service-tests");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @AfterAll
+    static void stopGitLab() {
+        gitLab.stop();
+    }
+
+    @BeforeEach
+    void stubGitLab() {
+        gitLab.reset();
+        diffLineCountsRepository.deleteAll();
+        // scores weighed with the default weights
+        scoreCache.evictProfile(null);
+        gitLab.on(projectPath + "/repository/commits/" + sha + "/diff", exchange -> GitLabStubServer.StubResponse.json(diff));
+        gitLab.on(projectPath + "/merge_requests/1/changes", exchange -> GitLabStubServer.StubResponse.json("{\"changes\":" + diff + "}"));
+    }
+
+    private void stubMergeRequestHead(String headSha) {
+        gitLab.on(projectPath + "/merge_requests/1", exchange -> GitLabStubServer.StubResponse.json(
+                "{\"id\":100,\"iid\":1,\"title\":\"Add analyzer\",\"sha\":\"" + headSha + "\"}"));
+    }
+
+    @Test
+    void countsEachFileOfTheDiff() {
+        var files = scoreService.getCommitLineCounts(1L, List.of(sha)).get(sha);
+
+        assertEquals(2, files.size());
+        var java = files.get(0);
+        assertEquals("java", java.getExtension());
+        assertEquals(2, java.getCodeLines());
+        assertEquals(1, java.getCommentLines());
+        assertEquals(2, java.getBlockCommentLines());
+        assertEquals(1, java.getSyntaxLines());
+        assertEquals(1, java.getDeletedLines());
+        assertEquals("md", files.get(1).getExtension());
+        assertEquals(1, files.get(1).getCodeLines());
+    }
+
+    @Test
+    void scoresCommitsFromSavedLineCounts() throws IOException {
+        double score = scoreService.getCommitDiffScore(1L, sha, null);
+        // 3 code lines at 2 points, 3 comment lines at 1 point
+        assertEquals(9.0, score);
+        assertEquals(1, diffLineCountsRepository.count());
+
+        // with the diff gone from GitLab and from the disk cache only the saved line counts are left
+        gitLab.reset();
+        FileSystemUtils.deleteRecursively(diffCacheDirectory);
+        assertEquals(score, scoreService.getCommitDiffScore(1L, sha, null));
+        assertEquals(0, gitLab.countRequests(projectPath + "/repository/commits/" + sha + "/diff"));
+    }
+
+    @Test
+    void countsMergeRequestsAgainOnceTheirHeadMoves() {
+        stubMergeRequestHead("head-1");
+        assertEquals(9.0, scoreService.getMergeDiffScore(1L, 1L, null));
+        assertEquals(9.0, scoreService.getMergeDiffScore(1L, 1L, null));
+        assertEquals(1, gitLab.countRequests(projectPath + "/merge_requests/1/changes"));
+
+        stubMergeRequestHead("head-2");
+        assertEquals(9.0, scoreService.getMergeDiffScore(1L, 1L, null));
+        assertEquals(2, gitLab.countRequests(projectPath + "/merge_requests/1/changes"));
+    }
+
+    @Test
+    void totalsTheCommitsAndMergeRequestsGitLabLists() {
+        // the project was never synced, GitLab lists what to score
+        gitLab.on(projectPath + "/repository/commits", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":\"" + sha + "\",\"title\":\"Add analyzer\"}]"));
+        gitLab.on(projectPath + "/merge_requests", exchange -> GitLabStubServer.StubResponse.json(
+                "[{\"id\":100,\"iid\":1,\"title\":\"Add analyzer\",\"sha\":\"head-1\"}]"));
+        var start = OffsetDateTime.parse("2021-01-01T00:00:00Z");
+        var end = OffsetDateTime.parse("2021-03-01T00:00:00Z");
+
+        assertEquals(9.0, scoreService.getTotalCommitDiffScore(1L, start, end, null));
+        assertEquals(9.0, scoreService.getTotalMergeDiffScore(1L, start, end, null));
+        assertEquals(2, diffLineCountsRepository.count());
+    }
+
+    @Test
+    void savesEachDiffOnce() {
+        scoreService.getCommitDiffScore(1L, sha, null);
+        var files = diffLineCountsRepository.findAll().get(0).getFiles();
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> diffLineCountsRepository.save(new DiffLineCounts(serverUrl, 1L, sha, DiffLineCounts.COMMIT, files)));
+        assertEquals(1, diffLineCountsRepository.count());
+    }
+
+    @Test
+    void rescoresSavedLineCountsUnderAnyProfile() {
+        scoreService.getCommitDiffScore(1L, sha, null);
+        int requests = gitLab.getRequests().size();
+
+        var profile = new ScoreProfile("weighted", 1, 0.5, 0.25, 0.1);
+        profile.addExtension(Map.of("md", 0.0));
+        long profileId = scoreProfileService.createScoreProfile(profile).getId();
+        // java: 2 code + 0.1 * 3 comments + 0.25 syntax + 0.5 deleted, md is not counted
+        assertEquals(3.05, scoreService.getCommitDiffScore(1L, sha, profileId), 1e-9);
+
+        var edited = new ScoreProfile("weighted", 1, 0.5, 0.25, 0.1);
+        edited.addExtension(Map.of("md", 2.0));
+        scoreProfileService.updateScoreProfile(profileId, edited);
+        assertEquals(5.05, scoreService.getCommitDiffScore(1L, sha, profileId), 1e-9);
+        assertEquals(requests, gitLab.getRequests().size());
+
+        scoreProfileService.deleteScoreProfile(profileId);
+        assertThrows(ResponseStatusException.class, () -> scoreService.getCommitDiffScore(1L, sha, profileId));
+    }
+
+    @Test
+    void compilesProfilesSavedByAnotherNode() {
+        var profile = new ScoreProfile("saved elsewhere", 3, 0, 0, 0);
+        profile.addExtension(Map.of("java", 0.5));
+        long profileId = scoreProfileRepository.save(profile).getId();
+
+        // 2 java code lines at 1.5 points, 1 md code line at 3 points
+        assertEquals(6.0, scoreService.getCommitDiffScore(1L, sha, profileId), 1e-9);
+    }
+
+    @Test
+    void recompilesProfilesEditedByAnotherNode() {
+        long profileId = scoreProfileService.createScoreProfile(new ScoreProfile("edited elsewhere", 1, 0, 0, 0)).getId();
+        assertEquals(3.0, scoreService.getCommitDiffScore(1L, sha, profileId));
+
+        var profile = scoreProfileRepository.findWithExtensionWeightsById(profileId).orElseThrow();
+        profile.setLineWeight(10);
+        scoreProfileRepository.save(profile);
+        // scoring does not ask the database, the edit is seen once the versions are polled
+        assertEquals(3.0, scoreService.getCommitDiffScore(1L, sha, profileId));
+        scoreProfileRegistry.pollVersions();
+        assertEquals(30.0, scoreService.getCommitDiffScore(1L, sha, profileId));
+
+        scoreProfileRepository.deleteById(profileId);
+        scoreProfileRegistry.pollVersions();
+        assertThrows(ResponseStatusException.class, () -> scoreService.getCommitDiffScore(1L, sha, profileId));
+    }
+
+    @Test
+    void weighsWithoutTheProfileEntity() {
+        var profile = new ScoreProfile("compiled", 1, 0, 0, 1);
+        profile.addExtension(Map.of("java", 2.0));
+        var compiled = CompiledScoreProfile.compile(profile);
+        profile.setLineWeight(100);
+        profile.getExtensionWeights().clear();
+
+        // 1 code line and 3 comment lines, doubled for java
+        assertEquals(8.0, compiled.weigh(diffScoreCalculator.countLines("+int a;\n+// a\n+/* b\n+*/\n", "java")), 1e-9);
+        assertEquals(4.0, compiled.weigh(diffScoreCalculator.countLines("+int a;\n+// a\n+/* b\n+*/\n", "ts")), 1e-9);
+    }
+
+    @Test
+    void answersRepeatedScoresFromTheCache() {
+        stubMergeRequestHead("head-1");
+        scoreService.getCommitDiffScore(1L, sha, null);
+        scoreService.getMergeDiffScore(1L, 1L, null);
+        int requests = gitLab.getRequests().size();
+        long mergeRequestRequests = gitLab.countRequests(projectPath + "/merge_requests/1");
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        double hits = meterRegistry.get("cache.gets").tag("cache", "scores").tag("result", "hit").functionCounter().count();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(9.0, scoreService.getCommitDiffScore(1L, sha, null));
+            assertEquals(9.0, scoreService.getMergeDiffScore(1L, 1L, null));
+        }
+
+        // only the merge request itself is asked for, to learn its head sha
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(requests + 10, gitLab.getRequests().size());
+        assertEquals(10, gitLab.countRequests(projectPath + "/merge_requests/1") - mergeRequestRequests);
+        assertEquals(hits + 20, meterRegistry.get("cache.gets").tag("cache", "scores").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void readsCompiledProfilesWithoutTheDatabase() {
+        long profileId = scoreProfileService.createScoreProfile(new ScoreProfile("published", 1, 0, 0, 0)).getId();
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(profileId, scoreProfileRegistry.get(profileId).getId());
+        }
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void editingAProfileDropsItsCachedScores() {
+        long profileId = scoreProfileService.createScoreProfile(new ScoreProfile("edited", 1, 0, 0, 0)).getId();
+        assertEquals(3.0, scoreService.getCommitDiffScore(1L, sha, profileId));
+        long cached = scoreCache.size();
+
+        scoreProfileService.updateScoreProfile(profileId, new ScoreProfile("edited", 10, 0, 0, 0));
+        assertEquals(cached - 1, scoreCache.size());
+        assertEquals(30.0, scoreService.getCommitDiffScore(1L, sha, profileId));
+    }
+
+    @Test
+    void sharesCachedScoresBetweenCompilesOfTheSameVersion() {
+        var profile = scoreProfileRepository.save(new ScoreProfile("compiled twice", 1, 0, 0, 0));
+        scoreCache.putCommitScore(serverUrl, 1L, sha, CompiledScoreProfile.compile(profile), 3.0);
+
+        assertEquals(3.0, scoreCache.getCommitScoreIfPresent(serverUrl, 1L, sha, CompiledScoreProfile.compile(profile)));
+        profile.setLineWeight(2);
+        profile = scoreProfileRepository.save(profile);
+        assertNull(scoreCache.getCommitScoreIfPresent(serverUrl, 1L, sha, CompiledScoreProfile.compile(profile)));
+    }
+
+    @Test
+    void weighsLikeTheDefaultScore() {
+        FileLineCounts counts = diffScoreCalculator.countLines("+int a;\n+// a\n+/* b\n+*/\n-int c;\n", "java");
+        assertEquals(diffScoreCalculator.calculateScore("+int a;\n+// a\n+/* b\n+*/\n-int c;\n", "java"), diffScoreCalculator.weigh(counts));
+        assertEquals(5, diffScoreCalculator.weigh(counts));
+    }
+}
@@ -0,0 +1,89 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.GitManagementUser;
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.repository.GitManagementUserRepository;
+import com.eris.gitlabanalyzer.repository.ProjectRepository;
+import com.eris.gitlabanalyzer.repository.ServerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:secondlevelcache;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class SecondLevelCacheTests {
+    @Autowired
+    private ServerRepository serverRepository;
+    @Autowired
+    private ProjectRepository projectRepository;
+    @Autowired
+    private GitManagementUserRepository gitManagementUserRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${gitlab.SERVER_URL}")
+    private String serverUrl;
+    @Value("${gitlab.ACCESS_TOKEN}")
+    private String accessToken;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void clearStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void repeatedLookupsAreAnsweredFromTheCache() {
+        var server = serverRepository.findByServerUrlAndAccessToken(serverUrl, accessToken);
+        projectRepository.save(new Project(19L, "cached", "eris / cached", "http://gitlab/cached", server));
+        assertNotNull(projectRepository.findByGitlabProjectIdAndServerUrl(19L, serverUrl));
+        statistics.clear();
+
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(serverRepository.findByServerUrlAndAccessToken(serverUrl, accessToken));
+            assertNotNull(projectRepository.findByGitlabProjectIdAndServerUrl(19L, serverUrl));
+        }
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(20, statistics.getQueryCacheHitCount());
+        assertEquals(0, statistics.getQueryCacheMissCount());
+        assertTrue(meterRegistry.get("hibernate.cache.query.requests").tag("result", "hit").functionCounter().count() >= 20);
+    }
+
+    @Test
+    void savingEvictsStaleResults() {
+        var server = serverRepository.findByServerUrlAndAccessToken(serverUrl, accessToken);
+        assertNull(projectRepository.findByGitlabProjectIdAndServerUrl(20L, serverUrl));
+        assertNull(gitManagementUserRepository.findByUserNameAndServerUrl("csl33", serverUrl));
+
+        projectRepository.save(new Project(20L, "evicted", "eris / evicted", "http://gitlab/evicted", server));
+        var gitManagementUser = gitManagementUserRepository.save(new GitManagementUser("csl33", "Jason Lee", server));
+
+        assertNotNull(projectRepository.findByGitlabProjectIdAndServerUrl(20L, serverUrl));
+        assertNotNull(gitManagementUserRepository.findByUserNameAndServerUrl("csl33", serverUrl));
+
+        gitManagementUserRepository.findById(gitManagementUser.getId());
+        gitManagementUser.setScore(42);
+        gitManagementUserRepository.save(gitManagementUser);
+        statistics.clear();
+
+        assertEquals(42, gitManagementUserRepository.findById(gitManagementUser.getId()).orElseThrow().getScore());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,76 @@
+package com.eris.gitlabanalyzer;
+
+import com.eris.gitlabanalyzer.model.GitManagementUser;
+import com.eris.gitlabanalyzer.model.Project;
+import com.eris.gitlabanalyzer.model.Server;
+import com.eris.gitlabanalyzer.repository.GitManagementUserRepository;
+import com.eris.gitlabanalyzer.repository.ProjectRepository;
+import com.eris.gitlabanalyzer.repository.ServerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// The projects and their member csl33 that DatabaseTest classes work on
+@TestComponent
+class TestProjects {
+    private final ServerRepository serverRepository;
+    private final ProjectRepository projectRepository;
+    private final GitManagementUserRepository gitManagementUserRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${gitlab.SERVER_URL}")
+    private String serverUrl;
+    @Value("${gitlab.ACCESS_TOKEN}")
+    private String accessToken;
+
+    TestProjects(ServerRepository serverRepository, ProjectRepository projectRepository,
+                 GitManagementUserRepository gitManagementUserRepository, JdbcTemplate jdbcTemplate,
+                 PlatformTransactionManager transactionManager) {
+        this.serverRepository = serverRepository;
+        this.projectRepository = projectRepository;
+        this.gitManagementUserRepository = gitManagementUserRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    Server getServer() {
+        return serverRepository.findByServerUrlAndAccessToken(serverUrl, accessToken);
+    }
+
+    // gitLabProjectId has to be different for every test class
+    Project create(long gitLabProjectId, String name) {
+        return projectRepository.save(new Project(gitLabProjectId, name, "eris / " + name, "http://gitlab/" + name, getServer()));
+    }
+
+    // csl33, created by the first test class that asks for it
+    GitManagementUser addMember(Project project) {
+        return transactionTemplate.execute(status -> {
+            var gitManagementUser = gitManagementUserRepository.findByUserNameAndServerUrl("csl33", serverUrl);
+            if (gitManagementUser == null) {
+                gitManagementUser = new GitManagementUser("csl33", "Jason Lee", getServer());
+            }
+            gitManagementUser.addProject(projectRepository.getOne(project.getId()));
+            return gitManagementUserRepository.save(gitManagementUser);
+        });
+    }
+
+    long countCommits(Project project) {
+        return jdbcTemplate.queryForObject("select count(*) from commit where project_id = ?", Long.class, project.getId());
+    }
+
+    long countMergeRequests(Project project) {
+        return jdbcTemplate.queryForObject("select count(*) from merge_request where project_id = ?", Long.class, project.getId());
+    }
+
+    long countMergeRequestComments(Project project) {
+        return jdbcTemplate.queryForObject("select count(*) from merge_request_comment c join merge_request m " +
+                "on m.merge_request_id = c.merge_request_id where m.project_id = ?", Long.class, project.getId());
+    }
+
+    void deleteCommits(Project project) {
+        jdbcTemplate.update("delete from commit where project_id = ?", project.getId());
+    }
+}